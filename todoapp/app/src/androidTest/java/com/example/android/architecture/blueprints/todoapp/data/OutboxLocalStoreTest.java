@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.local.OutboxLocalStore;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.OutboxStore;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Integration test for the {@link OutboxLocalStore}.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class OutboxLocalStoreTest {
+
+   private OutboxStore mOutboxStore;
+
+   @Before
+   public void setup() {
+      mOutboxStore = TasksLocalDataSource.getInstance(
+            InstrumentationRegistry.getTargetContext()).getOutboxStore();
+      clearOutbox();
+   }
+
+   @After
+   public void cleanUp() {
+      clearOutbox();
+   }
+
+   @Test
+   public void appendedMutations_arePeekedInOrderAndRemoved() {
+      // Given mutations appended to the outbox
+      Task task = new Task("title", "description", true);
+      mOutboxStore.append(Lists.newArrayList(PendingMutation.save(task),
+            PendingMutation.delete(task.getId()), PendingMutation.clearCompleted()));
+
+      // When peeking at the first two
+      List<PendingMutation> mutations = mOutboxStore.peek(2);
+
+      // Then they come back in order, with their content
+      assertThat(mutations.size(), is(2));
+      assertThat(mutations.get(0).getOperation(), is(PendingMutation.Operation.SAVE));
+      assertThat(mutations.get(0).getTask(), is(task));
+      assertThat(mutations.get(0).getTask().isCompleted(), is(true));
+      assertThat(mutations.get(0).getTask().getCreatedAt(), is(task.getCreatedAt()));
+      assertThat(mutations.get(0).getTask().getCompletedAt(), is(task.getCompletedAt()));
+      assertThat(mutations.get(1).getOperation(), is(PendingMutation.Operation.DELETE));
+      assertThat(mutations.get(1).getTaskId(), is(task.getId()));
+
+      // And once removed only the last one is left
+      mOutboxStore.remove(mutations);
+      List<PendingMutation> left = mOutboxStore.peek(10);
+      assertThat(left.size(), is(1));
+      assertThat(left.get(0).getOperation(), is(PendingMutation.Operation.CLEAR_COMPLETED));
+   }
+
+   private void clearOutbox() {
+      mOutboxStore.remove(mOutboxStore.peek(Integer.MAX_VALUE));
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskHistory;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.DbConnectionManager;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksDbHelper;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskEntry;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the throughput of a mixed read and write workload against the tasks database, once
+ * opening and closing the database around every operation and once through the long-lived
+ * connection kept by {@link DbConnectionManager}, and the latency of searches as the table grows.
+ * Results are written to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class TasksLocalDataSourceBenchmark {
+
+   private static final String TAG = "TasksDbBenchmark";
+
+   private static final int TASK_COUNT = 200;
+
+   private static final int OPERATIONS = 2000;
+
+   private static final int LARGE_TABLE_SIZE = 100000;
+
+   // One write for every WRITE_EVERY operations, the rest are single task reads.
+   private static final int WRITE_EVERY = 5;
+
+   private static final int[] SEARCH_TABLE_SIZES = {10000, 100000, 1000000};
+
+   private static final int SEARCHES = 50;
+
+   private static final int COUNTS = 20;
+
+   private static final int[] TREND_DAYS = {30, 90, 365};
+
+   private static final int SAVE_BATCH = 10000;
+
+   private static final int SEARCH_PAGE_SIZE = 20;
+
+   private static final String[] WORDS = {
+         "bridge", "tower", "girders", "foundation", "concrete", "survey", "permit", "crane"
+   };
+
+   // From a word in every task down to a word in a single task.
+   private static final String[] SEARCHES_TEXT = {"title", "tow", "concrete permit", "uniq4242"};
+
+   private Context mContext;
+
+   private TasksLocalDataSource mLocalDataSource;
+
+   private List<Task> mTasks;
+
+   @Before
+   public void setup() {
+      mContext = InstrumentationRegistry.getTargetContext();
+      mLocalDataSource = TasksLocalDataSource.getInstance(mContext);
+      mLocalDataSource.deleteAllTasks();
+
+      mTasks = new ArrayList<>(TASK_COUNT);
+      for (int i = 0; i < TASK_COUNT; i++) {
+         Task task = new Task("Title " + i, "Description " + i);
+         mTasks.add(task);
+         mLocalDataSource.saveTask(task);
+      }
+   }
+
+   @After
+   public void cleanUp() {
+      mLocalDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void mixedWorkload_openPerOperationVersusSharedConnection() {
+      TasksDbHelper dbHelper = new TasksDbHelper(mContext);
+      long start = SystemClock.elapsedRealtime();
+      for (int i = 0; i < OPERATIONS; i++) {
+         Task task = mTasks.get(i % TASK_COUNT);
+         SQLiteDatabase db = i % WRITE_EVERY == 0
+               ? dbHelper.getWritableDatabase() : dbHelper.getReadableDatabase();
+         runOperation(db, i, task);
+         db.close();
+      }
+      long openPerOperationMillis = SystemClock.elapsedRealtime() - start;
+
+      start = SystemClock.elapsedRealtime();
+      for (int i = 0; i < OPERATIONS; i++) {
+         Task task = mTasks.get(i % TASK_COUNT);
+         if (i % WRITE_EVERY == 0) {
+            if (i % (2 * WRITE_EVERY) == 0) {
+               mLocalDataSource.completeTask(task);
+            } else {
+               mLocalDataSource.activateTask(task);
+            }
+         } else {
+            mLocalDataSource.getTask(task.getId());
+         }
+      }
+      long sharedConnectionMillis = SystemClock.elapsedRealtime() - start;
+
+      Log.i(TAG, "Open per operation: " + opsPerSecond(openPerOperationMillis) + " ops/s");
+      Log.i(TAG, "Shared connection:  " + opsPerSecond(sharedConnectionMillis) + " ops/s");
+   }
+
+   @Test
+   public void singleTaskLookups_smallVersusLargeTable() {
+      long smallTableMicros = timeLookups(mTasks);
+
+      List<Task> moreTasks = new ArrayList<>(LARGE_TABLE_SIZE);
+      for (int i = TASK_COUNT; i < LARGE_TABLE_SIZE; i++) {
+         moreTasks.add(new Task("Title " + i, "Description " + i));
+      }
+      mLocalDataSource.saveTasks(moreTasks);
+      moreTasks.addAll(mTasks);
+      long largeTableMicros = timeLookups(moreTasks);
+
+      Log.i(TAG, "Lookup with " + TASK_COUNT + " rows: " + smallTableMicros + " us/op");
+      Log.i(TAG, "Lookup with " + LARGE_TABLE_SIZE + " rows: " + largeTableMicros + " us/op");
+   }
+
+   @Test
+   public void search_growingTable() {
+      int size = mTasks.size();
+      for (int targetSize : SEARCH_TABLE_SIZES) {
+         size = growTable(size, targetSize);
+
+         for (String text : SEARCHES_TEXT) {
+            TaskSearchQuery query = TaskSearchQuery.parse(text);
+            int found = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < SEARCHES; i++) {
+               found = mLocalDataSource.searchTasks(query, 0, SEARCH_PAGE_SIZE).size();
+            }
+            long micros = (System.nanoTime() - start) / 1000 / SEARCHES;
+            Log.i(TAG, "Search \"" + text + "\" in " + targetSize + " rows: " + micros
+                  + " us/op, " + found + " on first page");
+         }
+      }
+   }
+
+   @Test
+   public void countByState_aggregateVersusLoad() {
+      int size = mTasks.size();
+      for (int targetSize : SEARCH_TABLE_SIZES) {
+         size = growTable(size, targetSize);
+
+         long start = System.nanoTime();
+         for (int i = 0; i < COUNTS; i++) {
+            mLocalDataSource.countTasksByState();
+         }
+         long aggregateMicros = (System.nanoTime() - start) / 1000 / COUNTS;
+
+         start = System.nanoTime();
+         mLocalDataSource.getTasks();
+         long loadMicros = (System.nanoTime() - start) / 1000;
+         Log.i(TAG, "Count by state in " + targetSize + " rows: aggregate " + aggregateMicros
+               + " us/op, load " + loadMicros + " us/op");
+      }
+   }
+
+   @Test
+   public void taskHistory_growingTable() {
+      int size = mTasks.size();
+      long today = TaskHistory.toDay(System.currentTimeMillis());
+      for (int targetSize : SEARCH_TABLE_SIZES) {
+         size = growTable(size, targetSize);
+
+         for (int days : TREND_DAYS) {
+            long start = System.nanoTime();
+            for (int i = 0; i < COUNTS; i++) {
+               mLocalDataSource.getTaskHistory(today - days + 1, today);
+            }
+            long micros = (System.nanoTime() - start) / 1000 / COUNTS;
+            Log.i(TAG, "History of " + days + " days in " + targetSize + " rows: " + micros
+                  + " us/op");
+         }
+      }
+   }
+
+   /**
+    * Adds tasks, a third of them completed, until the table holds {@code targetSize} of them.
+    *
+    * @return the new size of the table
+    */
+   private int growTable(int size, int targetSize) {
+      List<Task> moreTasks = new ArrayList<>(SAVE_BATCH);
+      for (; size < targetSize; size++) {
+         moreTasks.add(new Task("Title " + WORDS[size % WORDS.length],
+               WORDS[size / WORDS.length % WORDS.length] + " uniq" + size, size % 3 == 0));
+         if (moreTasks.size() == SAVE_BATCH) {
+            mLocalDataSource.saveTasks(moreTasks);
+            moreTasks.clear();
+         }
+      }
+      mLocalDataSource.saveTasks(moreTasks);
+      return size;
+   }
+
+   private long timeLookups(List<Task> tasks) {
+      long start = System.nanoTime();
+      for (int i = 0; i < OPERATIONS; i++) {
+         mLocalDataSource.getTask(tasks.get((i * 7919) % tasks.size()).getId());
+      }
+      return (System.nanoTime() - start) / 1000 / OPERATIONS;
+   }
+
+   /**
+    * Same statements as {@link TasksLocalDataSource}, run on a caller supplied database.
+    */
+   private static void runOperation(SQLiteDatabase db, int i, Task task) {
+      String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?";
+      String[] selectionArgs = {task.getId()};
+      if (i % WRITE_EVERY == 0) {
+         ContentValues values = new ContentValues();
+         values.put(TaskEntry.COLUMN_NAME_COMPLETED, i % (2 * WRITE_EVERY) == 0);
+         db.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
+      } else {
+         Cursor c = db.query(TaskEntry.TABLE_NAME, null, selection, selectionArgs,
+               null, null, null);
+         c.moveToFirst();
+         c.close();
+      }
+   }
+
+   private static long opsPerSecond(long millis) {
+      return OPERATIONS * 1000L / Math.max(1, millis);
+   }
+}
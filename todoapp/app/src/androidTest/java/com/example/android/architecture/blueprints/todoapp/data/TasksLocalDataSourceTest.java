@@ -20,9 +20,14 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 import android.test.suitebuilder.annotation.LargeTest;
 
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskCounts;
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskHistory;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksDbHelper;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
 import org.junit.After;
@@ -31,6 +36,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import rx.observers.TestSubscriber;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
@@ -82,6 +93,53 @@ public class TasksLocalDataSourceTest {
 
    }
 
+   @Test
+   public void saveExistingTask_updatesInPlace() {
+      // Given a task in the persistent repository
+      final Task newTask = new Task(TITLE, "");
+      mLocalDataSource.saveTask(newTask);
+
+      // When it is edited and saved again
+      Task editedTask = new Task(TITLE2, "description", newTask.getId());
+      mLocalDataSource.saveTask(editedTask);
+
+      // Then a single, updated copy is stored
+      List<Task> tasks = mLocalDataSource.getTasks();
+      assertThat(tasks.size(), is(1));
+      assertThat(tasks.get(0), is(editedTask));
+   }
+
+   @Test
+   public void saveExistingTask_keepsItsPlaceInTheList() {
+      // Given two tasks in the persistent repository
+      final Task newTask1 = new Task(TITLE, "");
+      final Task newTask2 = new Task(TITLE2, "");
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2));
+
+      // When the first one is edited and saved again
+      Task editedTask = new Task(TITLE3, "description", newTask1.getId());
+      mLocalDataSource.saveTask(editedTask);
+
+      // Then it is still listed first, with its creation time
+      List<Task> tasks = mLocalDataSource.getTasks();
+      assertThat(tasks, is(Arrays.asList(editedTask, newTask2)));
+      assertThat(tasks.get(0).getCreatedAt(), is(newTask1.getCreatedAt()));
+   }
+
+   @Test
+   public void saveTask_keepsVersionAcrossCompletion() {
+      // Given a synced task in the persistent repository
+      final Task newTask = new Task(TITLE, "", "id", false, 42);
+      mLocalDataSource.saveTask(newTask);
+
+      // When it is completed locally
+      mLocalDataSource.completeTask(newTask);
+
+      // Then it still carries the version it was synced at
+      assertThat(mLocalDataSource.getTask(newTask.getId()).getVersion(), is(42L));
+      assertThat(mLocalDataSource.getTasks().get(0).getVersion(), is(42L));
+   }
+
    @Test
    public void completeTask_retrievedTaskIsComplete() {
       // Given a new task in the persistent repository
@@ -115,6 +173,41 @@ public class TasksLocalDataSourceTest {
       assertThat(result.isCompleted(), is(false));
    }
 
+   @Test
+   public void completeAndActivateTasks_updatesOnlyGivenTasks() {
+      // Given 3 active tasks in the persistent repository
+      final Task newTask1 = new Task(TITLE, "");
+      final Task newTask2 = new Task(TITLE2, "");
+      final Task newTask3 = new Task(TITLE3, "");
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2, newTask3));
+
+      // When 2 of them are completed at once, one is activated again and an unknown id is given
+      mLocalDataSource.completeTasks(Arrays.asList(newTask1.getId(), newTask3.getId(), "unknown"));
+      mLocalDataSource.activateTasks(Arrays.asList(newTask3.getId()));
+
+      // Then only the first one is completed
+      assertTrue(mLocalDataSource.getTask(newTask1.getId()).isCompleted());
+      assertTrue(mLocalDataSource.getTask(newTask2.getId()).isActive());
+      assertTrue(mLocalDataSource.getTask(newTask3.getId()).isActive());
+   }
+
+   @Test
+   public void deleteTasks_tasksNotRetrievable() {
+      // Given 3 tasks in the persistent repository
+      final Task newTask1 = new Task(TITLE, "");
+      final Task newTask2 = new Task(TITLE2, "");
+      final Task newTask3 = new Task(TITLE3, "");
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2, newTask3));
+
+      // When 2 of them are deleted at once
+      mLocalDataSource.deleteTasks(Arrays.asList(newTask1.getId(), newTask3.getId()));
+
+      // Then only the other one is left
+      List<Task> tasks = mLocalDataSource.getTasks();
+      assertThat(tasks.size(), is(1));
+      assertThat(tasks.get(0).getId(), is(newTask2.getId()));
+   }
+
    @Test
    public void clearCompletedTask_taskNotRetrievable() {
       // Given 2 new completed tasks and 1 active task in the persistent repository
@@ -151,7 +244,7 @@ public class TasksLocalDataSourceTest {
       mLocalDataSource.deleteAllTasks();
 
       // Then the retrieved tasks is an empty list
-      ArrayList<Task> tasks = mLocalDataSource.getTasks();
+      List<Task> tasks = mLocalDataSource.getTasks();
       assertThat(tasks.size(), is(0));
    }
 
@@ -164,9 +257,279 @@ public class TasksLocalDataSourceTest {
       final Task newTask2 = new Task(TITLE, "");
       mLocalDataSource.saveTask(newTask2);
 
-      ArrayList<Task> tasks = mLocalDataSource.getTasks();
+      List<Task> tasks = mLocalDataSource.getTasks();
       assertThat(tasks.size(), is(2));
       assertThat(tasks.get(0).getId(), is(newTask1.getId()));
       assertThat(tasks.get(1).getId(), is(newTask2.getId()));
    }
+
+   @Test
+   public void runInTransaction_failedWritesAreRolledBack() {
+      // Given a task in the persistent repository
+      final Task newTask = new Task(TITLE, "");
+      mLocalDataSource.saveTask(newTask);
+
+      // When a replacement of all the tasks fails half way
+      try {
+         mLocalDataSource.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+               mLocalDataSource.deleteAllTasks();
+               mLocalDataSource.saveTask(new Task(TITLE2, ""));
+               throw new IllegalStateException();
+            }
+         });
+      } catch (IllegalStateException expected) {
+      }
+
+      // Then the tasks are left as they were
+      assertThat(mLocalDataSource.getTasks(), is(Arrays.asList(newTask)));
+   }
+
+   @Test
+   public void runInTransaction_outboxIsRolledBackWithTheTasks() {
+      // When a task is saved and its mutation stored in a transaction that then fails
+      final Task newTask = new Task(TITLE, "");
+      try {
+         mLocalDataSource.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+               mLocalDataSource.saveTask(newTask);
+               mLocalDataSource.getOutboxStore()
+                     .append(Collections.singletonList(PendingMutation.save(newTask)));
+               throw new IllegalStateException();
+            }
+         });
+      } catch (IllegalStateException expected) {
+      }
+
+      // Then neither the task nor its mutation are kept
+      assertTrue(mLocalDataSource.getTasks().isEmpty());
+      assertTrue(mLocalDataSource.getOutboxStore().peek(1).isEmpty());
+   }
+
+   @Test
+   public void saveTasks_retrievesAllTasksInOrder() {
+      // Given more tasks than fit in a single write chunk
+      List<Task> newTasks = new ArrayList<>();
+      for (int i = 0; i < 1200; i++) {
+         newTasks.add(new Task(TITLE + i, i % 2 == 0 ? null : "", i % 3 == 0));
+      }
+
+      // When saved in bulk into the persistent repository
+      mLocalDataSource.saveTasks(newTasks);
+
+      // Then all of them can be retrieved in the same order
+      List<Task> tasks = mLocalDataSource.getTasks();
+      assertThat(tasks.size(), is(newTasks.size()));
+      for (int i = 0; i < newTasks.size(); i++) {
+         assertThat(tasks.get(i).getId(), is(newTasks.get(i).getId()));
+         assertThat(tasks.get(i).isCompleted(), is(newTasks.get(i).isCompleted()));
+      }
+   }
+
+   @Test
+   public void getTasksWithQuery_retrievesMatchingTasksOnly() {
+      // Given 2 active tasks and 1 completed task in the persistent repository
+      final Task newTask1 = new Task(TITLE, "");
+      final Task newTask2 = new Task(TITLE2, "", true);
+      final Task newTask3 = new Task(TITLE3, "");
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2, newTask3));
+
+      // Then each query retrieves the matching tasks, in order
+      assertThat(mLocalDataSource.getTasks(TaskQuery.ACTIVE),
+            is(Arrays.asList(newTask1, newTask3)));
+      assertThat(mLocalDataSource.getTasks(TaskQuery.COMPLETED), is(Arrays.asList(newTask2)));
+      assertThat(mLocalDataSource.getTasks(TaskQuery.ALL),
+            is(Arrays.asList(newTask1, newTask2, newTask3)));
+   }
+
+   @Test
+   public void countTasksByState_countsActiveAndCompletedTasks() {
+      // Given 2 active tasks and 1 completed task in the persistent repository
+      mLocalDataSource.saveTasks(Arrays.asList(new Task(TITLE, ""), new Task(TITLE2, "", true),
+            new Task(TITLE3, "")));
+
+      // Then they are counted by state
+      assertThat(mLocalDataSource.countTasksByState(), is(new TaskCounts(2, 1)));
+
+      // And the counts follow the writes
+      mLocalDataSource.clearCompletedTasks();
+      assertThat(mLocalDataSource.countTasksByState(), is(new TaskCounts(2, 0)));
+      mLocalDataSource.deleteAllTasks();
+      assertThat(mLocalDataSource.countTasksByState(), is(new TaskCounts(0, 0)));
+   }
+
+   @Test
+   public void getTaskHistory_followsWritesAndOutlivesDeletions() {
+      // Given a task created on day 10 and completed 2 days later, and one created on day 11
+      final Task newTask1 = new Task(TITLE, "", "id1", true, 0, localNoon(10), localNoon(12));
+      final Task newTask2 = new Task(TITLE2, "", "id2", false, 0, localNoon(11), 0);
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2));
+
+      // When all the tasks are deleted and saved again without their times, as a sync does
+      mLocalDataSource.deleteAllTasks();
+      mLocalDataSource.saveTasks(Arrays.asList(new Task(TITLE, "", "id1", true),
+            new Task(TITLE2, "", "id2")));
+      // And the completed ones are cleared
+      mLocalDataSource.clearCompletedTasks();
+
+      // Then the saved tasks kept their times
+      assertThat(mLocalDataSource.getTask("id2").getCreatedAt(), is(localNoon(11)));
+      // And each task is counted once, deleted or not
+      TaskHistory history = mLocalDataSource.getTaskHistory(10, 12);
+      assertThat(history.getCreatedCount(0), is(1));
+      assertThat(history.getCreatedCount(1), is(1));
+      assertThat(history.getCompletedCount(2), is(1));
+      assertThat(history.getMedianTimeToComplete(),
+            is(TaskHistory.getLatencyBucketBound(
+                  TaskHistory.toLatencyBucket(2 * TaskHistory.DAY_MILLIS))));
+
+      // When a task is completed, then activated again
+      mLocalDataSource.completeTask(newTask2);
+      assertThat(mLocalDataSource.getTask("id2").getCompletedAt() > 0, is(true));
+      mLocalDataSource.activateTask(newTask2);
+
+      // Then its completion is no longer counted
+      assertThat(mLocalDataSource.getTask("id2").getCompletedAt(), is(0L));
+      long today = TaskHistory.toDay(System.currentTimeMillis());
+      assertThat(mLocalDataSource.getTaskHistory(today, today).getTotalCompletedCount(), is(0));
+   }
+
+   @Test
+   public void searchTasks_ranksTitleMatchesFirst() {
+      // Given tasks matching in their title, in their description, and not at all
+      final Task newTask1 = new Task("Paint the fence", "Buy white paint");
+      final Task newTask2 = new Task("Buy paintbrushes", "");
+      final Task newTask3 = new Task("Call the painter", "About the fence");
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2, newTask3));
+
+      // When searching for a prefix of several words
+      TaskSearchQuery query = TaskSearchQuery.parse("BUY pain");
+
+      // Then the title matches come first, and pages follow the same order
+      assertThat(mLocalDataSource.searchTasks(query, 0, 10), is(Arrays.asList(newTask2, newTask1)));
+      assertThat(mLocalDataSource.searchTasks(query, 1, 10), is(Arrays.asList(newTask1)));
+      assertThat(mLocalDataSource.searchTasks(TaskSearchQuery.parse("fen"), 0, 10),
+            is(Arrays.asList(newTask1, newTask3)));
+   }
+
+   @Test
+   public void searchTasks_followsEditsAndDeletions() {
+      // Given a task in the persistent repository
+      final Task newTask = new Task("Old title", "");
+      mLocalDataSource.saveTask(newTask);
+
+      // When it is edited, the old text isn't found anymore and the new one is
+      Task editedTask = new Task("New title", "", newTask.getId());
+      mLocalDataSource.saveTask(editedTask);
+      assertTrue(mLocalDataSource.searchTasks(TaskSearchQuery.parse("old"), 0, 10).isEmpty());
+      assertThat(mLocalDataSource.searchTasks(TaskSearchQuery.parse("new"), 0, 10),
+            is(Arrays.asList(editedTask)));
+
+      // When it is deleted, it isn't found anymore
+      mLocalDataSource.deleteTask(newTask.getId());
+      assertTrue(mLocalDataSource.searchTasks(TaskSearchQuery.parse("title"), 0, 10).isEmpty());
+   }
+
+   @Test
+   public void listedTasks_longDescriptionsAreSummaries() {
+      // Given a task with a short description and one with a long description
+      StringBuilder description = new StringBuilder();
+      for (int i = 0; i < 1000; i++) {
+         description.append("Notes pasted from elsewhere. ");
+      }
+      final Task newTask1 = new Task(TITLE, "Short notes");
+      final Task newTask2 = new Task(TITLE2, description.toString());
+      mLocalDataSource.saveTasks(Arrays.asList(newTask1, newTask2));
+
+      // When listed, only the long description is cut short
+      List<Task> tasks = mLocalDataSource.getTasks();
+      assertThat(tasks.get(0).isSummary(), is(false));
+      assertThat(tasks.get(0).getDescription(), is("Short notes"));
+      Task summary = tasks.get(1);
+      assertTrue(summary.isSummary());
+      assertTrue(summary.getDescription().length() < newTask2.getDescription().length());
+      assertTrue(newTask2.getDescription().startsWith(summary.getDescription()));
+      assertTrue(mLocalDataSource.searchTasks(TaskSearchQuery.parse("pasted"), 0, 10).get(0)
+            .isSummary());
+
+      // Then the task read by id has its full description
+      Task task = mLocalDataSource.getTask(newTask2.getId());
+      assertThat(task.isSummary(), is(false));
+      assertThat(task.getDescription(), is(newTask2.getDescription()));
+   }
+
+   @Test
+   public void getTasksInChunks_emitsAllTasksInOrder() {
+      // Given 5 tasks in the persistent repository
+      List<Task> newTasks = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         newTasks.add(new Task(TITLE + i, "", i % 2 == 0));
+      }
+      mLocalDataSource.saveTasks(newTasks);
+
+      // When they are read in chunks of 2
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+      mLocalDataSource.getTasksInChunks(2).subscribe(subscriber);
+
+      // Then they come in 3 chunks, in the same order as getTasks()
+      subscriber.assertCompleted();
+      List<List<Task>> chunks = subscriber.getOnNextEvents();
+      assertThat(chunks.size(), is(3));
+      assertThat(chunks.get(2).size(), is(1));
+      List<Task> tasks = new ArrayList<>();
+      for (List<Task> chunk : chunks) {
+         tasks.addAll(chunk);
+      }
+      assertThat(tasks, is(mLocalDataSource.getTasks()));
+   }
+
+   @Test
+   public void getTasksInChunks_stopsReadingWhenUnsubscribed() {
+      // Given 5 tasks in the persistent repository
+      for (int i = 0; i < 5; i++) {
+         mLocalDataSource.saveTask(new Task(TITLE + i, ""));
+      }
+
+      // When only the first chunk is taken
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+      mLocalDataSource.getTasksInChunks(2).take(1).subscribe(subscriber);
+
+      // Then the other chunks are never emitted
+      subscriber.assertValueCount(1);
+      subscriber.assertCompleted();
+   }
+
+   @Test
+   public void getTasksInChunks_readsOnlyTheChunksRequested() {
+      // Given 5 tasks in the persistent repository
+      for (int i = 0; i < 5; i++) {
+         mLocalDataSource.saveTask(new Task(TITLE + i, ""));
+      }
+
+      // When a single chunk is requested
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>(1);
+      mLocalDataSource.getTasksInChunks(2).subscribe(subscriber);
+
+      // Then only that chunk is emitted, and the others once they are requested too
+      subscriber.assertValueCount(1);
+      subscriber.assertNotCompleted();
+      subscriber.requestMore(2);
+      subscriber.assertValueCount(3);
+      subscriber.assertCompleted();
+      subscriber.unsubscribe();
+   }
+
+   /**
+    * Returns the time of noon, in the default time zone, on {@code day}, see
+    * {@link TaskHistory#toDay(long)}.
+    */
+   private static long localNoon(long day) {
+      Calendar calendar = Calendar.getInstance();
+      calendar.clear();
+      calendar.set(1970, Calendar.JANUARY, 1, 12, 0);
+      calendar.add(Calendar.DAY_OF_MONTH, (int) day);
+      return calendar.getTimeInMillis();
+   }
 }
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.plugins.RxJavaHooks;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs use cases on bounded thread pools, one per {@link Priority}, so that work in one lane never
+ * waits for threads busy with work in another: opening a task stays fast while a refresh is
+ * fetching every task from the remote data source.
+ * <p>
+ * Used directly, as any other scheduler, it runs work in the {@link Priority#INTERACTIVE} lane;
+ * {@link UseCaseRx} picks the lane each use case asks for.
+ * <p>
+ * Cancelling work that has started interrupts the thread running it, as {@code Schedulers.io()}
+ * does, so the data sources can give up early.
+ */
+public final class PriorityScheduler extends Scheduler {
+
+   /**
+    * The lanes use cases run in, from the most to the least urgent.
+    */
+   public enum Priority {
+      /**
+       * Reads the user is waiting for.
+       */
+      INTERACTIVE(2, Thread.NORM_PRIORITY),
+      /**
+       * Changes made by the user. A single thread, so they are applied in the order they were
+       * made.
+       */
+      USER_WRITE(1, Thread.NORM_PRIORITY),
+      /**
+       * Refreshes and syncs with the remote data source.
+       */
+      BACKGROUND(1, Thread.MIN_PRIORITY);
+
+      private final int mThreads;
+
+      private final int mThreadPriority;
+
+      Priority(int threads, int threadPriority) {
+         mThreads = threads;
+         mThreadPriority = threadPriority;
+      }
+   }
+
+   private static final long KEEP_ALIVE_SECONDS = 30;
+
+   private static PriorityScheduler INSTANCE;
+
+   private final Map<Priority, Lane> mLanes = new EnumMap<>(Priority.class);
+
+   // Holds delayed work until it is due, then hands it over to its lane.
+   private final ScheduledExecutorService mTimer;
+
+   public static synchronized PriorityScheduler getInstance() {
+      if (INSTANCE == null) {
+         INSTANCE = new PriorityScheduler();
+      }
+      return INSTANCE;
+   }
+
+   @VisibleForTesting
+   PriorityScheduler() {
+      for (Priority priority : Priority.values()) {
+         mLanes.put(priority, new Lane(priority));
+      }
+      mTimer = Executors.newSingleThreadScheduledExecutor(
+            new LaneThreadFactory("timer", Thread.NORM_PRIORITY));
+   }
+
+   @Override
+   public Worker createWorker() {
+      return get(Priority.INTERACTIVE).createWorker();
+   }
+
+   /**
+    * Returns the scheduler running work in the lane of {@code priority}.
+    */
+   @NonNull
+   public Scheduler get(@NonNull Priority priority) {
+      return mLanes.get(checkNotNull(priority));
+   }
+
+   /**
+    * Returns how work in the lane of {@code priority} has been waiting for a thread.
+    */
+   @NonNull
+   public LaneStats getStats(@NonNull Priority priority) {
+      return mLanes.get(checkNotNull(priority)).getStats();
+   }
+
+   @VisibleForTesting
+   void shutdown() {
+      for (Lane lane : mLanes.values()) {
+         lane.mExecutor.shutdownNow();
+      }
+      mTimer.shutdownNow();
+   }
+
+   /**
+    * Queue depth and wait times of a lane at one point in time.
+    */
+   public static final class LaneStats {
+
+      private final int mQueueDepth;
+
+      private final long mStartedCount;
+
+      private final long mTotalWaitNanos;
+
+      private final long mMaxWaitNanos;
+
+      LaneStats(int queueDepth, long startedCount, long totalWaitNanos, long maxWaitNanos) {
+         mQueueDepth = queueDepth;
+         mStartedCount = startedCount;
+         mTotalWaitNanos = totalWaitNanos;
+         mMaxWaitNanos = maxWaitNanos;
+      }
+
+      /**
+       * Number of actions due that are waiting for a thread.
+       */
+      public int getQueueDepth() {
+         return mQueueDepth;
+      }
+
+      /**
+       * Number of actions that got a thread so far.
+       */
+      public long getStartedCount() {
+         return mStartedCount;
+      }
+
+      public long getAverageWaitMillis() {
+         return mStartedCount == 0
+               ? 0 : TimeUnit.NANOSECONDS.toMillis(mTotalWaitNanos / mStartedCount);
+      }
+
+      public long getMaxWaitMillis() {
+         return TimeUnit.NANOSECONDS.toMillis(mMaxWaitNanos);
+      }
+
+      @Override
+      public String toString() {
+         return "LaneStats{queueDepth=" + mQueueDepth + ", started=" + mStartedCount
+               + ", averageWaitMillis=" + getAverageWaitMillis()
+               + ", maxWaitMillis=" + getMaxWaitMillis() + "}";
+      }
+   }
+
+   private final class Lane extends Scheduler {
+
+      private final ThreadPoolExecutor mExecutor;
+
+      private final AtomicInteger mQueueDepth = new AtomicInteger();
+
+      private final AtomicLong mStartedCount = new AtomicLong();
+
+      private final AtomicLong mTotalWaitNanos = new AtomicLong();
+
+      private final AtomicLong mMaxWaitNanos = new AtomicLong();
+
+      Lane(Priority priority) {
+         mExecutor = new ThreadPoolExecutor(priority.mThreads, priority.mThreads,
+               KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+               new LaneThreadFactory(priority.name().toLowerCase(Locale.US), priority.mThreadPriority));
+         mExecutor.allowCoreThreadTimeOut(true);
+      }
+
+      @Override
+      public Worker createWorker() {
+         return new LaneWorker(this);
+      }
+
+      LaneStats getStats() {
+         return new LaneStats(mQueueDepth.get(), mStartedCount.get(), mTotalWaitNanos.get(),
+               mMaxWaitNanos.get());
+      }
+
+      void onQueued() {
+         mQueueDepth.incrementAndGet();
+      }
+
+      void onStarted(long queuedAtNanos) {
+         long waitNanos = System.nanoTime() - queuedAtNanos;
+         mQueueDepth.decrementAndGet();
+         mStartedCount.incrementAndGet();
+         mTotalWaitNanos.addAndGet(waitNanos);
+         long maxWaitNanos;
+         do {
+            maxWaitNanos = mMaxWaitNanos.get();
+         } while (waitNanos > maxWaitNanos && !mMaxWaitNanos.compareAndSet(maxWaitNanos, waitNanos));
+      }
+
+      void onDropped() {
+         mQueueDepth.decrementAndGet();
+      }
+   }
+
+   /**
+    * Runs the actions scheduled on it one at a time, in order, as Rx requires of a worker.
+    */
+   private final class LaneWorker extends Scheduler.Worker implements Runnable {
+
+      private final Lane mLane;
+
+      private final CompositeSubscription mSubscriptions = new CompositeSubscription();
+
+      private final Queue<QueuedAction> mQueue = new ConcurrentLinkedQueue<>();
+
+      // Number of actions queued, the worker runs on the lane while it isn't 0.
+      private final AtomicInteger mWip = new AtomicInteger();
+
+      private volatile Future<?> mRun;
+
+      // Lane thread running the actions, while it runs them.
+      private volatile Thread mRunner;
+
+      LaneWorker(Lane lane) {
+         mLane = lane;
+      }
+
+      @Override
+      public Subscription schedule(Action0 action) {
+         if (isUnsubscribed()) {
+            return Subscriptions.unsubscribed();
+         }
+         QueuedAction queuedAction = new QueuedAction(action);
+         mSubscriptions.add(queuedAction);
+         enqueue(queuedAction);
+         return queuedAction;
+      }
+
+      @Override
+      public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+         if (delayTime <= 0) {
+            return schedule(action);
+         }
+         if (isUnsubscribed()) {
+            return Subscriptions.unsubscribed();
+         }
+         final QueuedAction queuedAction = new QueuedAction(action);
+         mSubscriptions.add(queuedAction);
+         queuedAction.setDelayed(mTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+               enqueue(queuedAction);
+            }
+         }, delayTime, unit));
+         // Cancels the timer, or the action if it is queued already, and forgets it either way.
+         return Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+               mSubscriptions.remove(queuedAction);
+            }
+         });
+      }
+
+      private void enqueue(QueuedAction queuedAction) {
+         if (queuedAction.isUnsubscribed()) {
+            // Cancelled while it wasn't due yet.
+            return;
+         }
+         queuedAction.mQueuedAtNanos = System.nanoTime();
+         mQueue.offer(queuedAction);
+         mLane.onQueued();
+         if (mWip.getAndIncrement() == 0) {
+            mRun = mLane.mExecutor.submit(this);
+         }
+      }
+
+      @Override
+      public void run() {
+         mRunner = Thread.currentThread();
+         try {
+            runQueuedActions();
+         } finally {
+            mRunner = null;
+         }
+      }
+
+      private void runQueuedActions() {
+         do {
+            QueuedAction queuedAction = mQueue.poll();
+            if (queuedAction == null) {
+               // Taken by unsubscribe().
+               return;
+            }
+            if (queuedAction.isUnsubscribed()) {
+               mLane.onDropped();
+            } else {
+               mLane.onStarted(queuedAction.mQueuedAtNanos);
+               try {
+                  queuedAction.run();
+               } catch (Throwable e) {
+                  RxJavaHooks.onError(e);
+               }
+            }
+            mSubscriptions.remove(queuedAction);
+         } while (mWip.decrementAndGet() > 0 && !isUnsubscribed());
+      }
+
+      @Override
+      public void unsubscribe() {
+         mSubscriptions.unsubscribe();
+         // Interrupts the thread if an action is running, unless the action is unsubscribing its
+         // own worker: the rest of it, and whatever runs next on the thread, would see the
+         // interrupt.
+         Future<?> run = mRun;
+         if (run != null) {
+            run.cancel(Thread.currentThread() != mRunner);
+         }
+         // Actions that will never run no longer count as waiting.
+         while (mQueue.poll() != null) {
+            mLane.onDropped();
+         }
+      }
+
+      @Override
+      public boolean isUnsubscribed() {
+         return mSubscriptions.isUnsubscribed();
+      }
+   }
+
+   private static final class QueuedAction implements Subscription {
+
+      private final Action0 mAction;
+
+      // Set before the action is queued, and read once it is taken from the queue.
+      private long mQueuedAtNanos;
+
+      private volatile boolean mUnsubscribed;
+
+      // Holds the action until it is due, if it was scheduled with a delay.
+      private volatile Future<?> mDelayed;
+
+      QueuedAction(Action0 action) {
+         mAction = action;
+      }
+
+      void run() {
+         if (!mUnsubscribed) {
+            mAction.call();
+         }
+      }
+
+      void setDelayed(Future<?> delayed) {
+         mDelayed = delayed;
+         if (mUnsubscribed) {
+            delayed.cancel(false);
+         }
+      }
+
+      @Override
+      public void unsubscribe() {
+         mUnsubscribed = true;
+         Future<?> delayed = mDelayed;
+         if (delayed != null) {
+            delayed.cancel(false);
+         }
+      }
+
+      @Override
+      public boolean isUnsubscribed() {
+         return mUnsubscribed;
+      }
+   }
+
+   private static final class LaneThreadFactory implements ThreadFactory {
+
+      private final String mName;
+
+      private final int mPriority;
+
+      private final AtomicInteger mCount = new AtomicInteger();
+
+      LaneThreadFactory(String name, int priority) {
+         mName = name;
+         mPriority = priority;
+      }
+
+      @Override
+      public Thread newThread(@NonNull Runnable runnable) {
+         Thread thread = new Thread(runnable, "tasks-" + mName + "-" + mCount.incrementAndGet());
+         thread.setPriority(mPriority);
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+}
@@ -1,17 +1,54 @@
 package com.example.android.architecture.blueprints.todoapp;
 
+import com.example.android.architecture.blueprints.todoapp.util.MetricsRegistry;
+import com.example.android.architecture.blueprints.todoapp.util.ThreadChecks;
+
+import rx.Notification;
 import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
 import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subjects.AsyncSubject;
+import rx.subscriptions.CompositeSubscription;
 import rx.subscriptions.Subscriptions;
 
 public abstract class UseCaseRx<R extends UseCaseRx.RequestValues> {
 
+   /**
+    * How an execution of a use case relates to the executions of the same use case still in
+    * flight.
+    */
+   public enum ExecutionPolicy {
+      /**
+       * Executions run independently of each other.
+       */
+      PARALLEL,
+      /**
+       * An execution starts once the previous ones have finished, in the order they were made.
+       */
+      QUEUE,
+      /**
+       * An execution cancels the ones in flight, interrupting the threads they run on, so only
+       * the latest one delivers results.
+       */
+      LATEST_WINS
+   }
+
    private final Scheduler threadExecutor;
    private final Scheduler postExecutionThread;
 
-   private Subscription subscription = Subscriptions.empty();
+   // Executions in flight, guarded by this.
+   private final CompositeSubscription subscriptions = new CompositeSubscription();
+
+   // Completes when the last queued execution is done, guarded by this.
+   private Observable<Object> queueTail = Observable.empty();
+
+   // Counts the calls to unsubscribe(), guarded by this.
+   private int queueGeneration;
 
    protected UseCaseRx(Scheduler threadExecutor,
                        Scheduler postExecutionThread) {
@@ -21,9 +58,31 @@ public abstract class UseCaseRx<R extends UseCaseRx.RequestValues> {
 
    /**
     * Builds an {@link rx.Observable} which will be used when executing the current {@link UseCaseRx}.
+    * <p>
+    * It is only called once the use case is subscribed to on the thread executor, but the
+    * returned observable must still do its work lazily, when subscribed to (see
+    * {@link Observable#fromCallable} and {@link Observable#create}), and never while it is being
+    * built.
     */
    protected abstract Observable buildUseCaseObservable(R requestValues);
 
+   /**
+    * Returns how the executions of this use case are scheduled relative to each other, which is
+    * {@link ExecutionPolicy#PARALLEL} unless overridden.
+    */
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.PARALLEL;
+   }
+
+   /**
+    * Returns the lane to run the execution for {@code requestValues} in when the thread executor
+    * is a {@link PriorityScheduler}, which is {@link PriorityScheduler.Priority#INTERACTIVE}
+    * unless overridden.
+    */
+   protected PriorityScheduler.Priority getPriority(R requestValues) {
+      return PriorityScheduler.Priority.INTERACTIVE;
+   }
+
    /**
     * Executes the current use case.
     *
@@ -31,21 +90,115 @@ public abstract class UseCaseRx<R extends UseCaseRx.RequestValues> {
     * with {@link #buildUseCaseObservable(R requestValues)}.
     */
    @SuppressWarnings("unchecked")
-   public void execute(R requestValues, Subscriber useCaseSubscriber) {
-      this.subscription = this.buildUseCaseObservable(requestValues)
-            .subscribeOn(threadExecutor)
-            .observeOn(postExecutionThread)
-            .subscribe(useCaseSubscriber);
+   public synchronized void execute(final R requestValues, final Subscriber useCaseSubscriber) {
+      Observable<Object> observable = Observable.defer(new Func0<Observable<Object>>() {
+               @Override
+               public Observable<Object> call() {
+                  ThreadChecks.checkNotOnMainThread(UseCaseRx.this.getClass().getSimpleName());
+                  return buildUseCaseObservable(requestValues);
+               }
+            })
+            .subscribeOn(getThreadExecutor(requestValues))
+            .observeOn(postExecutionThread);
 
+      switch (getExecutionPolicy()) {
+         case LATEST_WINS:
+            subscriptions.clear();
+            break;
+         case QUEUE:
+            observable = enqueue(observable);
+            break;
+         default:
+            break;
+      }
+
+      final MetricsRegistry.Execution execution = MetricsRegistry.getInstance()
+            .getUseCaseMetrics(getClass().getSimpleName()).startExecution();
+      final Subscription subscription = observable
+            .onErrorResumeNext(new Func1<Throwable, Observable<Object>>() {
+               @Override
+               public Observable<Object> call(Throwable throwable) {
+                  // A cancelled execution fails with the interruption, which nobody wants to see.
+                  return useCaseSubscriber.isUnsubscribed()
+                        ? Observable.never() : Observable.error(throwable);
+               }
+            })
+            .doOnEach(new Action1<Notification<Object>>() {
+               @Override
+               public void call(Notification<Object> notification) {
+                  switch (notification.getKind()) {
+                     case OnNext:
+                        execution.onNext();
+                        break;
+                     case OnCompleted:
+                        execution.onCompleted();
+                        break;
+                     default:
+                        execution.onError();
+                        break;
+                  }
+               }
+            })
+            .doOnUnsubscribe(new Action0() {
+               @Override
+               public void call() {
+                  execution.onUnsubscribe();
+               }
+            })
+            .subscribe(useCaseSubscriber);
+      subscriptions.add(subscription);
+      // Forgets the execution once it is done. Adding one that is already done is a no-op.
+      useCaseSubscriber.add(Subscriptions.create(new Action0() {
+         @Override
+         public void call() {
+            subscriptions.remove(subscription);
+         }
+      }));
    }
 
    /**
-    * Unsubscribes from current {@link rx.Subscription}.
+    * Cancels all the executions in flight, or waiting in the queue.
     */
    public void unsubscribe() {
-      if (!subscription.isUnsubscribed()) {
-         subscription.unsubscribe();
+      synchronized (this) {
+         // Cancelling an execution starts the one queued after it, which may not be cancelled
+         // yet: it must see that it was queued before and do nothing.
+         queueGeneration++;
       }
+      subscriptions.clear();
+   }
+
+   private Scheduler getThreadExecutor(R requestValues) {
+      if (threadExecutor instanceof PriorityScheduler) {
+         return ((PriorityScheduler) threadExecutor).get(getPriority(requestValues));
+      }
+      return threadExecutor;
+   }
+
+   // Must be called while holding this.
+   private Observable<Object> enqueue(final Observable<Object> observable) {
+      Observable<Object> previous = queueTail;
+      final AsyncSubject<Object> done = AsyncSubject.create();
+      final int generation = queueGeneration;
+      queueTail = done;
+      // Unsubscribing happens after completion and errors too.
+      return previous.ignoreElements()
+            .concatWith(Observable.defer(new Func0<Observable<Object>>() {
+               @Override
+               public Observable<Object> call() {
+                  return isCancelled(generation) ? Observable.empty() : observable;
+               }
+            }))
+            .doOnUnsubscribe(new Action0() {
+               @Override
+               public void call() {
+                  done.onCompleted();
+               }
+            });
+   }
+
+   private synchronized boolean isCancelled(int generation) {
+      return generation != queueGeneration;
    }
 
    /**
@@ -22,6 +22,8 @@ import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
+import java.util.concurrent.Callable;
+
 import rx.Observable;
 import rx.Scheduler;
 
@@ -41,8 +43,13 @@ public class GetTask extends UseCaseRx<GetTask.RequestValues> {
     }
 
     @Override
-    protected Observable<Task> buildUseCaseObservable(GetTask.RequestValues requestValues) {
-        return Observable.just(tasksRepository.getTask(requestValues.getTaskId()));
+    protected Observable<Task> buildUseCaseObservable(final GetTask.RequestValues requestValues) {
+        return Observable.fromCallable(new Callable<Task>() {
+            @Override
+            public Task call() throws Exception {
+                return tasksRepository.getTask(requestValues.getTaskId());
+            }
+        });
     }
 
     public static final class RequestValues extends UseCaseRx.RequestValues {
@@ -18,6 +18,7 @@ package com.example.android.architecture.blueprints.todoapp.addedittask.domain.u
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
@@ -42,6 +43,11 @@ public class SaveTask extends UseCaseRx<SaveTask.RequestValues> {
         this.tasksRepository = tasksRepository;
     }
 
+    @Override
+    protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+        return PriorityScheduler.Priority.USER_WRITE;
+    }
+
     @Override
     protected Observable buildUseCaseObservable(final RequestValues requestValues) {
         return Observable.create(new Observable.OnSubscribe<Object>() {
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * A data source that pushes the tasks to its subscribers whenever they change, so that screens
+ * stay up to date without reading the tasks again after each write.
+ */
+public interface ObservableTasksSource {
+
+    /**
+     * @return the current tasks, followed by the tasks each time they change. Never completes.
+     */
+    @NonNull
+    Observable<List<Task>> observeTasks();
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.example.android.architecture.blueprints.todoapp.util.ParallelListEvaluator;
+import com.google.common.base.Predicate;
+
+import java.util.List;
+
+/**
+ * Number of active and completed tasks.
+ */
+public final class TaskCounts {
+
+    private static final Predicate<Task> IS_COMPLETED = new Predicate<Task>() {
+        @Override
+        public boolean apply(Task task) {
+            return task.isCompleted();
+        }
+    };
+
+    private final int mActiveCount;
+
+    private final int mCompletedCount;
+
+    public TaskCounts(int activeCount, int completedCount) {
+        mActiveCount = activeCount;
+        mCompletedCount = completedCount;
+    }
+
+    /**
+     * Counts the tasks in {@code tasks} one by one.
+     */
+    @NonNull
+    public static TaskCounts of(@NonNull List<Task> tasks) {
+        int completedCount = ParallelListEvaluator.getInstance().count(tasks, IS_COMPLETED);
+        return new TaskCounts(tasks.size() - completedCount, completedCount);
+    }
+
+    public int getActiveCount() {
+        return mActiveCount;
+    }
+
+    public int getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    public int getTotalCount() {
+        return mActiveCount + mCompletedCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskCounts counts = (TaskCounts) o;
+        return mActiveCount == counts.mActiveCount && mCompletedCount == counts.mCompletedCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mActiveCount + mCompletedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskCounts{active=" + mActiveCount + ", completed=" + mCompletedCount + "}";
+    }
+}
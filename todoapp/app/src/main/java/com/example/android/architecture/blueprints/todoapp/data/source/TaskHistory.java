@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Number of tasks created and completed on each day of a range of days, and how long the tasks
+ * completed over the range took to complete.
+ * <p>
+ * Days are local days counted from the epoch, see {@link #toDay(long)}. Times to complete are
+ * counted in buckets whose bounds grow by a factor of about 1.4, from a minute to about a year,
+ * so the median is known to within that factor however long the tasks took.
+ */
+public final class TaskHistory {
+
+    public static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    /**
+     * Exclusive upper bounds of the time to complete buckets but the last one, which has none.
+     * The local data source writes them into its schema, they can't change without a migration.
+     */
+    private static final long[] LATENCY_BUCKET_BOUNDS = new long[39];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKET_BOUNDS.length; i++) {
+            LATENCY_BUCKET_BOUNDS[i] = Math.round(MINUTE_MILLIS * Math.pow(2, i / 2.0));
+        }
+    }
+
+    public static final int LATENCY_BUCKET_COUNT = LATENCY_BUCKET_BOUNDS.length + 1;
+
+    private final long mFirstDay;
+
+    private final int[] mCreatedCounts;
+
+    private final int[] mCompletedCounts;
+
+    private final int[] mLatencyCounts;
+
+    /**
+     * @param firstDay        first day of the range
+     * @param createdCounts   number of tasks created on each day of the range
+     * @param completedCounts number of tasks completed on each day of the range
+     * @param latencyCounts   number of tasks completed over the range in each time to complete
+     *                        bucket, see {@link #toLatencyBucket(long)}
+     */
+    public TaskHistory(long firstDay, @NonNull int[] createdCounts,
+                       @NonNull int[] completedCounts, @NonNull int[] latencyCounts) {
+        if (createdCounts.length != completedCounts.length
+                || latencyCounts.length != LATENCY_BUCKET_COUNT) {
+            throw new IllegalArgumentException("Mismatched counts");
+        }
+        mFirstDay = firstDay;
+        mCreatedCounts = createdCounts.clone();
+        mCompletedCounts = completedCounts.clone();
+        mLatencyCounts = latencyCounts.clone();
+    }
+
+    /**
+     * Builds the history of the days from {@code firstDay} to {@code lastDay} out of the
+     * timestamps of {@code tasks}, which only knows about the tasks that still exist.
+     */
+    @NonNull
+    public static TaskHistory of(@NonNull List<Task> tasks, long firstDay, long lastDay) {
+        int days = (int) (lastDay - firstDay + 1);
+        int[] createdCounts = new int[days];
+        int[] completedCounts = new int[days];
+        int[] latencyCounts = new int[LATENCY_BUCKET_COUNT];
+        for (Task task : tasks) {
+            if (task.getCreatedAt() == 0) {
+                continue;
+            }
+            long createdDay = toDay(task.getCreatedAt());
+            if (createdDay >= firstDay && createdDay <= lastDay) {
+                createdCounts[(int) (createdDay - firstDay)]++;
+            }
+            long completedDay = toDay(task.getCompletedAt());
+            if (task.getCompletedAt() > 0 && completedDay >= firstDay && completedDay <= lastDay) {
+                completedCounts[(int) (completedDay - firstDay)]++;
+                latencyCounts[toLatencyBucket(task.getCompletedAt() - task.getCreatedAt())]++;
+            }
+        }
+        return new TaskHistory(firstDay, createdCounts, completedCounts, latencyCounts);
+    }
+
+    /**
+     * Returns the day {@code timeMillis}, in milliseconds since the epoch, falls on in the default
+     * time zone, which is the number of days since the epoch of its local time taken as UTC. A
+     * user completing a task late in the evening expects it on that day, not on the next one.
+     * <p>
+     * The local data source keeps the days its tasks were written on, so they stay on those days
+     * if the time zone changes afterwards.
+     */
+    public static long toDay(long timeMillis) {
+        return (timeMillis + TimeZone.getDefault().getOffset(timeMillis)) / DAY_MILLIS;
+    }
+
+    /**
+     * Returns the bucket a task that took {@code latencyMillis} to complete is counted in.
+     */
+    public static int toLatencyBucket(long latencyMillis) {
+        for (int i = 0; i < LATENCY_BUCKET_BOUNDS.length; i++) {
+            if (latencyMillis < LATENCY_BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKET_BOUNDS.length;
+    }
+
+    /**
+     * Returns the exclusive upper bound of {@code bucket}, or {@link Long#MAX_VALUE} for the last
+     * one.
+     */
+    public static long getLatencyBucketBound(int bucket) {
+        return bucket < LATENCY_BUCKET_BOUNDS.length
+                ? LATENCY_BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+    }
+
+    public long getFirstDay() {
+        return mFirstDay;
+    }
+
+    public int getDayCount() {
+        return mCreatedCounts.length;
+    }
+
+    /**
+     * @param dayIndex index of the day in the range, 0 for the first one
+     */
+    public int getCreatedCount(int dayIndex) {
+        return mCreatedCounts[dayIndex];
+    }
+
+    /**
+     * @param dayIndex index of the day in the range, 0 for the first one
+     */
+    public int getCompletedCount(int dayIndex) {
+        return mCompletedCounts[dayIndex];
+    }
+
+    public int getTotalCreatedCount() {
+        return sum(mCreatedCounts);
+    }
+
+    public int getTotalCompletedCount() {
+        return sum(mCompletedCounts);
+    }
+
+    /**
+     * Returns the time the tasks completed over the range took to complete for one half of them
+     * or less, rounded up to the end of its bucket, or 0 if no task was completed. Tasks taking
+     * longer than the last bound are counted as taking that bound.
+     */
+    public long getMedianTimeToComplete() {
+        int count = sum(mLatencyCounts);
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (count + 1) / 2;
+        int seen = 0;
+        for (int i = 0; i < LATENCY_BUCKET_BOUNDS.length; i++) {
+            seen += mLatencyCounts[i];
+            if (seen >= rank) {
+                return LATENCY_BUCKET_BOUNDS[i];
+            }
+        }
+        return LATENCY_BUCKET_BOUNDS[LATENCY_BUCKET_BOUNDS.length - 1];
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Positions of tasks keyed by their id, filled once and then only read.
+ * <p>
+ * Compact ids are kept in parallel arrays of their two halves with open addressing and linear
+ * probing, so a lookup neither allocates nor reads a string, and no entry object is kept per
+ * task. The few ids that aren't compact, see {@link TaskId#isCompact()}, go to a regular map.
+ */
+final class TaskPositions {
+
+   static final int NO_POSITION = -1;
+
+   private final long[] mMostSignificantBits;
+
+   private final long[] mLeastSignificantBits;
+
+   // Position plus one of the task in each slot, 0 for an empty slot.
+   private final int[] mPositions;
+
+   private final Map<TaskId, Integer> mOtherPositions = new HashMap<>();
+
+   /**
+    * @param capacity number of tasks that will be put
+    */
+   TaskPositions(int capacity) {
+      // At most half full, so probe sequences stay short.
+      int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) * 2;
+      mMostSignificantBits = new long[slots];
+      mLeastSignificantBits = new long[slots];
+      mPositions = new int[slots];
+   }
+
+   /**
+    * Must not be called once the positions are shared with other threads, nor more times than
+    * the capacity, nor twice with the same id.
+    */
+   void put(@NonNull TaskId id, int position) {
+      if (!id.isCompact()) {
+         mOtherPositions.put(id, position);
+         return;
+      }
+      int slot = findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      mMostSignificantBits[slot] = id.getMostSignificantBits();
+      mLeastSignificantBits[slot] = id.getLeastSignificantBits();
+      mPositions[slot] = position + 1;
+   }
+
+   /**
+    * Returns the position of the task with {@code id}, or {@link #NO_POSITION}.
+    */
+   int get(@NonNull TaskId id) {
+      if (!id.isCompact()) {
+         Integer position = mOtherPositions.get(id);
+         return position == null ? NO_POSITION : position;
+      }
+      return mPositions[findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits())] - 1;
+   }
+
+   /**
+    * Returns the slot holding the given id, or the empty slot it would be put in.
+    */
+   private int findSlot(long mostSignificantBits, long leastSignificantBits) {
+      int mask = mPositions.length - 1;
+      long bits = mostSignificantBits ^ leastSignificantBits;
+      int slot = ((int) (bits ^ (bits >>> 32)) * 0x9E3779B9) & mask;
+      while (mPositions[slot] != 0 && (mMostSignificantBits[slot] != mostSignificantBits
+            || mLeastSignificantBits[slot] != leastSignificantBits)) {
+         slot = (slot + 1) & mask;
+      }
+      return slot;
+   }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * A data source that can stream its tasks as it reads them, instead of loading all of them before
+ * returning any, so that the first ones can be shown while the rest are still being read.
+ */
+public interface TasksChunkSource {
+
+    /**
+     * Reads the tasks lazily when subscribed to, and stops reading once unsubscribed from.
+     *
+     * @param chunkSize the maximum number of tasks per chunk, which bounds the number of tasks
+     *                  held by the data source at once
+     * @return the tasks in the order {@link TasksDataSource#getTasks()} returns them, split in
+     * new lists of at most {@code chunkSize} tasks
+     */
+    @NonNull
+    Observable<List<Task>> getTasksInChunks(int chunkSize);
+}
@@ -20,7 +20,8 @@ import android.support.annotation.NonNull;
 
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Main entry point for accessing tasks data.
@@ -32,12 +33,14 @@ import java.util.ArrayList;
  */
 public interface TasksDataSource {
 
-    ArrayList<Task> getTasks();
+    List<Task> getTasks();
 
     Task getTask(@NonNull String taskId);
 
     void saveTask(@NonNull Task task);
 
+    void saveTasks(@NonNull Collection<Task> tasks);
+
     void completeTask(@NonNull Task task);
 
     void completeTask(@NonNull String taskId);
@@ -46,6 +49,16 @@ public interface TasksDataSource {
 
     void activateTask(@NonNull String taskId);
 
+    /**
+     * Marks all the tasks with the given ids as completed at once. Unknown ids are ignored.
+     */
+    void completeTasks(@NonNull Collection<String> taskIds);
+
+    /**
+     * Marks all the tasks with the given ids as active at once. Unknown ids are ignored.
+     */
+    void activateTasks(@NonNull Collection<String> taskIds);
+
     void clearCompletedTasks();
 
     void refreshTasks();
@@ -53,4 +66,9 @@ public interface TasksDataSource {
     void deleteAllTasks();
 
     void deleteTask(@NonNull String taskId);
+
+    /**
+     * Deletes all the tasks with the given ids at once. Unknown ids are ignored.
+     */
+    void deleteTasks(@NonNull Collection<String> taskIds);
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable set of changes returned by {@link TasksDeltaSource#getTasksChangedSince(long)}.
+ */
+public final class TasksDelta {
+
+    private final long mSinceWatermark;
+
+    private final long mWatermark;
+
+    @NonNull
+    private final List<Task> mChangedTasks;
+
+    @NonNull
+    private final List<String> mDeletedTaskIds;
+
+    /**
+     * @param sinceWatermark the watermark the changes were requested for
+     * @param watermark      the watermark to ask for next time
+     * @param changedTasks   tasks created or modified after {@code sinceWatermark}
+     * @param deletedTaskIds tombstones: ids of the tasks deleted after {@code sinceWatermark}
+     */
+    public TasksDelta(long sinceWatermark, long watermark, @NonNull List<Task> changedTasks,
+                      @NonNull List<String> deletedTaskIds) {
+        mSinceWatermark = sinceWatermark;
+        mWatermark = watermark;
+        mChangedTasks = Collections.unmodifiableList(checkNotNull(changedTasks));
+        mDeletedTaskIds = Collections.unmodifiableList(checkNotNull(deletedTaskIds));
+    }
+
+    public long getSinceWatermark() {
+        return mSinceWatermark;
+    }
+
+    public long getWatermark() {
+        return mWatermark;
+    }
+
+    /**
+     * True if this holds every task rather than the changes to a previous sync, in which case
+     * there are no tombstones and the tasks replace whatever was synced before.
+     */
+    public boolean isFullSync() {
+        return mSinceWatermark == 0;
+    }
+
+    @NonNull
+    public List<Task> getChangedTasks() {
+        return mChangedTasks;
+    }
+
+    @NonNull
+    public List<String> getDeletedTaskIds() {
+        return mDeletedTaskIds;
+    }
+
+    public boolean isEmpty() {
+        return mChangedTasks.isEmpty() && mDeletedTaskIds.isEmpty();
+    }
+}
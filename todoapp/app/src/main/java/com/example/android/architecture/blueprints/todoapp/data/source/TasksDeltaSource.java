@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A data source that can tell what changed since a previous sync, so that a refresh only
+ * transfers the tasks that were modified or deleted instead of the whole set.
+ * <p>
+ * Every modification is stamped with a version taken from a counter that only grows. The highest
+ * version handed out so far is the watermark: asking for the changes since a watermark returns
+ * every task modified after it, and a tombstone for every task deleted after it.
+ */
+public interface TasksDeltaSource {
+
+    /**
+     * @param watermark the watermark of the last sync, or 0 to get all the tasks
+     * @return the changes made after {@code watermark}, never null
+     */
+    @NonNull
+    TasksDelta getTasksChangedSince(long watermark);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A data source that keeps rollups of when its tasks were created and completed, including the
+ * tasks deleted since, so that their history can be read without reading the tasks.
+ */
+public interface TasksHistorySource {
+
+    /**
+     * @return the history of the days from {@code firstDay} to {@code lastDay}, both included,
+     * see {@link TaskHistory#toDay(long)}
+     */
+    @NonNull
+    TaskHistory getTaskHistory(long firstDay, long lastDay);
+}
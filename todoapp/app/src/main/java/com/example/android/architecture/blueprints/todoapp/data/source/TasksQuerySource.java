@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+/**
+ * A data source that can select tasks by itself, so that the tasks a {@link TaskQuery} doesn't
+ * match are never read.
+ */
+public interface TasksQuerySource {
+
+    /**
+     * @return the tasks matching {@code query}, in the order {@link TasksDataSource#getTasks()}
+     * returns them
+     */
+    @NonNull
+    List<Task> getTasks(@NonNull TaskQuery query);
+}
@@ -18,16 +18,28 @@ package com.example.android.architecture.blueprints.todoapp.data.source;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.annotation.VisibleForTesting;
 
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.TasksOutbox;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+import com.example.android.architecture.blueprints.todoapp.util.SingleFlight;
+import com.example.android.architecture.blueprints.todoapp.util.ThreadChecks;
+import com.google.common.base.Supplier;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subjects.BehaviorSubject;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -35,32 +47,94 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * For simplicity, this implements a dumb synchronisation between locally persisted data and data
  * obtained from the server, by using the remote data source only if the local database doesn't
- * exist or is empty.
+ * exist or is empty. When the remote data source is a {@link TasksDeltaSource}, a refresh only
+ * fetches and applies what changed since the previous one.
+ * <p>
+ * Writes go to the local data source first. With a {@link TasksOutbox} they then reach the remote
+ * data source in the background, otherwise they are sent right away.
+ * <p>
+ * The repository is safe to use from several threads. Readers never block: they get the current
+ * {@link TasksSnapshot} of the cache. Writers are serialized by a single lock and publish a new
+ * snapshot once the data sources have been updated, which {@link #observeTasks()} then pushes to
+ * its subscribers.
+ * <p>
+ * Lists of tasks, and so the cache, may hold {@link Task#isSummary() summaries} when the local
+ * data source cuts long descriptions short. {@link #getTask(String)} reads those again in full.
  */
-public class TasksRepository implements TasksDataSource {
+public class TasksRepository implements TasksDataSource, ObservableTasksSource {
 
    private static TasksRepository INSTANCE = null;
 
+   /**
+    * Number of tasks per chunk when loading them from a {@link TasksChunkSource}, about a screen
+    * worth of them.
+    */
+   private static final int LOAD_CHUNK_SIZE = 50;
+
    private final TasksDataSource mTasksRemoteDataSource;
 
    private final TasksDataSource mTasksLocalDataSource;
 
+   @Nullable
+   private final TasksOutbox mOutbox;
+
    /**
-    * This variable has package local visibility so it can be accessed from tests.
+    * Serializes writers. Readers never take it.
     */
-   Map<String, Task> mCachedTasks;
+   private final Object mWriteLock = new Object();
+
+   /**
+    * Snapshot of the cached tasks, shared with readers as is. Writers never modify it, they publish
+    * a new snapshot instead. Null until the cache is first filled. This variable has package local
+    * visibility so it can be accessed from tests.
+    */
+   volatile TasksSnapshot mCachedTasks;
 
    /**
     * Marks the cache as invalid, to force an update the next time data is requested. This variable
     * has package local visibility so it can be accessed from tests.
     */
-   boolean mCacheIsDirty = false;
+   volatile boolean mCacheIsDirty = false;
+
+   /**
+    * Number of writes so far, only incremented while holding {@link #mWriteLock}. A load compares
+    * it before and after reading the data sources to find out whether a write raced with it.
+    */
+   private volatile long mWriteCount;
+
+   /**
+    * Watermark of the remote data the cache was last synced with, 0 if the next sync has to fetch
+    * everything. Only written while holding {@link #mWriteLock}.
+    */
+   private volatile long mSyncWatermark;
+
+   /**
+    * Shares a remote refresh between the callers that saw the same {@link #mWriteCount}. Callers
+    * that made a write in between start their own, so they always read it back.
+    */
+   private final SingleFlight<Long, List<Task>> mTasksFetches = new SingleFlight<>();
+
+   /**
+    * Shares the remote lookup of a task between the callers asking for it at the same time.
+    */
+   private final SingleFlight<String, Task> mTaskFetches = new SingleFlight<>();
+
+   /**
+    * Emits each new snapshot of the cache to {@link #observeTasks()} subscribers, guarded by
+    * itself.
+    */
+   private final BehaviorSubject<List<Task>> mSnapshots = BehaviorSubject.create();
+
+   // Last snapshot emitted by mSnapshots, guarded by it.
+   private TasksSnapshot mPublishedTasks;
 
    // Prevent direct instantiation.
    private TasksRepository(@NonNull TasksDataSource tasksRemoteDataSource,
-                           @NonNull TasksDataSource tasksLocalDataSource) {
+                           @NonNull TasksDataSource tasksLocalDataSource,
+                           @Nullable TasksOutbox outbox) {
       mTasksRemoteDataSource = checkNotNull(tasksRemoteDataSource);
       mTasksLocalDataSource = checkNotNull(tasksLocalDataSource);
+      mOutbox = outbox;
    }
 
    /**
@@ -72,8 +146,23 @@ public class TasksRepository implements TasksDataSource {
     */
    public static TasksRepository getInstance(TasksDataSource tasksRemoteDataSource,
                                              TasksDataSource tasksLocalDataSource) {
+      return getInstance(tasksRemoteDataSource, tasksLocalDataSource, null);
+   }
+
+   /**
+    * Returns the single instance of this class, creating it if necessary.
+    *
+    * @param tasksRemoteDataSource the backend data source
+    * @param tasksLocalDataSource  the device storage data source
+    * @param outbox                queue the writes are sent to the backend through, or null to
+    *                              send them synchronously
+    * @return the {@link TasksRepository} instance
+    */
+   public static synchronized TasksRepository getInstance(TasksDataSource tasksRemoteDataSource,
+                                                          TasksDataSource tasksLocalDataSource,
+                                                          @Nullable TasksOutbox outbox) {
       if (INSTANCE == null) {
-         INSTANCE = new TasksRepository(tasksRemoteDataSource, tasksLocalDataSource);
+         INSTANCE = new TasksRepository(tasksRemoteDataSource, tasksLocalDataSource, outbox);
       }
       return INSTANCE;
    }
@@ -82,7 +171,7 @@ public class TasksRepository implements TasksDataSource {
     * Used to force {@link #getInstance(TasksDataSource, TasksDataSource)} to create a new instance
     * next time it's called.
     */
-   public static void destroyInstance() {
+   public static synchronized void destroyInstance() {
       INSTANCE = null;
    }
 
@@ -92,121 +181,553 @@ public class TasksRepository implements TasksDataSource {
     * <p>
     */
    @Override
-   public ArrayList<Task> getTasks() {
+   public List<Task> getTasks() {
 
       // Respond immediately with cache if available and not dirty
-      if (mCachedTasks != null && !mCacheIsDirty) {
-         return new ArrayList<>(mCachedTasks.values());
+      TasksSnapshot cachedTasks = mCachedTasks;
+      if (cachedTasks != null && !mCacheIsDirty) {
+         return cachedTasks;
       }
 
+      long writeCount = mWriteCount;
+      List<Task> tasks;
       if (mCacheIsDirty) {
          // If the cache is dirty we need to fetch new data from the network.
-         return getTasksFromRemoteDataSourceAndRefresh();
+         tasks = getTasksFromRemoteDataSourceOnce(writeCount);
       } else {
-         ArrayList<Task> tasks = mTasksLocalDataSource.getTasks();
-         if(tasks.isEmpty())
-            return getTasksFromRemoteDataSourceAndRefresh();
-         else
-            return tasks;
+         List<Task> localTasks = mTasksLocalDataSource.getTasks();
+         if (localTasks.isEmpty()) {
+            tasks = getTasksFromRemoteDataSourceOnce(writeCount);
+         } else {
+            tasks = refreshCacheFromLocalDataSource(localTasks, writeCount);
+         }
       }
+      publishCachedTasks();
+      return tasks;
    }
 
+   /**
+    * Returns the tasks matching {@code query}.
+    * <p>
+    * They are selected from the cache when it is valid. Otherwise, if the local data source is a
+    * {@link TasksQuerySource}, the query is run there and only the matching tasks are read. Those
+    * are not cached, since the cache holds every task. When the local data source has no matching
+    * task, which may be because it has no task at all, all the tasks are loaded as by
+    * {@link #getTasks()}.
+    */
+   @NonNull
+   public List<Task> getTasks(@NonNull TaskQuery query) {
+      checkNotNull(query);
+      if (query.isAll() || mCachedTasks != null || mCacheIsDirty
+            || !(mTasksLocalDataSource instanceof TasksQuerySource)) {
+         return query.filter(getTasks());
+      }
+
+      List<Task> tasks = ((TasksQuerySource) mTasksLocalDataSource).getTasks(query);
+      if (!tasks.isEmpty()) {
+         return Collections.unmodifiableList(tasks);
+      }
+      return query.filter(getTasks());
+   }
+
+   /**
+    * Returns the number of active and completed tasks. The cache keeps them up to date on every
+    * write, so no task is read unless the cache has to be loaded first.
+    * <p>
+    * When nothing is cached yet the tasks are counted by the local data source if it is a
+    * {@link TasksCountSource}, or by the remote one if the local data source has no task at all.
+    * The cache is then left cold, only the tasks themselves are worth caching.
+    */
+   @NonNull
+   public TaskCounts getTaskCounts() {
+      TasksSnapshot cachedTasks = mCachedTasks;
+      if (cachedTasks != null && !mCacheIsDirty) {
+         return cachedTasks.getCounts();
+      }
+      if (cachedTasks == null && !mCacheIsDirty) {
+         TaskCounts counts = countTasksInDataSources();
+         if (counts != null) {
+            return counts;
+         }
+      }
+      List<Task> tasks = getTasks();
+      // Not a snapshot when a write raced with the load.
+      return tasks instanceof TasksSnapshot
+            ? ((TasksSnapshot) tasks).getCounts() : TaskCounts.of(tasks);
+   }
+
+   /**
+    * Returns the history of the days from {@code firstDay} to {@code lastDay}, see
+    * {@link TaskHistory#toDay(long)}.
+    * <p>
+    * Writes reach the local data source before the cache, so when it is a
+    * {@link TasksHistorySource} its rollups are read. Otherwise the history is rebuilt from the
+    * timestamps of the tasks, which leaves out the deleted ones.
+    */
+   @NonNull
+   public TaskHistory getTaskHistory(long firstDay, long lastDay) {
+      if (lastDay < firstDay) {
+         throw new IllegalArgumentException("No day from " + firstDay + " to " + lastDay);
+      }
+      if (mTasksLocalDataSource instanceof TasksHistorySource) {
+         return ((TasksHistorySource) mTasksLocalDataSource).getTaskHistory(firstDay, lastDay);
+      }
+      return TaskHistory.of(getTasks(), firstDay, lastDay);
+   }
+
+   /**
+    * Returns null when the tasks have to be loaded to be counted.
+    */
+   @Nullable
+   private TaskCounts countTasksInDataSources() {
+      if (!(mTasksLocalDataSource instanceof TasksCountSource)) {
+         return null;
+      }
+      TaskCounts counts = ((TasksCountSource) mTasksLocalDataSource).countTasksByState();
+      if (counts.getTotalCount() > 0) {
+         return counts;
+      }
+      // Nothing local, the remote data source has them all unless it is missing local writes.
+      if (mTasksRemoteDataSource instanceof TasksCountSource
+            && (mOutbox == null || mOutbox.flush())) {
+         return ((TasksCountSource) mTasksRemoteDataSource).countTasksByState();
+      }
+      return null;
+   }
+
+   /**
+    * Returns a page of the tasks matching {@code query}, best matches first.
+    * <p>
+    * Writes reach the local data source before the cache, so when it is a
+    * {@link TasksSearchSource} its index is searched. Otherwise every task is ranked in memory.
+    *
+    * @param offset number of matching tasks to skip
+    * @param limit  maximum number of tasks to return
+    */
+   @NonNull
+   public List<Task> searchTasks(@NonNull TaskSearchQuery query, int offset, int limit) {
+      checkNotNull(query);
+      if (query.isEmpty() || limit <= 0) {
+         return Collections.emptyList();
+      }
+      if (mTasksLocalDataSource instanceof TasksSearchSource) {
+         return Collections.unmodifiableList(
+               ((TasksSearchSource) mTasksLocalDataSource).searchTasks(query, offset, limit));
+      }
+
+      List<Task> titleMatches = new ArrayList<>();
+      List<Task> descriptionMatches = new ArrayList<>();
+      for (Task task : getTasks()) {
+         int rank = query.rank(task);
+         if (rank == TaskSearchQuery.RANK_TITLE) {
+            titleMatches.add(task);
+         } else if (rank == TaskSearchQuery.RANK_DESCRIPTION) {
+            descriptionMatches.add(task);
+         }
+      }
+      titleMatches.addAll(descriptionMatches);
+      int from = Math.min(Math.max(offset, 0), titleMatches.size());
+      int to = Math.min(from + limit, titleMatches.size());
+      return Collections.unmodifiableList(new ArrayList<>(titleMatches.subList(from, to)));
+   }
+
+   /**
+    * Returns the tasks, then the tasks again every time they change until unsubscribed from.
+    * <p>
+    * The cached tasks are emitted first, even if the cache is dirty: it is up to the caller to
+    * {@link #refreshTasks()} and read them, and the refreshed tasks are then emitted here too. If
+    * nothing is cached yet the local tasks are loaded into the cache on the subscribing thread,
+    * which doesn't make a dirty cache valid, so the network is never waited for while there is
+    * something to show. When they are loaded from a {@link TasksChunkSource} and there are more
+    * than one chunk of them, the first chunk is emitted on its own as soon as the second one is
+    * read. When several writes happen at once only the latest tasks may be emitted.
+    */
+   @NonNull
+   @Override
+   public Observable<List<Task>> observeTasks() {
+      return observeTasks(TaskQuery.ALL);
+   }
+
+   /**
+    * Same as {@link #observeTasks()}, but only emits the tasks matching {@code query}. A first
+    * chunk without any matching task is not emitted, since the tasks still to be read may match.
+    */
+   @NonNull
+   public Observable<List<Task>> observeTasks(@NonNull final TaskQuery query) {
+      checkNotNull(query);
+      return Observable.defer(new Func0<Observable<List<Task>>>() {
+         @Override
+         public Observable<List<Task>> call() {
+            List<Task> tasks = mCachedTasks;
+            if (tasks != null) {
+               return filter(observeTasksFrom(tasks), query);
+            }
+            if (mTasksLocalDataSource instanceof TasksChunkSource) {
+               return loadTasksInChunks(query);
+            }
+            long writeCount = mWriteCount;
+            return filter(observeLocalTasks(mTasksLocalDataSource.getTasks(), writeCount), query);
+         }
+      });
+   }
+
+   /**
+    * Same as loading all the local tasks for {@link #observeTasks(TaskQuery)}, except that the
+    * first chunk is emitted before the others are read. It is held back until the second chunk
+    * comes: if there is none, all the tasks are emitted right away anyway.
+    */
+   private Observable<List<Task>> loadTasksInChunks(final TaskQuery query) {
+      final long writeCount = mWriteCount;
+      final List<Task> localTasks = new ArrayList<>();
+      return ((TasksChunkSource) mTasksLocalDataSource).getTasksInChunks(LOAD_CHUNK_SIZE)
+            .concatMap(new Func1<List<Task>, Observable<List<Task>>>() {
+               private int mChunkCount;
+
+               @Override
+               public Observable<List<Task>> call(List<Task> chunk) {
+                  mChunkCount++;
+                  List<Task> firstChunk = mChunkCount == 2 ? query.filter(localTasks) : null;
+                  if (firstChunk != null) {
+                     // The chunk added below must not show through a view of the first one.
+                     firstChunk = Collections.unmodifiableList(new ArrayList<>(firstChunk));
+                  }
+                  localTasks.addAll(chunk);
+                  if (firstChunk == null || firstChunk.isEmpty()) {
+                     return Observable.empty();
+                  }
+                  return Observable.just(firstChunk);
+               }
+            })
+            .concatWith(Observable.defer(new Func0<Observable<List<Task>>>() {
+               @Override
+               public Observable<List<Task>> call() {
+                  return filter(observeLocalTasks(localTasks, writeCount), query);
+               }
+            }));
+   }
+
+   /**
+    * Caches {@code localTasks}, read while nothing was cached, and emits them, then every new
+    * snapshot. Without local tasks there is nothing to show before the remote data source
+    * answers, so they are loaded as by {@link #getTasks()}, which joins a refresh in flight.
+    *
+    * @param writeCount value of {@link #mWriteCount} before the local data source was read
+    */
+   private Observable<List<Task>> observeLocalTasks(List<Task> localTasks, long writeCount) {
+      if (localTasks.isEmpty()) {
+         return observeTasksFrom(getTasks());
+      }
+      List<Task> tasks = refreshCacheFromLocalDataSource(localTasks, writeCount);
+      publishCachedTasks();
+      return observeTasksFrom(tasks);
+   }
+
+   /**
+    * Returns {@code tasks} with only the tasks matching {@code query} in each list emitted.
+    */
+   private static Observable<List<Task>> filter(Observable<List<Task>> tasks,
+                                                final TaskQuery query) {
+      if (query.isAll()) {
+         return tasks;
+      }
+      return tasks.map(new Func1<List<Task>, List<Task>>() {
+         @Override
+         public List<Task> call(List<Task> allTasks) {
+            return query.filter(allTasks);
+         }
+      });
+   }
+
+   /**
+    * Emits {@code tasks}, then every new snapshot of the cache.
+    */
+   private Observable<List<Task>> observeTasksFrom(List<Task> tasks) {
+      return mSnapshots.startWith(tasks).filter(new Func1<List<Task>, Boolean>() {
+         // Snapshots are immutable, so a new one means a change.
+         private List<Task> mLastTasks;
+
+         @Override
+         public Boolean call(List<Task> snapshot) {
+            boolean changed = snapshot != mLastTasks;
+            mLastTasks = snapshot;
+            return changed;
+         }
+      });
+   }
+
+   /**
+    * Returns the tasks that can be read without going to the network: the cached tasks, even if
+    * the cache is dirty, or else the tasks in the local data source. Used to show something right
+    * away while {@link #getTasks()} revalidates them.
+    *
+    * @return the tasks, or null if neither the cache nor the local data source has any
+    */
+   @Nullable
+   public List<Task> getCachedOrLocalTasks() {
+      TasksSnapshot cachedTasks = mCachedTasks;
+      if (cachedTasks != null) {
+         return cachedTasks;
+      }
+
+      List<Task> tasks = mTasksLocalDataSource.getTasks();
+      // Not installed in the cache: a remote refresh is normally on its way.
+      return tasks.isEmpty() ? null : Collections.unmodifiableList(tasks);
+   }
 
    @Override
    public void saveTask(@NonNull final Task task) {
       checkNotNull(task);
-      mTasksRemoteDataSource.saveTask(task);
-      mTasksLocalDataSource.saveTask(task);
+      checkArgument(!task.isSummary(), "Saving a summary would cut the description short");
+      synchronized (mWriteLock) {
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.saveTask(task);
+            }
+         }, PendingMutation.save(task));
 
-      // Do in memory cache update to keep the app UI up to date
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withTask(task);
+         }
+         mWriteCount++;
       }
-      mCachedTasks.put(task.getId(), task);
+      publishCachedTasks();
    }
 
    @Override
-   public void completeTask(@NonNull final Task task) {
-      checkNotNull(task);
-      mTasksRemoteDataSource.completeTask(task);
-      mTasksLocalDataSource.completeTask(task);
+   public void saveTasks(@NonNull final Collection<Task> tasks) {
+      checkNotNull(tasks);
+      for (Task task : tasks) {
+         checkArgument(!task.isSummary(), "Saving a summary would cut the description short");
+      }
+      synchronized (mWriteLock) {
+         List<PendingMutation> mutations = new ArrayList<>(tasks.size());
+         for (Task task : tasks) {
+            mutations.add(PendingMutation.save(task));
+         }
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.saveTasks(tasks);
+            }
+         }, mutations);
 
-      Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withTasks(tasks);
+         }
+         mWriteCount++;
+      }
+      publishCachedTasks();
+   }
 
-      // Do in memory cache update to keep the app UI up to date
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
+   @Override
+   public void completeTask(@NonNull final Task task) {
+      checkNotNull(task);
+      if (task.isSummary()) {
+         // Sending it would overwrite the remote description with the start of it.
+         setCompleted(Collections.singletonList(task.getId()), true);
+         return;
       }
-      mCachedTasks.put(task.getId(), completedTask);
+      synchronized (mWriteLock) {
+         // A completed task keeps its completion time, as in the local data source. It is sent
+         // with it, so that the remote data source doesn't take the time the outbox drains at.
+         Task completedTask = task.getCompletedAt() > 0
+               ? task : task.withCompleted(true, System.currentTimeMillis());
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.completeTask(task);
+            }
+         }, PendingMutation.complete(completedTask));
 
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withTask(completedTask);
+         }
+         mWriteCount++;
+      }
+      publishCachedTasks();
    }
 
    @Override
    public void completeTask(@NonNull String taskId) {
       checkNotNull(taskId);
-      completeTask(getTaskWithId(taskId));
+      completeTask(TaskId.fromString(taskId));
+   }
+
+   /**
+    * Same as {@link #completeTask(String)}, without parsing the id, see {@link Task#getTaskId()}.
+    */
+   public void completeTask(@NonNull TaskId taskId) {
+      checkNotNull(taskId);
+      Task task = getTaskToUpdate(taskId);
+      // The task may have been deleted by another thread in the meantime.
+      if (task != null) {
+         completeTask(task);
+      }
    }
 
    @Override
    public void activateTask(@NonNull final Task task) {
       checkNotNull(task);
-      mTasksRemoteDataSource.activateTask(task);
-      mTasksLocalDataSource.activateTask(task);
-
-      Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
+      if (task.isSummary()) {
+         setCompleted(Collections.singletonList(task.getId()), false);
+         return;
+      }
+      synchronized (mWriteLock) {
+         Task activeTask = task.withCompleted(false, 0);
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.activateTask(task);
+            }
+         }, PendingMutation.activate(activeTask));
 
-      // Do in memory cache update to keep the app UI up to date
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withTask(activeTask);
+         }
+         mWriteCount++;
       }
-      mCachedTasks.put(task.getId(), activeTask);
+      publishCachedTasks();
    }
 
    @Override
    public void activateTask(@NonNull String taskId) {
       checkNotNull(taskId);
-      activateTask(getTaskWithId(taskId));
+      activateTask(TaskId.fromString(taskId));
+   }
+
+   /**
+    * Same as {@link #activateTask(String)}, without parsing the id, see {@link Task#getTaskId()}.
+    */
+   public void activateTask(@NonNull TaskId taskId) {
+      checkNotNull(taskId);
+      Task task = getTaskToUpdate(taskId);
+      // The task may have been deleted by another thread in the meantime.
+      if (task != null) {
+         activateTask(task);
+      }
    }
 
    @Override
-   public void clearCompletedTasks() {
-      mTasksRemoteDataSource.clearCompletedTasks();
-      mTasksLocalDataSource.clearCompletedTasks();
-
-      // Do in memory cache update to keep the app UI up to date
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
-      }
-      Iterator<Map.Entry<String, Task>> it = mCachedTasks.entrySet().iterator();
-      while (it.hasNext()) {
-         Map.Entry<String, Task> entry = it.next();
-         if (entry.getValue().isCompleted()) {
-            it.remove();
+   public void completeTasks(@NonNull Collection<String> taskIds) {
+      checkNotNull(taskIds);
+      setCompleted(taskIds, true);
+   }
+
+   @Override
+   public void activateTasks(@NonNull Collection<String> taskIds) {
+      checkNotNull(taskIds);
+      setCompleted(taskIds, false);
+   }
+
+   private void setCompleted(final Collection<String> taskIds, final boolean completed) {
+      if (taskIds.isEmpty()) {
+         return;
+      }
+      synchronized (mWriteLock) {
+         List<PendingMutation> mutations = new ArrayList<>(taskIds.size());
+         for (String taskId : taskIds) {
+            mutations.add(completed
+                  ? PendingMutation.complete(taskId) : PendingMutation.activate(taskId));
          }
+         write(new Runnable() {
+            @Override
+            public void run() {
+               if (completed) {
+                  mTasksLocalDataSource.completeTasks(taskIds);
+               } else {
+                  mTasksLocalDataSource.activateTasks(taskIds);
+               }
+            }
+         }, mutations);
+
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withCompleted(taskIds, completed);
+         }
+         mWriteCount++;
       }
+      publishCachedTasks();
+   }
+
+   @Override
+   public void clearCompletedTasks() {
+      synchronized (mWriteLock) {
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.clearCompletedTasks();
+            }
+         }, PendingMutation.clearCompleted());
 
+         // Do in memory cache update to keep the app UI up to date
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withoutCompletedTasks();
+         }
+         mWriteCount++;
+      }
+      publishCachedTasks();
    }
 
    /**
     * Gets tasks from local data source (sqlite) unless the table is new or empty. In that case it
     * uses the network data source. This is done to simplify the sample.
     * <p>
+    * The cached task is returned unless it is a {@link Task#isSummary() summary}, so the task
+    * returned always has its full description.
     */
    @Override
    public Task getTask(@NonNull final String taskId) {
       checkNotNull(taskId);
 
-      Task cachedTask = getTaskWithId(taskId);
+      Task cachedTask = getCachedTasks().getTask(taskId);
       // Respond immediately with cache if available
-      if (cachedTask != null) {
+      if (cachedTask != null && !cachedTask.isSummary()) {
          return cachedTask;
       }
+      return loadTask(taskId);
+   }
 
-      Task task = mTasksLocalDataSource.getTask(taskId);
-      if(task==null){
-         return mTasksRemoteDataSource.getTask(taskId);
+   /**
+    * Same as {@link #getTask(String)}, except that the cache is searched without parsing the id,
+    * see {@link Task#getTaskId()}.
+    */
+   @Nullable
+   public Task getTask(@NonNull TaskId taskId) {
+      checkNotNull(taskId);
+
+      Task cachedTask = getCachedTasks().getTask(taskId);
+      if (cachedTask != null && !cachedTask.isSummary()) {
+         return cachedTask;
       }
-      else{
+      return loadTask(taskId.toString());
+   }
+
+   /**
+    * Gets the task from the local data source, or from the remote one if it isn't there.
+    */
+   @Nullable
+   private Task loadTask(@NonNull final String taskId) {
+      ThreadChecks.checkNotOnMainThread("Loading a task");
+      Task task = mTasksLocalDataSource.getTask(taskId);
+      if (task == null) {
+         return mTaskFetches.execute(taskId, new Supplier<Task>() {
+            @Override
+            public Task get() {
+               return mTasksRemoteDataSource.getTask(taskId);
+            }
+         });
+      } else {
          return task;
       }
    }
@@ -219,58 +740,299 @@ public class TasksRepository implements TasksDataSource {
 
    @Override
    public void deleteAllTasks() {
-      mTasksRemoteDataSource.deleteAllTasks();
-      mTasksLocalDataSource.deleteAllTasks();
+      synchronized (mWriteLock) {
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.deleteAllTasks();
+            }
+         }, PendingMutation.deleteAll());
 
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
+         mCachedTasks = getCachedTasks().withAllTasks(Collections.<Task>emptyList());
+         mWriteCount++;
       }
-      mCachedTasks.clear();
+      publishCachedTasks();
    }
 
    @Override
    public void deleteTask(@NonNull final String taskId) {
-      mTasksRemoteDataSource.deleteTask(checkNotNull(taskId));
-      mTasksLocalDataSource.deleteTask(checkNotNull(taskId));
+      checkNotNull(taskId);
+      synchronized (mWriteLock) {
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.deleteTask(taskId);
+            }
+         }, PendingMutation.delete(taskId));
 
-      mCachedTasks.remove(taskId);
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withoutTask(taskId);
+         }
+         mWriteCount++;
+      }
+      publishCachedTasks();
+   }
+
+   @Override
+   public void deleteTasks(@NonNull final Collection<String> taskIds) {
+      checkNotNull(taskIds);
+      if (taskIds.isEmpty()) {
+         return;
+      }
+      synchronized (mWriteLock) {
+         List<PendingMutation> mutations = new ArrayList<>(taskIds.size());
+         for (String taskId : taskIds) {
+            mutations.add(PendingMutation.delete(taskId));
+         }
+         write(new Runnable() {
+            @Override
+            public void run() {
+               mTasksLocalDataSource.deleteTasks(taskIds);
+            }
+         }, mutations);
 
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            mCachedTasks = cachedTasks.withChanges(Collections.<Task>emptyList(), taskIds);
+         }
+         mWriteCount++;
+      }
+      publishCachedTasks();
    }
 
-   private ArrayList<Task> getTasksFromRemoteDataSourceAndRefresh() {
-      ArrayList<Task> tasks = mTasksRemoteDataSource.getTasks();
-      refreshCache(tasks);
-      refreshLocalDataSource(tasks);
-      return tasks;
+   /**
+    * Number of remote fetches that were saved by joining one already in flight.
+    */
+   public long getDeduplicatedRemoteFetchCount() {
+      return mTasksFetches.getDeduplicatedCount() + mTaskFetches.getDeduplicatedCount();
+   }
 
+   /**
+    * Number of remote fetches that were actually made.
+    */
+   public long getExecutedRemoteFetchCount() {
+      return mTasksFetches.getExecutedCount() + mTaskFetches.getExecutedCount();
    }
 
-   @VisibleForTesting
-   private void refreshCache(List<Task> tasks) {
-      if (mCachedTasks == null) {
-         mCachedTasks = new LinkedHashMap<>();
+   private List<Task> getTasksFromRemoteDataSourceOnce(final long writeCount) {
+      ThreadChecks.checkNotOnMainThread("Fetching the tasks");
+      return mTasksFetches.execute(writeCount, new Supplier<List<Task>>() {
+         @Override
+         public List<Task> get() {
+            return getTasksFromRemoteDataSourceAndRefresh(writeCount);
+         }
+      });
+   }
+
+   /**
+    * @param writeCount value of {@link #mWriteCount} before the remote data source was read
+    */
+   private List<Task> getTasksFromRemoteDataSourceAndRefresh(long writeCount) {
+      if (mOutbox != null && !mOutbox.flush()) {
+         // The remote data source is missing local writes and would roll them back. Keep the
+         // cache dirty and serve the local data until the outbox is through.
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null) {
+            return cachedTasks;
+         }
+         List<Task> tasks = mTasksLocalDataSource.getTasks();
+         return tasks.isEmpty() ? tasks : refreshCacheFromLocalDataSource(tasks, writeCount);
       }
-      mCachedTasks.clear();
-      for (Task task : tasks) {
-         mCachedTasks.put(task.getId(), task);
+
+      if (mTasksRemoteDataSource instanceof TasksDeltaSource) {
+         return getTaskChangesFromRemoteDataSourceAndRefresh(
+               (TasksDeltaSource) mTasksRemoteDataSource, writeCount);
+      }
+
+      List<Task> tasks = mTasksRemoteDataSource.getTasks();
+      synchronized (mWriteLock) {
+         if (mWriteCount != writeCount) {
+            // A write landed while fetching, so the result may not include it. Hand it to the
+            // caller but leave the cache and the local data source alone, the next read fetches
+            // again.
+            return Collections.unmodifiableList(tasks);
+         }
+         refreshLocalDataSource(tasks);
+         return refreshCache(getCachedTasks().withAllTasks(tasks), 0);
+      }
+   }
+
+   /**
+    * Fetches the changes made since the last sync and applies them to the local data source and
+    * the cache, so the cost of a refresh depends on how much changed rather than on how many
+    * tasks there are.
+    *
+    * @param writeCount value of {@link #mWriteCount} before the remote data source was read
+    */
+   private List<Task> getTaskChangesFromRemoteDataSourceAndRefresh(TasksDeltaSource deltaSource,
+                                                                  long writeCount) {
+      // Without a cache there is nothing to apply the changes to.
+      long watermark = mCachedTasks == null ? 0 : mSyncWatermark;
+      TasksDelta delta = deltaSource.getTasksChangedSince(watermark);
+      synchronized (mWriteLock) {
+         if (mWriteCount != writeCount || delta.getWatermark() < mSyncWatermark) {
+            // Either a write landed while fetching, and the changes may hold an older copy of the
+            // task it modified, or a concurrent sync already brought the cache further. Leave
+            // everything alone.
+            TasksSnapshot cachedTasks = mCachedTasks;
+            return cachedTasks != null
+                  ? cachedTasks : Collections.unmodifiableList(delta.getChangedTasks());
+         }
+
+         if (delta.isFullSync()) {
+            refreshLocalDataSource(delta.getChangedTasks());
+            return refreshCache(getCachedTasks().withAllTasks(delta.getChangedTasks()),
+                  delta.getWatermark());
+         }
+
+         applyToLocalDataSource(delta);
+         return refreshCache(
+               getCachedTasks().withChanges(delta.getChangedTasks(), delta.getDeletedTaskIds()),
+               delta.getWatermark());
+      }
+   }
+
+   /**
+    * @param writeCount value of {@link #mWriteCount} before the local data source was read
+    */
+   private List<Task> refreshCacheFromLocalDataSource(List<Task> tasks, long writeCount) {
+      synchronized (mWriteLock) {
+         if (mWriteCount != writeCount) {
+            return Collections.unmodifiableList(tasks);
+         }
+         // Anything synced after the newest of these tasks is fetched again, which is harmless
+         // since changes are idempotent.
+         boolean cacheIsDirty = mCacheIsDirty;
+         TasksSnapshot cachedTasks =
+               refreshCache(getCachedTasks().withAllTasks(tasks), getMaxVersion(tasks));
+         mCacheIsDirty = cacheIsDirty;
+         return cachedTasks;
+      }
+   }
+
+   /**
+    * Applies {@code localWrite} to the local data source, then sends {@code mutation}, which makes
+    * the same write, to the remote data source, see {@link #write(Runnable, List)}. Must be called
+    * while holding mWriteLock.
+    */
+   private void write(Runnable localWrite, PendingMutation mutation) {
+      if (mOutbox != null) {
+         write(localWrite, Collections.singletonList(mutation));
+      } else {
+         localWrite.run();
+         mutation.applyTo(mTasksRemoteDataSource);
+      }
+   }
+
+   /**
+    * Applies {@code localWrite} to the local data source, then sends {@code mutations}, which make
+    * the same write, to the remote data source. With an outbox they are stored in the same
+    * transaction as the local write, so that a crash in between can't keep the write without
+    * them, which the next refresh would roll back, and only sent once it is committed. Must be
+    * called while holding mWriteLock.
+    */
+   private void write(final Runnable localWrite, final List<PendingMutation> mutations) {
+      if (mOutbox == null) {
+         localWrite.run();
+         PendingMutation.applyAll(mutations, mTasksRemoteDataSource);
+         return;
       }
+      writeLocalDataSource(new Runnable() {
+         @Override
+         public void run() {
+            localWrite.run();
+            mOutbox.append(mutations);
+         }
+      });
+      mOutbox.scheduleDrain();
+   }
+
+   /**
+    * Emits the current snapshot of the cache unless it was already. Called after the cache changed
+    * but without holding mWriteLock, so that subscribers don't hold up writers.
+    */
+   private void publishCachedTasks() {
+      synchronized (mSnapshots) {
+         // A writer that published after us already emitted the latest snapshot.
+         TasksSnapshot cachedTasks = mCachedTasks;
+         if (cachedTasks != null && cachedTasks != mPublishedTasks) {
+            mPublishedTasks = cachedTasks;
+            mSnapshots.onNext(cachedTasks);
+         }
+      }
+   }
+
+   // Must be called while holding mWriteLock.
+   private TasksSnapshot refreshCache(TasksSnapshot cachedTasks, long watermark) {
+      mCachedTasks = cachedTasks;
+      mSyncWatermark = watermark;
       mCacheIsDirty = false;
+      return cachedTasks;
    }
 
-   private void refreshLocalDataSource(List<Task> tasks) {
-      mTasksLocalDataSource.deleteAllTasks();
+   private static long getMaxVersion(List<Task> tasks) {
+      long maxVersion = 0;
       for (Task task : tasks) {
-         mTasksLocalDataSource.saveTask(task);
+         maxVersion = Math.max(maxVersion, task.getVersion());
       }
+      return maxVersion;
    }
 
-   @Nullable
-   private Task getTaskWithId(@NonNull String id) {
-      checkNotNull(id);
-      if (mCachedTasks == null || mCachedTasks.isEmpty()) {
-         return null;
+   /**
+    * Returns the current snapshot of the cache, or an empty one if the cache was never filled.
+    */
+   @NonNull
+   private TasksSnapshot getCachedTasks() {
+      TasksSnapshot cachedTasks = mCachedTasks;
+      return cachedTasks == null ? TasksSnapshot.EMPTY : cachedTasks;
+   }
+
+   /**
+    * Replaces the tasks of the local data source with {@code tasks}. Readers, and the next start
+    * of the app if it dies meanwhile, never see a table only partly replaced, which the next
+    * delta sync wouldn't repair. Must be called while holding mWriteLock.
+    */
+   private void refreshLocalDataSource(final List<Task> tasks) {
+      writeLocalDataSource(new Runnable() {
+         @Override
+         public void run() {
+            mTasksLocalDataSource.deleteAllTasks();
+            mTasksLocalDataSource.saveTasks(tasks);
+         }
+      });
+   }
+
+   // Must be called while holding mWriteLock.
+   private void applyToLocalDataSource(final TasksDelta delta) {
+      writeLocalDataSource(new Runnable() {
+         @Override
+         public void run() {
+            mTasksLocalDataSource.saveTasks(delta.getChangedTasks());
+            mTasksLocalDataSource.deleteTasks(delta.getDeletedTaskIds());
+         }
+      });
+   }
+
+   /**
+    * Runs {@code writes} in a single transaction of the local data source if it is a
+    * {@link TasksTransactionSource}, one after the other otherwise.
+    */
+   private void writeLocalDataSource(Runnable writes) {
+      if (mTasksLocalDataSource instanceof TasksTransactionSource) {
+         ((TasksTransactionSource) mTasksLocalDataSource).runInTransaction(writes);
       } else {
-         return mCachedTasks.get(id);
+         writes.run();
       }
    }
+
+   /**
+    * Same as {@link #getTask(TaskId)}, except that a cached summary will do, since only the id
+    * and the state of the task are needed to update it.
+    */
+   @Nullable
+   private Task getTaskToUpdate(@NonNull TaskId id) {
+      Task cachedTask = getCachedTasks().getTask(id);
+      return cachedTask != null ? cachedTask : getTask(id);
+   }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+/**
+ * A data source that keeps a full-text index of its tasks, so that searching them doesn't read
+ * every task.
+ */
+public interface TasksSearchSource {
+
+    /**
+     * @param offset number of matching tasks to skip, for paging
+     * @param limit  maximum number of tasks to return
+     * @return the tasks matching {@code query}, ranked as {@link TaskSearchQuery#rank(Task)}
+     * does, then in the order {@link TasksDataSource#getTasks()} returns them
+     */
+    @NonNull
+    List<Task> searchTasks(@NonNull TaskSearchQuery query, int offset, int limit);
+}
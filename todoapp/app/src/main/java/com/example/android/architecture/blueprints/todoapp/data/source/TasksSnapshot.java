@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.PartitionedTasks;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable, versioned list of the tasks cached by the {@link TasksRepository}.
+ * <p>
+ * A snapshot is never modified once published, so readers can share it without copying. Writers
+ * derive a new snapshot with a higher version from the current one and publish it in its place.
+ * Tasks keep the position they were first added at, like in a {@link LinkedHashMap}.
+ * <p>
+ * The positions of the active and completed tasks are kept apart and carried over to the derived
+ * snapshots, so the {@link PartitionedTasks} views and the {@link TaskCounts} cost nothing to get.
+ */
+public final class TasksSnapshot extends AbstractList<Task>
+      implements PartitionedTasks, RandomAccess {
+
+   static final TasksSnapshot EMPTY =
+         new TasksSnapshot(0, new Task[0], new TaskPositions(0));
+
+   private final long mVersion;
+
+   private final Task[] mTasks;
+
+   // Position of every task in mTasks, keyed by task id.
+   private final TaskPositions mPositions;
+
+   // Positions of the active and completed tasks in mTasks, in increasing order.
+   private final int[] mActivePositions;
+   private final int[] mCompletedPositions;
+
+   private final List<Task> mActiveTasks;
+   private final List<Task> mCompletedTasks;
+
+   private final TaskCounts mCounts;
+
+   private TasksSnapshot(long version, Task[] tasks, TaskPositions positions) {
+      this(version, tasks, positions, partition(tasks, false), partition(tasks, true));
+   }
+
+   private TasksSnapshot(long version, Task[] tasks, TaskPositions positions,
+                         int[] activePositions, int[] completedPositions) {
+      mVersion = version;
+      mTasks = tasks;
+      mPositions = positions;
+      mActivePositions = activePositions;
+      mCompletedPositions = completedPositions;
+      mActiveTasks = new PartitionView(activePositions);
+      mCompletedTasks = new PartitionView(completedPositions);
+      mCounts = new TaskCounts(activePositions.length, completedPositions.length);
+   }
+
+   private static TasksSnapshot of(long version, Map<TaskId, Task> tasksById) {
+      Task[] tasks = tasksById.values().toArray(new Task[tasksById.size()]);
+      TaskPositions positions = new TaskPositions(tasks.length);
+      for (int i = 0; i < tasks.length; i++) {
+         positions.put(tasks[i].getTaskId(), i);
+      }
+      return new TasksSnapshot(version, tasks, positions);
+   }
+
+   /**
+    * Incremented every time a new snapshot is derived, so two snapshots with the same version
+    * hold the same tasks.
+    */
+   public long getVersion() {
+      return mVersion;
+   }
+
+   @Override
+   public Task get(int location) {
+      return mTasks[location];
+   }
+
+   @Override
+   public int size() {
+      return mTasks.length;
+   }
+
+   /**
+    * Same as {@link #getTask(TaskId)}, parsing {@code taskId} first. Parsing costs several times
+    * the lookup itself, so callers holding a {@link Task} pass its {@link Task#getTaskId()}.
+    */
+   @Nullable
+   public Task getTask(@NonNull String taskId) {
+      return getTask(TaskId.fromString(taskId));
+   }
+
+   @Nullable
+   public Task getTask(@NonNull TaskId taskId) {
+      int position = mPositions.get(taskId);
+      return position == TaskPositions.NO_POSITION ? null : mTasks[position];
+   }
+
+   public boolean containsTask(@NonNull String taskId) {
+      return containsTask(TaskId.fromString(taskId));
+   }
+
+   public boolean containsTask(@NonNull TaskId taskId) {
+      return mPositions.get(taskId) != TaskPositions.NO_POSITION;
+   }
+
+   @NonNull
+   public TaskCounts getCounts() {
+      return mCounts;
+   }
+
+   @Override
+   public List<Task> getActiveTasks() {
+      return mActiveTasks;
+   }
+
+   @Override
+   public List<Task> getCompletedTasks() {
+      return mCompletedTasks;
+   }
+
+   /**
+    * Returns a snapshot holding exactly {@code tasks}.
+    */
+   TasksSnapshot withAllTasks(@NonNull Collection<Task> tasks) {
+      return of(mVersion + 1, toMap(Collections.<Task>emptyList(), tasks));
+   }
+
+   /**
+    * Returns a snapshot where {@code task} replaces the task with the same id, or is appended if
+    * there is none.
+    */
+   TasksSnapshot withTask(@NonNull Task task) {
+      checkNotNull(task);
+      int position = mPositions.get(task.getTaskId());
+      if (position != TaskPositions.NO_POSITION) {
+         // Same ids in the same order, so the positions can be shared.
+         Task[] tasks = mTasks.clone();
+         tasks[position] = task;
+         if (task.isCompleted() == mTasks[position].isCompleted()) {
+            return new TasksSnapshot(mVersion + 1, tasks, mPositions, mActivePositions,
+                  mCompletedPositions);
+         }
+         return new TasksSnapshot(mVersion + 1, tasks, mPositions,
+               moveIn(mActivePositions, position, !task.isCompleted()),
+               moveIn(mCompletedPositions, position, task.isCompleted()));
+      }
+      return withTasks(Collections.singletonList(task));
+   }
+
+   /**
+    * Returns a snapshot where each of {@code tasks} replaces the task with the same id, or is
+    * appended if there is none.
+    */
+   TasksSnapshot withTasks(@NonNull Collection<Task> tasks) {
+      return of(mVersion + 1, toMap(this, tasks));
+   }
+
+   /**
+    * Returns a snapshot where the tasks with the ids in {@code taskIds} are marked as completed or
+    * active. Unknown ids are ignored.
+    */
+   TasksSnapshot withCompleted(@NonNull Collection<String> taskIds, boolean completed) {
+      Task[] tasks = null;
+      long now = System.currentTimeMillis();
+      for (String taskId : taskIds) {
+         int position = mPositions.get(TaskId.fromString(taskId));
+         if (position == TaskPositions.NO_POSITION
+               || mTasks[position].isCompleted() == completed) {
+            continue;
+         }
+         if (tasks == null) {
+            tasks = mTasks.clone();
+         }
+         tasks[position] = mTasks[position].withCompleted(completed, now);
+      }
+      if (tasks == null) {
+         return this;
+      }
+      // Same ids in the same order, so the positions can be shared. Only the tasks that were
+      // in the partition being emptied can have moved.
+      int[] from = completed ? mActivePositions : mCompletedPositions;
+      int[] to = completed ? mCompletedPositions : mActivePositions;
+      int[] remaining = new int[from.length];
+      int[] moved = new int[from.length];
+      int remainingCount = 0;
+      int movedCount = 0;
+      for (int position : from) {
+         if (tasks[position].isCompleted() == completed) {
+            moved[movedCount++] = position;
+         } else {
+            remaining[remainingCount++] = position;
+         }
+      }
+      remaining = Arrays.copyOf(remaining, remainingCount);
+      int[] merged = merge(to, Arrays.copyOf(moved, movedCount));
+      return completed
+            ? new TasksSnapshot(mVersion + 1, tasks, mPositions, remaining, merged)
+            : new TasksSnapshot(mVersion + 1, tasks, mPositions, merged, remaining);
+   }
+
+   /**
+    * Merges two sorted arrays of distinct positions.
+    */
+   private static int[] merge(int[] a, int[] b) {
+      int[] merged = new int[a.length + b.length];
+      int i = 0;
+      int j = 0;
+      int k = 0;
+      while (i < a.length && j < b.length) {
+         merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+      }
+      while (i < a.length) {
+         merged[k++] = a[i++];
+      }
+      while (j < b.length) {
+         merged[k++] = b[j++];
+      }
+      return merged;
+   }
+
+   TasksSnapshot withoutTask(@NonNull String taskId) {
+      TaskId id = TaskId.fromString(taskId);
+      if (!containsTask(id)) {
+         return this;
+      }
+      Map<TaskId, Task> tasksById = toMap(this, Collections.<Task>emptyList());
+      tasksById.remove(id);
+      return of(mVersion + 1, tasksById);
+   }
+
+   /**
+    * Returns a snapshot where {@code changedTasks} are saved as by {@link #withTasks(Collection)}
+    * and the tasks with the ids in {@code deletedTaskIds} are removed.
+    */
+   TasksSnapshot withChanges(@NonNull Collection<Task> changedTasks,
+                             @NonNull Collection<String> deletedTaskIds) {
+      Map<TaskId, Task> tasksById = toMap(this, changedTasks);
+      for (String taskId : deletedTaskIds) {
+         tasksById.remove(TaskId.fromString(taskId));
+      }
+      return of(mVersion + 1, tasksById);
+   }
+
+   TasksSnapshot withoutCompletedTasks() {
+      if (mCompletedPositions.length == 0) {
+         return this;
+      }
+      Task[] tasks = new Task[mActivePositions.length];
+      TaskPositions positions = new TaskPositions(tasks.length);
+      int[] activePositions = new int[tasks.length];
+      for (int i = 0; i < tasks.length; i++) {
+         tasks[i] = mTasks[mActivePositions[i]];
+         positions.put(tasks[i].getTaskId(), i);
+         activePositions[i] = i;
+      }
+      return new TasksSnapshot(mVersion + 1, tasks, positions, activePositions, new int[0]);
+   }
+
+   /**
+    * Returns the positions of the tasks in {@code tasks} that are completed, or active.
+    */
+   private static int[] partition(Task[] tasks, boolean completed) {
+      int count = 0;
+      for (Task task : tasks) {
+         if (task.isCompleted() == completed) {
+            count++;
+         }
+      }
+      int[] positions = new int[count];
+      int i = 0;
+      for (int position = 0; position < tasks.length; position++) {
+         if (tasks[position].isCompleted() == completed) {
+            positions[i++] = position;
+         }
+      }
+      return positions;
+   }
+
+   /**
+    * Returns a copy of the sorted {@code positions} with {@code position} added if {@code in}, or
+    * removed otherwise.
+    */
+   private static int[] moveIn(int[] positions, int position, boolean in) {
+      int index = Arrays.binarySearch(positions, position);
+      if (in == index >= 0) {
+         return positions;
+      }
+      if (in) {
+         int insertion = -index - 1;
+         int[] moved = new int[positions.length + 1];
+         System.arraycopy(positions, 0, moved, 0, insertion);
+         moved[insertion] = position;
+         System.arraycopy(positions, insertion, moved, insertion + 1, positions.length - insertion);
+         return moved;
+      }
+      int[] moved = new int[positions.length - 1];
+      System.arraycopy(positions, 0, moved, 0, index);
+      System.arraycopy(positions, index + 1, moved, index, moved.length - index);
+      return moved;
+   }
+
+   /**
+    * Read-only view of the tasks of this snapshot at the given positions.
+    */
+   private final class PartitionView extends AbstractList<Task> implements RandomAccess {
+
+      private final int[] mViewPositions;
+
+      PartitionView(int[] positions) {
+         mViewPositions = positions;
+      }
+
+      @Override
+      public Task get(int location) {
+         return mTasks[mViewPositions[location]];
+      }
+
+      @Override
+      public int size() {
+         return mViewPositions.length;
+      }
+   }
+
+   private static Map<TaskId, Task> toMap(Collection<Task> current, Collection<Task> updates) {
+      Map<TaskId, Task> tasksById = new LinkedHashMap<>(current.size() + updates.size());
+      for (Task task : current) {
+         tasksById.put(task.getTaskId(), task);
+      }
+      for (Task task : updates) {
+         tasksById.put(task.getTaskId(), task);
+      }
+      return tasksById;
+   }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A data source that can make several of its writes atomic, so that readers and the next start
+ * of the app see either all of them or none.
+ */
+public interface TasksTransactionSource {
+
+    /**
+     * Runs {@code writes} on the calling thread in a single transaction. If it throws, or the
+     * process dies before it returns, none of the writes it made to this data source are kept.
+     */
+    void runInTransaction(@NonNull Runnable writes);
+}
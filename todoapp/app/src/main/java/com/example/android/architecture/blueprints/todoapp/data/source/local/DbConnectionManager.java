@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.local;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.util.ThreadChecks;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps a single {@link SQLiteDatabase} open for the lifetime of the process.
+ * <p>
+ * Opening the database file is expensive, so instead of opening and closing it around every
+ * operation the connection is opened lazily, switched to write-ahead logging so readers don't
+ * block the writer, and only closed by {@link #close()} or when the system is low on memory. Each
+ * caller holds a reference on the database between {@link #acquireDatabase()} and
+ * {@link #releaseDatabase(SQLiteDatabase)}, so closing the connection never pulls it out from under
+ * an operation that is still running; the file is actually closed once the last reference is
+ * released, and the next {@link #acquireDatabase()} opens it again.
+ * <p>
+ * Operations run by {@link #runInTransaction(Runnable)} all get the database the transaction was
+ * started on, even if the connection was closed and reopened meanwhile, so they all join it.
+ */
+public class DbConnectionManager {
+
+   private final SQLiteOpenHelper mDbHelper;
+
+   private SQLiteDatabase mDatabase;
+
+   // Database of the transaction run by runInTransaction on the current thread, if any.
+   private final ThreadLocal<SQLiteDatabase> mTransactionDatabase = new ThreadLocal<>();
+
+   public DbConnectionManager(@NonNull Context context, @NonNull SQLiteOpenHelper dbHelper) {
+      checkNotNull(context);
+      mDbHelper = checkNotNull(dbHelper);
+
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+         context.getApplicationContext().registerComponentCallbacks(new MemoryPressureCallbacks());
+      }
+   }
+
+   /**
+    * Returns the shared database, opening it if needed. Every call must be balanced with a call to
+    * {@link #releaseDatabase(SQLiteDatabase)}.
+    * <p>
+    * Every read and write of the database starts here, so this is where debug builds catch them
+    * running on the UI thread, see {@link ThreadChecks}.
+    */
+   @NonNull
+   public synchronized SQLiteDatabase acquireDatabase() {
+      ThreadChecks.checkNotOnMainThread("Database access");
+      SQLiteDatabase transactionDatabase = mTransactionDatabase.get();
+      if (transactionDatabase != null) {
+         transactionDatabase.acquireReference();
+         return transactionDatabase;
+      }
+      if (mDatabase == null) {
+         mDatabase = mDbHelper.getWritableDatabase();
+         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            mDatabase.enableWriteAheadLogging();
+         }
+      }
+      mDatabase.acquireReference();
+      return mDatabase;
+   }
+
+   /**
+    * Releases a reference obtained from {@link #acquireDatabase()}. The connection itself stays
+    * open.
+    */
+   public void releaseDatabase(@NonNull SQLiteDatabase db) {
+      db.releaseReference();
+   }
+
+   /**
+    * Runs {@code operations} on the calling thread in a single transaction, which the transactions
+    * they start are nested in. Their writes are only kept if it returns normally.
+    */
+   public void runInTransaction(@NonNull Runnable operations) {
+      checkNotNull(operations);
+      SQLiteDatabase db = acquireDatabase();
+      SQLiteDatabase outerTransactionDatabase = mTransactionDatabase.get();
+      mTransactionDatabase.set(db);
+      try {
+         db.beginTransaction();
+         try {
+            operations.run();
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+         }
+      } finally {
+         mTransactionDatabase.set(outerTransactionDatabase);
+         releaseDatabase(db);
+      }
+   }
+
+   /**
+    * Closes the shared connection. Operations still holding a reference finish normally and the
+    * next {@link #acquireDatabase()} reopens the database.
+    */
+   public synchronized void close() {
+      if (mDatabase != null) {
+         // Drops the helper's own reference; the helper opens a fresh connection next time.
+         mDbHelper.close();
+         mDatabase = null;
+      }
+   }
+
+   @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+   private class MemoryPressureCallbacks implements ComponentCallbacks2 {
+
+      @Override
+      public void onTrimMemory(int level) {
+         // Only give the connection (and its page cache) back once the app is in the background.
+         if (level >= TRIM_MEMORY_BACKGROUND) {
+            close();
+         }
+      }
+
+      @Override
+      public void onLowMemory() {
+         close();
+      }
+
+      @Override
+      public void onConfigurationChanged(Configuration newConfig) {
+         // Not relevant to the connection.
+      }
+   }
+}
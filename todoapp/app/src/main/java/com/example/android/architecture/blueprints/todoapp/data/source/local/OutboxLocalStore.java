@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.local;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.OutboxEntry;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.OutboxStore;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link OutboxStore} kept in the tasks database, next to the tasks it sends.
+ */
+public class OutboxLocalStore implements OutboxStore {
+
+   private static final String SQL_APPEND =
+         "INSERT INTO " + OutboxEntry.TABLE_NAME + " (" +
+               OutboxEntry.COLUMN_NAME_OPERATION + "," +
+               OutboxEntry.COLUMN_NAME_ENTRY_ID + "," +
+               OutboxEntry.COLUMN_NAME_TITLE + "," +
+               OutboxEntry.COLUMN_NAME_DESCRIPTION + "," +
+               OutboxEntry.COLUMN_NAME_COMPLETED + "," +
+               OutboxEntry.COLUMN_NAME_CREATED + "," +
+               OutboxEntry.COLUMN_NAME_COMPLETED_AT +
+               ") VALUES (?,?,?,?,?,?,?)";
+
+   private static final String SQL_REMOVE =
+         "DELETE FROM " + OutboxEntry.TABLE_NAME + " WHERE " + OutboxEntry._ID + " = ?";
+
+   private static final String[] PROJECTION = {
+         OutboxEntry._ID,
+         OutboxEntry.COLUMN_NAME_OPERATION,
+         OutboxEntry.COLUMN_NAME_ENTRY_ID,
+         OutboxEntry.COLUMN_NAME_TITLE,
+         OutboxEntry.COLUMN_NAME_DESCRIPTION,
+         OutboxEntry.COLUMN_NAME_COMPLETED,
+         OutboxEntry.COLUMN_NAME_CREATED,
+         OutboxEntry.COLUMN_NAME_COMPLETED_AT
+   };
+
+   private final DbConnectionManager mDbConnection;
+
+   OutboxLocalStore(@NonNull DbConnectionManager dbConnection) {
+      mDbConnection = checkNotNull(dbConnection);
+   }
+
+   @Override
+   public void append(@NonNull List<PendingMutation> mutations) {
+      checkNotNull(mutations);
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         SQLiteStatement insert = db.compileStatement(SQL_APPEND);
+         db.beginTransaction();
+         try {
+            for (PendingMutation mutation : mutations) {
+               insert.clearBindings();
+               insert.bindString(1, mutation.getOperation().name());
+               TasksLocalDataSource.bindStringOrNull(insert, 2, mutation.getTaskId());
+               Task task = mutation.getTask();
+               if (task != null) {
+                  TasksLocalDataSource.bindStringOrNull(insert, 3, task.getTitle());
+                  TasksLocalDataSource.bindStringOrNull(insert, 4, task.getDescription());
+                  insert.bindLong(5, task.isCompleted() ? 1 : 0);
+                  insert.bindLong(6, task.getCreatedAt());
+                  insert.bindLong(7, task.getCompletedAt());
+               }
+               insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+            insert.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
+
+   @NonNull
+   @Override
+   public List<PendingMutation> peek(int maxCount) {
+      List<PendingMutation> mutations = new ArrayList<>();
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         Cursor c = db.query(OutboxEntry.TABLE_NAME, PROJECTION, null, null, null, null,
+               OutboxEntry._ID, String.valueOf(maxCount));
+         try {
+            while (c.moveToNext()) {
+               mutations.add(readMutation(c));
+            }
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+      return mutations;
+   }
+
+   @Override
+   public void remove(@NonNull List<PendingMutation> mutations) {
+      checkNotNull(mutations);
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         SQLiteStatement delete = db.compileStatement(SQL_REMOVE);
+         db.beginTransaction();
+         try {
+            for (PendingMutation mutation : mutations) {
+               delete.bindLong(1, mutation.getId());
+               delete.execute();
+            }
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+            delete.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
+
+   // Columns in the order of PROJECTION.
+   private static PendingMutation readMutation(Cursor c) {
+      long id = c.getLong(0);
+      PendingMutation.Operation operation = PendingMutation.Operation.valueOf(c.getString(1));
+      String taskId = c.getString(2);
+      Task task = null;
+      // Only mutations that carry a task have the completed column set.
+      if (!c.isNull(5)) {
+         task = new Task(c.getString(3), c.getString(4), taskId, c.getInt(5) == 1, 0,
+               c.getLong(6), c.getLong(7));
+      }
+      return PendingMutation.fromStore(id, operation, taskId, task);
+   }
+}
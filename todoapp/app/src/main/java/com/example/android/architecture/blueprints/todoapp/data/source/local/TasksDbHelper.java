@@ -20,39 +20,464 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskHistory;
+
 public class TasksDbHelper extends SQLiteOpenHelper {
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 7;
 
     public static final String DATABASE_NAME = "Tasks.db";
 
     private static final String TEXT_TYPE = " TEXT";
 
+    private static final String INTEGER_TYPE = " INTEGER";
+
     private static final String BOOLEAN_TYPE = " INTEGER";
 
     private static final String COMMA_SEP = ",";
 
-    private static final String SQL_CREATE_ENTRIES =
+    /**
+     * The entry id is the key every lookup uses, so it is declared unique, which also gives it an
+     * index. {@code _ID} is an alias of the rowid.
+     */
+    private static final String SQL_CREATE_ENTRIES_V2 =
             "CREATE TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " (" +
-                    TasksPersistenceContract.TaskEntry._ID + TEXT_TYPE + " PRIMARY KEY," +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry._ID + INTEGER_TYPE + " PRIMARY KEY," +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE +
+                    " NOT NULL UNIQUE" + COMMA_SEP +
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE +
             " )";
 
+    private static final String VERSION_COLUMN_DEFINITION =
+            TasksPersistenceContract.TaskEntry.COLUMN_NAME_VERSION + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0";
+
+    private static final String CREATED_COLUMN_DEFINITION =
+            TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0";
+
+    private static final String COMPLETED_AT_COLUMN_DEFINITION =
+            TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_AT + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0";
+
+    /**
+     * Adds when the task was created and completed. Existing rows get 0, unknown.
+     */
+    private static final String SQL_CREATE_ENTRIES_V7 =
+            "CREATE TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.TaskEntry._ID + INTEGER_TYPE + " PRIMARY KEY," +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE +
+                    " NOT NULL UNIQUE" + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + COMMA_SEP +
+                    VERSION_COLUMN_DEFINITION + COMMA_SEP +
+                    CREATED_COLUMN_DEFINITION + COMMA_SEP +
+                    COMPLETED_AT_COLUMN_DEFINITION +
+            " )";
+
+    private static final String SQL_CREATE_ENTRIES = SQL_CREATE_ENTRIES_V7;
+
+    /**
+     * Times of the task sent, added in version 7. Older mutations and the ones without a task
+     * have none.
+     */
+    private static final String OUTBOX_CREATED_COLUMN_DEFINITION =
+            TasksPersistenceContract.OutboxEntry.COLUMN_NAME_CREATED + INTEGER_TYPE;
+
+    private static final String OUTBOX_COMPLETED_AT_COLUMN_DEFINITION =
+            TasksPersistenceContract.OutboxEntry.COLUMN_NAME_COMPLETED_AT + INTEGER_TYPE;
+
+    private static final String SQL_CREATE_OUTBOX =
+            "CREATE TABLE " + TasksPersistenceContract.OutboxEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.OutboxEntry._ID + INTEGER_TYPE + " PRIMARY KEY," +
+                    TasksPersistenceContract.OutboxEntry.COLUMN_NAME_OPERATION + TEXT_TYPE +
+                    " NOT NULL" + COMMA_SEP +
+                    TasksPersistenceContract.OutboxEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.OutboxEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.OutboxEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.OutboxEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + COMMA_SEP +
+                    OUTBOX_CREATED_COLUMN_DEFINITION + COMMA_SEP +
+                    OUTBOX_COMPLETED_AT_COLUMN_DEFINITION +
+            " )";
+
+    /**
+     * Lets the queries filtering on the completed state read only the matching rows.
+     */
+    private static final String SQL_CREATE_COMPLETED_INDEX =
+            "CREATE INDEX " + TasksPersistenceContract.TaskEntry.INDEX_NAME_COMPLETED + " ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + ")";
+
+    /**
+     * FTS3 rather than FTS4, which needs API level 11. FTS3 can't index another table, so it keeps
+     * its own copy of the text, which the triggers below keep in sync with the task table.
+     */
+    private static final String SQL_CREATE_SEARCH =
+            "CREATE VIRTUAL TABLE " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME +
+                    " USING fts3(" +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DESCRIPTION + ")";
+
+    private static final String SQL_DELETE_SEARCH_ROW =
+            "DELETE FROM " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME + " WHERE " +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DOCID + " = ";
+
+    /**
+     * Saving a task with INSERT OR REPLACE, as older versions did, replaces its row, and the
+     * deletion that comes with a replacement doesn't fire the delete trigger, so the text of the
+     * row being replaced is removed before the insert.
+     */
+    private static final String[] SQL_CREATE_SEARCH_TRIGGERS = {
+            "CREATE TRIGGER task_fts_before_insert BEFORE INSERT ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    "DELETE FROM " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME +
+                    " WHERE " + TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DOCID +
+                    " IN (SELECT " + TasksPersistenceContract.TaskEntry._ID + " FROM " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " WHERE " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + " = new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + "); END",
+            "CREATE TRIGGER task_fts_after_insert AFTER INSERT ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    SQL_DELETE_SEARCH_ROW + "new." + TasksPersistenceContract.TaskEntry._ID + "; " +
+                    "INSERT INTO " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DOCID + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DESCRIPTION +
+                    ") VALUES (new." + TasksPersistenceContract.TaskEntry._ID +
+                    ", new." + TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE +
+                    ", new." + TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + "); END",
+            "CREATE TRIGGER task_fts_after_update AFTER UPDATE OF " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + " ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    "UPDATE " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME + " SET " +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_TITLE + " = new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DESCRIPTION + " = new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + " WHERE " +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DOCID + " = old." +
+                    TasksPersistenceContract.TaskEntry._ID + "; END",
+            "CREATE TRIGGER task_fts_after_delete AFTER DELETE ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    SQL_DELETE_SEARCH_ROW + "old." + TasksPersistenceContract.TaskEntry._ID + "; END"
+    };
+
+    private static final String SQL_FILL_SEARCH =
+            "INSERT INTO " + TasksPersistenceContract.TaskSearchEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DOCID + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskSearchEntry.COLUMN_NAME_DESCRIPTION +
+                    ") SELECT " + TasksPersistenceContract.TaskEntry._ID + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + " FROM " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME;
+
+    /**
+     * Local days the task was created and completed on. They are computed once, when the times
+     * are written, so that a later change of time zone can't make the rollups count a completion
+     * on one day and take it back from another.
+     */
+    private static final String CREATED_DAY_COLUMN_DEFINITION =
+            TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED_DAY + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0";
+
+    private static final String COMPLETED_DAY_COLUMN_DEFINITION =
+            TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0";
+
+    private static final String SQL_CREATE_HISTORY =
+            "CREATE TABLE " + TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE +
+                    " PRIMARY KEY" + COMMA_SEP +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED + INTEGER_TYPE +
+                    " NOT NULL" + COMMA_SEP +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0" + COMMA_SEP +
+                    CREATED_DAY_COLUMN_DEFINITION + COMMA_SEP +
+                    COMPLETED_DAY_COLUMN_DEFINITION +
+            " )";
+
+    private static final String SQL_CREATE_DAILY_COUNTS =
+            "CREATE TABLE " + TasksPersistenceContract.DailyCountsEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_DAY + INTEGER_TYPE +
+                    " PRIMARY KEY" + COMMA_SEP +
+                    TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_CREATED + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0" + COMMA_SEP +
+                    TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_COMPLETED + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0" +
+            " )";
+
+    private static final String SQL_CREATE_COMPLETION_TIME =
+            "CREATE TABLE " + TasksPersistenceContract.CompletionTimeEntry.TABLE_NAME + " (" +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_DAY + INTEGER_TYPE +
+                    " NOT NULL" + COMMA_SEP +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_BUCKET + INTEGER_TYPE +
+                    " NOT NULL" + COMMA_SEP +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_TASKS + INTEGER_TYPE +
+                    " NOT NULL DEFAULT 0" + COMMA_SEP +
+                    "PRIMARY KEY (" +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_DAY + COMMA_SEP +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_BUCKET + ")" +
+            " )";
+
+    private static final String SQL_UPDATE_HISTORY_COMPLETED_AT =
+            "UPDATE " + TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME + " SET " +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + " = new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_AT + COMMA_SEP +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY + " = " +
+                    day("new." + TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_AT) +
+                    " WHERE " +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_ENTRY_ID + " = new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + " AND " +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + " != new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_AT + "; ";
+
+    /**
+     * Inserts the history of the new row if it is missing. Tasks created before their creation
+     * time was recorded have none and are left out.
+     */
+    private static final String SQL_INSERT_HISTORY =
+            "INSERT INTO " + TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME +
+                    " (" + TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_ENTRY_ID + COMMA_SEP +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED + COMMA_SEP +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED_DAY +
+                    ") SELECT new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + ", new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED + COMMA_SEP +
+                    day("new." + TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED) +
+                    " WHERE new." +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED + " > 0 AND " +
+                    "NOT EXISTS (" +
+                    "SELECT 1 FROM " + TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME +
+                    " WHERE " + TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_ENTRY_ID +
+                    " = new." + TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + "); ";
+
+    /**
+     * The history of a task outlives its row, so that deleting tasks doesn't rewrite the past,
+     * and saving a task again, as a sync does after deleting them all, doesn't count it twice.
+     * <p>
+     * The statements of a trigger take on the conflict clause of the statement firing it, an
+     * INSERT OR REPLACE would replace the rows they insert, so they only insert missing rows.
+     */
+    private static final String[] SQL_CREATE_HISTORY_TRIGGERS = {
+            "CREATE TRIGGER task_history_after_insert AFTER INSERT ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    SQL_INSERT_HISTORY + SQL_UPDATE_HISTORY_COMPLETED_AT + "END",
+            // Saving a task updates its row, which may be the first time its creation time is
+            // known.
+            "CREATE TRIGGER task_history_after_update AFTER UPDATE OF " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_AT + " ON " +
+                    TasksPersistenceContract.TaskEntry.TABLE_NAME + " BEGIN " +
+                    SQL_INSERT_HISTORY + SQL_UPDATE_HISTORY_COMPLETED_AT + "END",
+            "CREATE TRIGGER task_daily_counts_created AFTER INSERT ON " +
+                    TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME + " BEGIN " +
+                    insertDailyCounts("new." +
+                            TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED_DAY, null) +
+                    addToDailyCounts(TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_CREATED,
+                            "new." + TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED_DAY,
+                            "+ 1", null) +
+                    "END",
+            "CREATE TRIGGER task_daily_counts_completed AFTER UPDATE OF " +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + " ON " +
+                    TasksPersistenceContract.TaskHistoryEntry.TABLE_NAME + " BEGIN " +
+                    countCompletion("old", "- 1") +
+                    insertDailyCounts("new." +
+                            TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY,
+                            completed("new")) +
+                    "INSERT INTO " + TasksPersistenceContract.CompletionTimeEntry.TABLE_NAME +
+                    " (" + TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_DAY + COMMA_SEP +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_BUCKET + ") SELECT new." +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY +
+                    COMMA_SEP + latencyBucket("new") + " WHERE " + completed("new") +
+                    " AND NOT EXISTS (SELECT 1 FROM " +
+                    TasksPersistenceContract.CompletionTimeEntry.TABLE_NAME + " WHERE " +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_DAY + " = new." +
+                    TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY + " AND " +
+                    TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_BUCKET + " = " +
+                    latencyBucket("new") + "); " +
+                    countCompletion("new", "+ 1") +
+                    "END"
+    };
+
+    private static final String V1_TABLE_NAME = TasksPersistenceContract.TaskEntry.TABLE_NAME + "_v1";
+
+    private static final String V1_COLUMNS =
+            TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+
     public TasksDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(SQL_CREATE_ENTRIES);
+        db.execSQL(SQL_CREATE_COMPLETED_INDEX);
+        createSearch(db);
+        db.execSQL(SQL_CREATE_OUTBOX);
+        createHistory(db);
     }
 
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Not required as at version 1
+        if (oldVersion < 2) {
+            upgradeToVersion2(db);
+        }
+        if (oldVersion < 3) {
+            upgradeToVersion3(db);
+        }
+        if (oldVersion < 4) {
+            db.execSQL(SQL_CREATE_OUTBOX);
+        } else if (oldVersion < 7) {
+            upgradeOutboxToVersion7(db);
+        }
+        if (oldVersion < 5) {
+            db.execSQL(SQL_CREATE_COMPLETED_INDEX);
+        }
+        if (oldVersion < 6) {
+            createSearch(db);
+            db.execSQL(SQL_FILL_SEARCH);
+        }
+        if (oldVersion < 7) {
+            upgradeToVersion7(db);
+        }
     }
 
     public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Not required as at version 1
+        // Not supported, every schema change so far is backwards compatible.
+    }
+
+    private static void createSearch(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_SEARCH);
+        for (String trigger : SQL_CREATE_SEARCH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    private static void createHistory(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_HISTORY);
+        db.execSQL(SQL_CREATE_DAILY_COUNTS);
+        db.execSQL(SQL_CREATE_COMPLETION_TIME);
+        for (String trigger : SQL_CREATE_HISTORY_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    /**
+     * Returns the local day the time in milliseconds {@code expression} falls on in the current
+     * time zone, see {@link TaskHistory#toDay(long)}. SQLite converts the time to the local time of
+     * day, which is then counted in days as if it were UTC.
+     */
+    private static String day(String expression) {
+        return "(CAST(strftime('%s', " + expression + " / 1000, 'unixepoch', 'localtime')" +
+                " AS INTEGER) / " + TaskHistory.DAY_MILLIS / 1000 + ")";
+    }
+
+    /**
+     * Returns the time to complete bucket of the {@code row} of the history, see
+     * {@link TaskHistory#toLatencyBucket(long)}.
+     */
+    private static String latencyBucket(String row) {
+        String latency = "(" + row + "." +
+                TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + " - " + row +
+                "." + TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_CREATED + ")";
+        StringBuilder bucket = new StringBuilder("CASE");
+        for (int i = 0; i < TaskHistory.LATENCY_BUCKET_COUNT - 1; i++) {
+            bucket.append(" WHEN ").append(latency).append(" < ")
+                    .append(TaskHistory.getLatencyBucketBound(i)).append(" THEN ").append(i);
+        }
+        return bucket.append(" ELSE ").append(TaskHistory.LATENCY_BUCKET_COUNT - 1).append(" END")
+                .toString();
+    }
+
+    private static String completed(String row) {
+        return row + "." + TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + " > 0";
+    }
+
+    /**
+     * Inserts the row of {@code day} if it is missing and {@code condition}, if any, holds.
+     */
+    private static String insertDailyCounts(String day, String condition) {
+        return "INSERT INTO " + TasksPersistenceContract.DailyCountsEntry.TABLE_NAME + " (" +
+                TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_DAY + ") SELECT " +
+                day + " WHERE " + (condition == null ? "" : condition + " AND ") +
+                "NOT EXISTS (SELECT 1 FROM " + TasksPersistenceContract.DailyCountsEntry.TABLE_NAME +
+                " WHERE " + TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_DAY + " = " +
+                day + "); ";
+    }
+
+    private static String addToDailyCounts(String column, String day, String change,
+                                           String condition) {
+        return "UPDATE " + TasksPersistenceContract.DailyCountsEntry.TABLE_NAME + " SET " + column +
+                " = " + column + " " + change + " WHERE " +
+                (condition == null ? "" : condition + " AND ") +
+                TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_DAY + " = " + day + "; ";
+    }
+
+    /**
+     * Adds or removes, depending on {@code change}, the completion of the {@code row} of the
+     * history to the rollups, if it is completed. Their rows must exist when adding.
+     */
+    private static String countCompletion(String row, String change) {
+        String completedDay = row + "." +
+                TasksPersistenceContract.TaskHistoryEntry.COLUMN_NAME_COMPLETED_DAY;
+        return addToDailyCounts(TasksPersistenceContract.DailyCountsEntry.COLUMN_NAME_COMPLETED,
+                completedDay, change, completed(row)) +
+                "UPDATE " + TasksPersistenceContract.CompletionTimeEntry.TABLE_NAME + " SET " +
+                TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_TASKS + " = " +
+                TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_TASKS + " " + change +
+                " WHERE " + completed(row) + " AND " +
+                TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_DAY + " = " +
+                completedDay + " AND " +
+                TasksPersistenceContract.CompletionTimeEntry.COLUMN_NAME_BUCKET + " = " +
+                latencyBucket(row) + "; ";
+    }
+
+    /**
+     * The mutations already in the outbox get no times, the remote data source keeps its own.
+     */
+    private static void upgradeOutboxToVersion7(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.OutboxEntry.TABLE_NAME +
+                " ADD COLUMN " + OUTBOX_CREATED_COLUMN_DEFINITION);
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.OutboxEntry.TABLE_NAME +
+                " ADD COLUMN " + OUTBOX_COMPLETED_AT_COLUMN_DEFINITION);
+    }
+
+    /**
+     * Existing tasks get no creation time, so they stay out of the history.
+     */
+    private static void upgradeToVersion7(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME +
+                " ADD COLUMN " + CREATED_COLUMN_DEFINITION);
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME +
+                " ADD COLUMN " + COMPLETED_AT_COLUMN_DEFINITION);
+        createHistory(db);
+    }
+
+    /**
+     * Version 1 had an unused TEXT primary key and no index on the entry id. Saving an existing
+     * task also inserted a second row for it, so when copying the rows over the most recently
+     * written one wins.
+     */
+    private static void upgradeToVersion2(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME +
+                " RENAME TO " + V1_TABLE_NAME);
+        db.execSQL(SQL_CREATE_ENTRIES_V2);
+        db.execSQL("INSERT OR REPLACE INTO " + TasksPersistenceContract.TaskEntry.TABLE_NAME +
+                " (" + V1_COLUMNS + ") SELECT " + V1_COLUMNS + " FROM " + V1_TABLE_NAME +
+                " WHERE " + TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + " IS NOT NULL" +
+                " ORDER BY rowid");
+        db.execSQL("DROP TABLE " + V1_TABLE_NAME);
+    }
+
+    /**
+     * Existing rows get version 0, so the next sync fetches them again.
+     */
+    private static void upgradeToVersion3(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME +
+                " ADD COLUMN " + VERSION_COLUMN_DEFINITION);
     }
 }
@@ -16,34 +16,210 @@
 
 package com.example.android.architecture.blueprints.todoapp.data.source.local;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskCounts;
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskHistory;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksChunkSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksCountSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksHistorySource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksQuerySource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksSearchSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksTransactionSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.CompletionTimeEntry;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.DailyCountsEntry;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskEntry;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskHistoryEntry;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskSearchEntry;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.OutboxStore;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.base.Joiner;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
+import rx.Observable;
+import rx.Observer;
+import rx.observables.SyncOnSubscribe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Concrete implementation of a data source as a db.
  */
-public class TasksLocalDataSource implements TasksDataSource {
+public class TasksLocalDataSource implements TasksDataSource, TasksChunkSource,
+      TasksCountSource, TasksHistorySource, TasksQuerySource, TasksSearchSource,
+      TasksTransactionSource {
 
    private static TasksLocalDataSource INSTANCE;
 
-   private TasksDbHelper mDbHelper;
+   /**
+    * Number of rows written per transaction by {@link #saveTasks(Collection)}. Committing in
+    * chunks bounds the size of the write-ahead log and lets readers see progress on large batches.
+    */
+   private static final int SAVE_TASKS_CHUNK_SIZE = 500;
+
+   private static final String[] TASK_PROJECTION = {
+         TaskEntry.COLUMN_NAME_ENTRY_ID,
+         TaskEntry.COLUMN_NAME_TITLE,
+         TaskEntry.COLUMN_NAME_DESCRIPTION,
+         TaskEntry.COLUMN_NAME_COMPLETED,
+         TaskEntry.COLUMN_NAME_VERSION,
+         TaskEntry.COLUMN_NAME_CREATED,
+         TaskEntry.COLUMN_NAME_COMPLETED_AT
+   };
+
+   /**
+    * Number of characters of the description read by the list queries, enough for a row that
+    * falls back to it when there is no title.
+    */
+   private static final int SUMMARY_DESCRIPTION_LENGTH = 100;
+
+   // Not a column of the table, set by TASK_SUMMARY_PROJECTION only.
+   private static final String COLUMN_NAME_DESCRIPTION_TRUNCATED = "descriptiontruncated";
+
+   /**
+    * Same as {@link #TASK_PROJECTION}, except that longer descriptions are cut short by SQLite,
+    * so they are neither copied into the cursor window nor kept in memory by whoever lists the
+    * tasks. The tasks read are then {@link Task#isSummary() summaries}.
+    */
+   private static final String[] TASK_SUMMARY_PROJECTION = {
+         TaskEntry.COLUMN_NAME_ENTRY_ID,
+         TaskEntry.COLUMN_NAME_TITLE,
+         "substr(" + TaskEntry.COLUMN_NAME_DESCRIPTION + ", 1, " + SUMMARY_DESCRIPTION_LENGTH +
+               ") AS " + TaskEntry.COLUMN_NAME_DESCRIPTION,
+         "length(" + TaskEntry.COLUMN_NAME_DESCRIPTION + ") > " + SUMMARY_DESCRIPTION_LENGTH +
+               " AS " + COLUMN_NAME_DESCRIPTION_TRUNCATED,
+         TaskEntry.COLUMN_NAME_COMPLETED,
+         TaskEntry.COLUMN_NAME_VERSION,
+         TaskEntry.COLUMN_NAME_CREATED,
+         TaskEntry.COLUMN_NAME_COMPLETED_AT
+   };
+
+   /**
+    * Tasks are listed in the order they were first saved. The index on the completed column
+    * keeps its rows in that order too, so filtered lists aren't sorted either.
+    */
+   private static final String TASK_ORDER = TaskEntry._ID;
+
+   private static final String[] COUNT_BY_STATE_PROJECTION = {
+         TaskEntry.COLUMN_NAME_COMPLETED,
+         "COUNT(*)"
+   };
+
+   /**
+    * Ranks the tasks matching in their title before the others. Both full-text lookups go through
+    * the index, and the second one also finds the tasks of the first one, hence the MIN.
+    */
+   private static final String SQL_SEARCH_TASKS =
+         "SELECT " + Joiner.on(", ").join(TASK_SUMMARY_PROJECTION) +
+               " FROM " + TaskEntry.TABLE_NAME + " JOIN (" +
+               "SELECT " + TaskSearchEntry.COLUMN_NAME_DOCID + ", MIN(rank) AS rank FROM (" +
+               "SELECT " + TaskSearchEntry.COLUMN_NAME_DOCID + ", " +
+               TaskSearchQuery.RANK_TITLE + " AS rank FROM " + TaskSearchEntry.TABLE_NAME +
+               " WHERE " + TaskSearchEntry.TABLE_NAME + " MATCH ?" +
+               " UNION ALL " +
+               "SELECT " + TaskSearchEntry.COLUMN_NAME_DOCID + ", " +
+               TaskSearchQuery.RANK_DESCRIPTION + " AS rank FROM " + TaskSearchEntry.TABLE_NAME +
+               " WHERE " + TaskSearchEntry.TABLE_NAME + " MATCH ?" +
+               ") GROUP BY " + TaskSearchEntry.COLUMN_NAME_DOCID +
+               ") AS matches ON " + TaskEntry.TABLE_NAME + "." + TaskEntry._ID + " = matches." +
+               TaskSearchEntry.COLUMN_NAME_DOCID +
+               " ORDER BY matches.rank, " + TaskEntry.TABLE_NAME + "." + TaskEntry._ID +
+               " LIMIT ? OFFSET ?";
+
+   /**
+    * Saving a task updates its row, so it keeps its rowid and with it its place in the lists, and
+    * inserts one with {@link #SQL_INSERT_TASK} only if there is none. Times the task doesn't know
+    * are taken from its history, which outlives its row, then from the row itself. ?8 is the
+    * current time. Rows written before creation times were recorded keep 0.
+    */
+   private static final String SQL_UPDATE_TASK =
+         "UPDATE " + TaskEntry.TABLE_NAME + " SET " +
+               TaskEntry.COLUMN_NAME_TITLE + " = ?2, " +
+               TaskEntry.COLUMN_NAME_DESCRIPTION + " = ?3, " +
+               TaskEntry.COLUMN_NAME_COMPLETED + " = ?4, " +
+               TaskEntry.COLUMN_NAME_VERSION + " = ?5, " +
+               TaskEntry.COLUMN_NAME_CREATED + " = COALESCE(NULLIF(?6, 0), " +
+               selectByEntryId(TaskHistoryEntry.TABLE_NAME, TaskHistoryEntry.COLUMN_NAME_CREATED) +
+               ", " + TaskEntry.COLUMN_NAME_CREATED + "), " +
+               TaskEntry.COLUMN_NAME_COMPLETED_AT + " = " +
+               "CASE WHEN ?4 THEN COALESCE(NULLIF(?7, 0), " +
+               selectByEntryId(TaskHistoryEntry.TABLE_NAME,
+                     "NULLIF(" + TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + ", 0)") +
+               ", NULLIF(" + TaskEntry.COLUMN_NAME_COMPLETED_AT + ", 0), ?8) ELSE 0 END" +
+               " WHERE " + TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?1";
+
+   /**
+    * Inserts the row of a task unless {@link #SQL_UPDATE_TASK} found one, with the same
+    * parameters. Times the task doesn't know are taken from its history, then set to now.
+    */
+   private static final String SQL_INSERT_TASK =
+         "INSERT INTO " + TaskEntry.TABLE_NAME + " (" +
+               TaskEntry.COLUMN_NAME_ENTRY_ID + "," +
+               TaskEntry.COLUMN_NAME_TITLE + "," +
+               TaskEntry.COLUMN_NAME_DESCRIPTION + "," +
+               TaskEntry.COLUMN_NAME_COMPLETED + "," +
+               TaskEntry.COLUMN_NAME_VERSION + "," +
+               TaskEntry.COLUMN_NAME_CREATED + "," +
+               TaskEntry.COLUMN_NAME_COMPLETED_AT +
+               ") SELECT ?1,?2,?3,?4,?5," +
+               "COALESCE(NULLIF(?6, 0), " +
+               selectByEntryId(TaskHistoryEntry.TABLE_NAME, TaskHistoryEntry.COLUMN_NAME_CREATED) +
+               ", ?8)," +
+               "CASE WHEN ?4 THEN COALESCE(NULLIF(?7, 0), " +
+               selectByEntryId(TaskHistoryEntry.TABLE_NAME,
+                     "NULLIF(" + TaskHistoryEntry.COLUMN_NAME_COMPLETED_AT + ", 0)") +
+               ", ?8) ELSE 0 END" +
+               " WHERE NOT EXISTS (SELECT 1 FROM " + TaskEntry.TABLE_NAME + " WHERE " +
+               TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?1)";
+
+   /**
+    * A task completed again keeps its completion time, ?2 is the current time.
+    */
+   private static final String SQL_SET_COMPLETED =
+         "UPDATE " + TaskEntry.TABLE_NAME + " SET " + TaskEntry.COLUMN_NAME_COMPLETED + " = ?1, " +
+               TaskEntry.COLUMN_NAME_COMPLETED_AT + " = CASE WHEN NOT ?1 THEN 0" +
+               " WHEN " + TaskEntry.COLUMN_NAME_COMPLETED + " AND " +
+               TaskEntry.COLUMN_NAME_COMPLETED_AT + " > 0 THEN " +
+               TaskEntry.COLUMN_NAME_COMPLETED_AT + " ELSE ?2 END" +
+               " WHERE " + TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?3";
+
+   private static final String[] DAILY_COUNTS_PROJECTION = {
+         DailyCountsEntry.COLUMN_NAME_DAY,
+         DailyCountsEntry.COLUMN_NAME_CREATED,
+         DailyCountsEntry.COLUMN_NAME_COMPLETED
+   };
+
+   private static final String[] COMPLETION_TIME_PROJECTION = {
+         CompletionTimeEntry.COLUMN_NAME_BUCKET,
+         "SUM(" + CompletionTimeEntry.COLUMN_NAME_TASKS + ")"
+   };
+
+   private static final String SQL_DELETE_TASK =
+         "DELETE FROM " + TaskEntry.TABLE_NAME +
+               " WHERE " + TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?";
+
+   private DbConnectionManager mDbConnection;
+
+   private OutboxLocalStore mOutboxStore;
 
    // Prevent direct instantiation.
    private TasksLocalDataSource(@NonNull Context context) {
       checkNotNull(context);
-      mDbHelper = new TasksDbHelper(context);
+      mDbConnection = new DbConnectionManager(context, new TasksDbHelper(context));
+      mOutboxStore = new OutboxLocalStore(mDbConnection);
    }
 
    public static TasksLocalDataSource getInstance(@NonNull Context context) {
@@ -53,112 +229,308 @@ public class TasksLocalDataSource implements TasksDataSource {
       return INSTANCE;
    }
 
+   /**
+    * Returns the outbox kept in the same database, sharing its connection.
+    */
+   public OutboxStore getOutboxStore() {
+      return mOutboxStore;
+   }
+
+   /**
+    * The transactions of the writes run, including the ones to the {@link #getOutboxStore()
+    * outbox}, are nested in a single one.
+    */
    @Override
-   public ArrayList<Task> getTasks() {
+   public void runInTransaction(@NonNull Runnable writes) {
+      mDbConnection.runInTransaction(writes);
+   }
 
+   /**
+    * Closes the database connection shared by all the operations. It is reopened on next use.
+    */
+   public void close() {
+      mDbConnection.close();
+   }
 
-            ArrayList<Task> tasks = new ArrayList<Task>();
-            SQLiteDatabase db = mDbHelper.getReadableDatabase();
+   @Override
+   public List<Task> getTasks() {
+      return getTasks(TaskQuery.ALL);
+   }
 
-            String[] projection = {
-                  TaskEntry.COLUMN_NAME_ENTRY_ID,
-                  TaskEntry.COLUMN_NAME_TITLE,
-                  TaskEntry.COLUMN_NAME_DESCRIPTION,
-                  TaskEntry.COLUMN_NAME_COMPLETED
-            };
+   /**
+    * The query is translated into a WHERE clause on indexed columns, so only the matching rows
+    * are read. Like all the lists read here, the tasks with a long description are
+    * {@link Task#isSummary() summaries}, {@link #getTask(String)} reads them in full.
+    */
+   @NonNull
+   @Override
+   public List<Task> getTasks(@NonNull TaskQuery query) {
+      checkNotNull(query);
+      String selection = null;
+      String[] selectionArgs = null;
+      if (query.getCompleted() != null) {
+         selection = TaskEntry.COLUMN_NAME_COMPLETED + " = ?";
+         selectionArgs = new String[]{query.getCompleted() ? "1" : "0"};
+      }
 
-            Cursor c = db.query(
-                  TaskEntry.TABLE_NAME, projection, null, null, null, null, null);
+      List<Task> tasks = new ArrayList<Task>();
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         Cursor c = db.query(TaskEntry.TABLE_NAME, TASK_SUMMARY_PROJECTION, selection,
+               selectionArgs, null, null, TASK_ORDER);
+         try {
+            TaskCursorReader reader = new TaskCursorReader(c);
+            while (c.moveToNext()) {
+               tasks.add(reader.read(c));
+            }
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+      return tasks;
+   }
 
-            if (c != null && c.getCount() > 0) {
-               while (c.moveToNext()) {
-                  String itemId = c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_ENTRY_ID));
-                  String title = c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE));
-                  String description =
-                        c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION));
-                  boolean completed =
-                        c.getInt(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED)) == 1;
-                  Task task = new Task(title, description, itemId, completed);
-                  tasks.add(task);
+   /**
+    * A single aggregate, answered from the index on the completed column without reading the
+    * tasks themselves.
+    */
+   @NonNull
+   @Override
+   public TaskCounts countTasksByState() {
+      int activeCount = 0;
+      int completedCount = 0;
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         Cursor c = db.query(TaskEntry.TABLE_NAME, COUNT_BY_STATE_PROJECTION, null, null,
+               TaskEntry.COLUMN_NAME_COMPLETED, null, null);
+         try {
+            while (c.moveToNext()) {
+               if (c.getInt(0) == 1) {
+                  completedCount = c.getInt(1);
+               } else {
+                  activeCount += c.getInt(1);
                }
             }
-            if (c != null) {
-               c.close();
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+      return new TaskCounts(activeCount, completedCount);
+   }
+
+   /**
+    * Reads the rollups the database keeps up to date on every write, so the cost depends on the
+    * number of days and not on the number of tasks.
+    */
+   @NonNull
+   @Override
+   public TaskHistory getTaskHistory(long firstDay, long lastDay) {
+      int[] createdCounts = new int[(int) (lastDay - firstDay + 1)];
+      int[] completedCounts = new int[createdCounts.length];
+      int[] latencyCounts = new int[TaskHistory.LATENCY_BUCKET_COUNT];
+      String[] selectionArgs = {Long.toString(firstDay), Long.toString(lastDay)};
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         Cursor c = db.query(DailyCountsEntry.TABLE_NAME, DAILY_COUNTS_PROJECTION,
+               DailyCountsEntry.COLUMN_NAME_DAY + " BETWEEN ? AND ?", selectionArgs,
+               null, null, null);
+         try {
+            while (c.moveToNext()) {
+               int dayIndex = (int) (c.getLong(0) - firstDay);
+               createdCounts[dayIndex] = c.getInt(1);
+               completedCounts[dayIndex] = c.getInt(2);
+            }
+         } finally {
+            c.close();
+         }
+
+         c = db.query(CompletionTimeEntry.TABLE_NAME, COMPLETION_TIME_PROJECTION,
+               CompletionTimeEntry.COLUMN_NAME_DAY + " BETWEEN ? AND ?", selectionArgs,
+               CompletionTimeEntry.COLUMN_NAME_BUCKET, null, null);
+         try {
+            while (c.moveToNext()) {
+               latencyCounts[c.getInt(0)] = c.getInt(1);
             }
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+      return new TaskHistory(firstDay, createdCounts, completedCounts, latencyCounts);
+   }
 
-            db.close();
+   /**
+    * Emits the tasks as the cursor advances, one chunk for each one requested, so only one chunk
+    * is held here at a time and a slow subscriber doesn't get the table read ahead of it. The
+    * connection is held until the last chunk has been emitted or the subscriber unsubscribes.
+    */
+   @NonNull
+   @Override
+   public Observable<List<Task>> getTasksInChunks(final int chunkSize) {
+      if (chunkSize <= 0) {
+         throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+      }
+      return Observable.create(new SyncOnSubscribe<ChunkCursor, List<Task>>() {
+         @Override
+         protected ChunkCursor generateState() {
+            SQLiteDatabase db = mDbConnection.acquireDatabase();
+            try {
+               // No getCount(): it would read the whole table before the first row comes back.
+               Cursor c = db.query(
+                     TaskEntry.TABLE_NAME, TASK_SUMMARY_PROJECTION, null, null, null, null,
+                     TASK_ORDER);
+               try {
+                  return new ChunkCursor(db, c);
+               } catch (RuntimeException e) {
+                  c.close();
+                  throw e;
+               }
+            } catch (RuntimeException e) {
+               mDbConnection.releaseDatabase(db);
+               throw e;
+            }
+         }
 
-      return tasks;
+         @Override
+         protected ChunkCursor next(ChunkCursor state, Observer<? super List<Task>> observer) {
+            List<Task> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && state.mCursor.moveToNext()) {
+               chunk.add(state.mReader.read(state.mCursor));
+            }
+            if (!chunk.isEmpty()) {
+               observer.onNext(chunk);
+            }
+            if (chunk.size() < chunkSize) {
+               observer.onCompleted();
+            }
+            return state;
+         }
+
+         @Override
+         protected void onUnsubscribe(ChunkCursor state) {
+            state.mCursor.close();
+            mDbConnection.releaseDatabase(state.mDb);
+         }
+      });
    }
 
-
+   @NonNull
    @Override
-   public Task getTask(@NonNull final String taskId) {
-            SQLiteDatabase db = mDbHelper.getReadableDatabase();
-
-            String[] projection = {
-                  TaskEntry.COLUMN_NAME_ENTRY_ID,
-                  TaskEntry.COLUMN_NAME_TITLE,
-                  TaskEntry.COLUMN_NAME_DESCRIPTION,
-                  TaskEntry.COLUMN_NAME_COMPLETED
-            };
-
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {taskId};
-
-            Cursor c = db.query(
-                  TaskEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, null);
-
-            Task task = null;
-
-            if (c != null && c.getCount() > 0) {
-               c.moveToFirst();
-               String itemId = c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_ENTRY_ID));
-               String title = c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE));
-               String description =
-                     c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION));
-               boolean completed =
-                     c.getInt(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED)) == 1;
-               task = new Task(title, description, itemId, completed);
-            }
-            if (c != null) {
-               c.close();
+   public List<Task> searchTasks(@NonNull TaskSearchQuery query, int offset, int limit) {
+      checkNotNull(query);
+      List<Task> tasks = new ArrayList<>();
+      if (query.isEmpty() || limit <= 0) {
+         return tasks;
+      }
+      String[] selectionArgs = {
+            toMatchExpression(query, TaskSearchEntry.COLUMN_NAME_TITLE),
+            toMatchExpression(query, null),
+            Integer.toString(limit),
+            Integer.toString(Math.max(offset, 0))
+      };
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         Cursor c = db.rawQuery(SQL_SEARCH_TASKS, selectionArgs);
+         try {
+            TaskCursorReader reader = new TaskCursorReader(c);
+            while (c.moveToNext()) {
+               tasks.add(reader.read(c));
             }
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+      return tasks;
+   }
 
-            db.close();
-            return task;
+   /**
+    * Returns the full-text query matching the words that start with every term, in
+    * {@code column} only if it isn't null. Terms are only made of letters and digits, so they
+    * can't be mistaken for query syntax.
+    */
+   private static String toMatchExpression(TaskSearchQuery query, @Nullable String column) {
+      StringBuilder expression = new StringBuilder();
+      for (String term : query.getTerms()) {
+         if (expression.length() > 0) {
+            expression.append(' ');
+         }
+         if (column != null) {
+            expression.append(column).append(':');
+         }
+         expression.append(term).append('*');
+      }
+      return expression.toString();
    }
 
+   @Override
+   public Task getTask(@NonNull final String taskId) {
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?";
+         String[] selectionArgs = {taskId};
+
+         Cursor c = db.query(
+               TaskEntry.TABLE_NAME, TASK_PROJECTION, selection, selectionArgs, null, null, null);
+         try {
+            return c.moveToFirst() ? new TaskCursorReader(c).read(c) : null;
+         } finally {
+            c.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
 
    @Override
    public void saveTask(@NonNull final Task task) {
+      // The update and the insert happen in one transaction.
+      saveTasks(Collections.singletonList(checkNotNull(task)));
+   }
 
-            SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-            ContentValues values = new ContentValues();
-            values.put(TaskEntry.COLUMN_NAME_ENTRY_ID, task.getId());
-            values.put(TaskEntry.COLUMN_NAME_TITLE, task.getTitle());
-            values.put(TaskEntry.COLUMN_NAME_DESCRIPTION, task.getDescription());
-            values.put(TaskEntry.COLUMN_NAME_COMPLETED, task.isCompleted());
-
-            db.insert(TaskEntry.TABLE_NAME, null, values);
-
-            db.close();
+   @Override
+   public void saveTasks(@NonNull Collection<Task> tasks) {
+      checkNotNull(tasks);
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         SQLiteStatement update = db.compileStatement(SQL_UPDATE_TASK);
+         SQLiteStatement insert = db.compileStatement(SQL_INSERT_TASK);
+         try {
+            Iterator<Task> it = tasks.iterator();
+            while (it.hasNext()) {
+               db.beginTransaction();
+               try {
+                  long now = System.currentTimeMillis();
+                  for (int i = 0; i < SAVE_TASKS_CHUNK_SIZE && it.hasNext(); i++) {
+                     Task task = it.next();
+                     bindTask(update, task, now);
+                     update.execute();
+                     bindTask(insert, task, now);
+                     insert.execute();
+                  }
+                  db.setTransactionSuccessful();
+               } finally {
+                  db.endTransaction();
+               }
+            }
+         } finally {
+            update.close();
+            insert.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
    }
 
    @Override
    public void completeTask(@NonNull final Task task) {
-            SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-            ContentValues values = new ContentValues();
-            values.put(TaskEntry.COLUMN_NAME_COMPLETED, true);
-
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {task.getId()};
-
-            db.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
-
-            db.close();
+      setCompleted(Collections.singletonList(task.getId()), true);
    }
 
    @Override
@@ -169,17 +541,7 @@ public class TasksLocalDataSource implements TasksDataSource {
 
    @Override
    public void activateTask(@NonNull final Task task) {
-            SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-            ContentValues values = new ContentValues();
-            values.put(TaskEntry.COLUMN_NAME_COMPLETED, false);
-
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {task.getId()};
-
-            db.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
-
-            db.close();
+      setCompleted(Collections.singletonList(task.getId()), false);
    }
 
    @Override
@@ -189,15 +551,49 @@ public class TasksLocalDataSource implements TasksDataSource {
    }
 
    @Override
-   public void clearCompletedTasks() {
-            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+   public void completeTasks(@NonNull Collection<String> taskIds) {
+      setCompleted(taskIds, true);
+   }
 
-            String selection = TaskEntry.COLUMN_NAME_COMPLETED + " LIKE ?";
-            String[] selectionArgs = {"1"};
+   @Override
+   public void activateTasks(@NonNull Collection<String> taskIds) {
+      setCompleted(taskIds, false);
+   }
 
-            db.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
+   private void setCompleted(@NonNull Collection<String> taskIds, boolean completed) {
+      checkNotNull(taskIds);
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         SQLiteStatement update = db.compileStatement(SQL_SET_COMPLETED);
+         db.beginTransaction();
+         try {
+            update.bindLong(1, completed ? 1 : 0);
+            update.bindLong(2, System.currentTimeMillis());
+            for (String taskId : taskIds) {
+               update.bindString(3, taskId);
+               update.execute();
+            }
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+            update.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
 
-            db.close();
+   @Override
+   public void clearCompletedTasks() {
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         String selection = TaskEntry.COLUMN_NAME_COMPLETED + " = ?";
+         String[] selectionArgs = {"1"};
+
+         db.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
    }
 
    @Override
@@ -208,22 +604,132 @@ public class TasksLocalDataSource implements TasksDataSource {
 
    @Override
    public void deleteAllTasks() {
-      SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-      db.delete(TaskEntry.TABLE_NAME, null, null);
-
-      db.close();
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         db.delete(TaskEntry.TABLE_NAME, null, null);
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
    }
 
    @Override
    public void deleteTask(@NonNull final String taskId) {
-            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " = ?";
+         String[] selectionArgs = {taskId};
+
+         db.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
+
+   @Override
+   public void deleteTasks(@NonNull Collection<String> taskIds) {
+      checkNotNull(taskIds);
+      SQLiteDatabase db = mDbConnection.acquireDatabase();
+      try {
+         SQLiteStatement delete = db.compileStatement(SQL_DELETE_TASK);
+         db.beginTransaction();
+         try {
+            for (String taskId : taskIds) {
+               delete.bindString(1, taskId);
+               delete.execute();
+            }
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+            delete.close();
+         }
+      } finally {
+         mDbConnection.releaseDatabase(db);
+      }
+   }
+
+   /**
+    * Reads tasks from a cursor over {@link #TASK_PROJECTION} or {@link #TASK_SUMMARY_PROJECTION},
+    * with the column indices looked up once rather than for every row.
+    */
+   private static final class TaskCursorReader {
+
+      private final int mIdIndex;
+      private final int mTitleIndex;
+      private final int mDescriptionIndex;
+      private final int mCompletedIndex;
+      private final int mVersionIndex;
+      private final int mCreatedIndex;
+      private final int mCompletedAtIndex;
+      // -1 when reading full tasks.
+      private final int mDescriptionTruncatedIndex;
+
+      TaskCursorReader(Cursor c) {
+         mIdIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_ENTRY_ID);
+         mTitleIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE);
+         mDescriptionIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION);
+         mCompletedIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED);
+         mVersionIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_VERSION);
+         mCreatedIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_CREATED);
+         mCompletedAtIndex = c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED_AT);
+         mDescriptionTruncatedIndex = c.getColumnIndex(COLUMN_NAME_DESCRIPTION_TRUNCATED);
+      }
 
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {taskId};
+      /**
+       * Returns the task at the current position of {@code c}.
+       */
+      Task read(Cursor c) {
+         if (mDescriptionTruncatedIndex != -1 && c.getInt(mDescriptionTruncatedIndex) == 1) {
+            return Task.summary(c.getString(mTitleIndex), c.getString(mDescriptionIndex),
+                  c.getString(mIdIndex), c.getInt(mCompletedIndex) == 1, c.getLong(mVersionIndex),
+                  c.getLong(mCreatedIndex), c.getLong(mCompletedAtIndex));
+         }
+         return new Task(c.getString(mTitleIndex), c.getString(mDescriptionIndex),
+               c.getString(mIdIndex), c.getInt(mCompletedIndex) == 1, c.getLong(mVersionIndex),
+               c.getLong(mCreatedIndex), c.getLong(mCompletedAtIndex));
+      }
+   }
+
+   /**
+    * Cursor read by {@link #getTasksInChunks(int)}, with the connection it was opened on.
+    */
+   private static final class ChunkCursor {
 
-            db.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
+      final SQLiteDatabase mDb;
+      final Cursor mCursor;
+      final TaskCursorReader mReader;
+
+      ChunkCursor(SQLiteDatabase db, Cursor cursor) {
+         mDb = db;
+         mCursor = cursor;
+         mReader = new TaskCursorReader(cursor);
+      }
+   }
 
-            db.close();
+   /**
+    * Binds {@code task} to the parameters of {@link #SQL_UPDATE_TASK} or {@link #SQL_INSERT_TASK}.
+    */
+   private static void bindTask(SQLiteStatement statement, Task task, long now) {
+      statement.clearBindings();
+      statement.bindString(1, task.getId());
+      bindStringOrNull(statement, 2, task.getTitle());
+      bindStringOrNull(statement, 3, task.getDescription());
+      statement.bindLong(4, task.isCompleted() ? 1 : 0);
+      statement.bindLong(5, task.getVersion());
+      statement.bindLong(6, task.getCreatedAt());
+      statement.bindLong(7, task.getCompletedAt());
+      statement.bindLong(8, now);
+   }
+
+   private static String selectByEntryId(String table, String column) {
+      return "(SELECT " + column + " FROM " + table + " WHERE " + TaskEntry.COLUMN_NAME_ENTRY_ID +
+            " = ?1)";
+   }
+
+   static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+      if (value == null) {
+         statement.bindNull(index);
+      } else {
+         statement.bindString(index, value);
+      }
    }
 }
@@ -34,5 +34,58 @@ public final class TasksPersistenceContract {
         public static final String COLUMN_NAME_TITLE = "title";
         public static final String COLUMN_NAME_DESCRIPTION = "description";
         public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_VERSION = "version";
+        public static final String COLUMN_NAME_CREATED = "created";
+        public static final String COLUMN_NAME_COMPLETED_AT = "completedat";
+        public static final String INDEX_NAME_COMPLETED = "task_completed";
+    }
+
+    /*
+     * When each task ever saved was created and completed, kept after the task is deleted, with
+     * the local days of both at the time they were written, see TaskHistory#toDay
+     */
+    public static abstract class TaskHistoryEntry {
+        public static final String TABLE_NAME = "task_history";
+        public static final String COLUMN_NAME_ENTRY_ID = "entryid";
+        public static final String COLUMN_NAME_CREATED = "created";
+        public static final String COLUMN_NAME_COMPLETED_AT = "completedat";
+        public static final String COLUMN_NAME_CREATED_DAY = "createdday";
+        public static final String COLUMN_NAME_COMPLETED_DAY = "completedday";
+    }
+
+    /* Number of tasks created and completed each day, see TaskHistory#toDay */
+    public static abstract class DailyCountsEntry {
+        public static final String TABLE_NAME = "task_daily_counts";
+        public static final String COLUMN_NAME_DAY = "day";
+        public static final String COLUMN_NAME_CREATED = "created";
+        public static final String COLUMN_NAME_COMPLETED = "completed";
+    }
+
+    /* Number of tasks completed each day in each time to complete bucket */
+    public static abstract class CompletionTimeEntry {
+        public static final String TABLE_NAME = "task_completion_time";
+        public static final String COLUMN_NAME_DAY = "day";
+        public static final String COLUMN_NAME_BUCKET = "bucket";
+        public static final String COLUMN_NAME_TASKS = "tasks";
+    }
+
+    /* Full-text index of the task titles and descriptions, docid is the _ID of the task */
+    public static abstract class TaskSearchEntry {
+        public static final String TABLE_NAME = "task_fts";
+        public static final String COLUMN_NAME_DOCID = "docid";
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_DESCRIPTION = "description";
+    }
+
+    /* Mutations waiting to be sent to the remote data source, oldest _ID first */
+    public static abstract class OutboxEntry implements BaseColumns {
+        public static final String TABLE_NAME = "outbox";
+        public static final String COLUMN_NAME_OPERATION = "operation";
+        public static final String COLUMN_NAME_ENTRY_ID = "entryid";
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_DESCRIPTION = "description";
+        public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_CREATED = "created";
+        public static final String COLUMN_NAME_COMPLETED_AT = "completedat";
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation.Operation;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduces a batch of {@link PendingMutation}s to the fewest remote calls with the same outcome.
+ * <p>
+ * Mutations of the same task are folded into one: a save or a delete overrides whatever came
+ * before, completing or activating a task that is saved in the same batch is folded into the
+ * save, and of several completions and activations only the last one is kept. Mutations
+ * that apply to all tasks keep their position relative to the others, except that everything
+ * before a delete all is dropped.
+ */
+final class MutationCoalescer {
+
+   private MutationCoalescer() {
+   }
+
+   @NonNull
+   static List<PendingMutation> coalesce(@NonNull List<PendingMutation> mutations) {
+      List<PendingMutation> coalesced = new ArrayList<>();
+      // Net mutation of each task since the last mutation that applies to all tasks.
+      Map<String, PendingMutation> mutationsByTask = new LinkedHashMap<>();
+
+      for (PendingMutation mutation : mutations) {
+         String taskId = mutation.getTaskId();
+         if (taskId != null) {
+            mutationsByTask.put(taskId, merge(mutationsByTask.remove(taskId), mutation));
+            continue;
+         }
+
+         if (mutation.getOperation() == Operation.DELETE_ALL) {
+            // Nothing sent before it would survive.
+            coalesced.clear();
+            mutationsByTask.clear();
+         } else if (mutationsByTask.isEmpty() && !coalesced.isEmpty()
+               && coalesced.get(coalesced.size() - 1).getOperation() == mutation.getOperation()) {
+            // Clearing completed tasks twice in a row is the same as once.
+            continue;
+         }
+         coalesced.addAll(mutationsByTask.values());
+         mutationsByTask.clear();
+         coalesced.add(mutation);
+      }
+      coalesced.addAll(mutationsByTask.values());
+      return coalesced;
+   }
+
+   /**
+    * @return the mutation with the same outcome as {@code previous} followed by {@code next}
+    */
+   @NonNull
+   private static PendingMutation merge(@Nullable PendingMutation previous,
+                                        @NonNull PendingMutation next) {
+      if (previous == null) {
+         return next;
+      }
+      switch (next.getOperation()) {
+         case COMPLETE:
+         case ACTIVATE:
+            switch (previous.getOperation()) {
+               case SAVE:
+                  return PendingMutation.save(withCompletion(previous.getTask(), next));
+               case DELETE:
+                  // Completing a task the remote no longer has stores it again, unless all we
+                  // have is its id, in which case there is nothing to complete.
+                  return next.getTask() == null
+                        ? previous : PendingMutation.save(withCompletion(next.getTask(), next));
+               default:
+                  // Completion is set rather than toggled, and batch callers may complete tasks
+                  // that already are, so the last one wins instead of opposite flips cancelling.
+                  return next;
+            }
+         default:
+            return next;
+      }
+   }
+
+   /**
+    * Returns {@code task} completed or activated by {@code next}, at the time the task it carries
+    * was completed at. Completions by id only carry no time, they take the current one.
+    */
+   private static Task withCompletion(Task task, PendingMutation next) {
+      Task nextTask = next.getTask();
+      long completedAt = nextTask != null && nextTask.getCompletedAt() > 0
+            ? nextTask.getCompletedAt() : System.currentTimeMillis();
+      return task.withCompleted(next.getOperation() == Operation.COMPLETE, completedAt);
+   }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Durable, ordered queue of the {@link PendingMutation}s waiting to be sent to the remote data
+ * source. What was appended survives a restart of the process until it is removed.
+ */
+public interface OutboxStore {
+
+   /**
+    * Appends {@code mutations}, in order, after the ones already stored.
+    */
+   void append(@NonNull List<PendingMutation> mutations);
+
+   /**
+    * Returns up to {@code maxCount} of the oldest mutations, oldest first, with their ids set.
+    */
+   @NonNull
+   List<PendingMutation> peek(int maxCount);
+
+   /**
+    * Removes {@code mutations}, as returned by {@link #peek(int)}.
+    */
+   void remove(@NonNull List<PendingMutation> mutations);
+}
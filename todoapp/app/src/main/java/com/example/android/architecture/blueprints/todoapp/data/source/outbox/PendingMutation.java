@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable record of a mutation that was applied locally and still has to be sent to the remote
+ * data source.
+ */
+public final class PendingMutation {
+
+   public enum Operation {
+      SAVE, COMPLETE, ACTIVATE, DELETE, CLEAR_COMPLETED, DELETE_ALL
+   }
+
+   private final long mId;
+
+   @NonNull
+   private final Operation mOperation;
+
+   @Nullable
+   private final String mTaskId;
+
+   @Nullable
+   private final Task mTask;
+
+   private PendingMutation(long id, @NonNull Operation operation, @Nullable String taskId,
+                           @Nullable Task task) {
+      mId = id;
+      mOperation = checkNotNull(operation);
+      mTaskId = taskId;
+      mTask = task;
+   }
+
+   public static PendingMutation save(@NonNull Task task) {
+      return new PendingMutation(0, Operation.SAVE, task.getId(), task);
+   }
+
+   public static PendingMutation complete(@NonNull Task task) {
+      return new PendingMutation(0, Operation.COMPLETE, task.getId(), task);
+   }
+
+   public static PendingMutation activate(@NonNull Task task) {
+      return new PendingMutation(0, Operation.ACTIVATE, task.getId(), task);
+   }
+
+   /**
+    * Completes a task known by id only. Sent with {@link TasksDataSource#completeTasks}.
+    */
+   public static PendingMutation complete(@NonNull String taskId) {
+      return new PendingMutation(0, Operation.COMPLETE, checkNotNull(taskId), null);
+   }
+
+   /**
+    * Activates a task known by id only. Sent with {@link TasksDataSource#activateTasks}.
+    */
+   public static PendingMutation activate(@NonNull String taskId) {
+      return new PendingMutation(0, Operation.ACTIVATE, checkNotNull(taskId), null);
+   }
+
+   public static PendingMutation delete(@NonNull String taskId) {
+      return new PendingMutation(0, Operation.DELETE, checkNotNull(taskId), null);
+   }
+
+   public static PendingMutation clearCompleted() {
+      return new PendingMutation(0, Operation.CLEAR_COMPLETED, null, null);
+   }
+
+   public static PendingMutation deleteAll() {
+      return new PendingMutation(0, Operation.DELETE_ALL, null, null);
+   }
+
+   /**
+    * Rebuilds a mutation read back from an {@link OutboxStore}.
+    */
+   public static PendingMutation fromStore(long id, @NonNull Operation operation,
+                                           @Nullable String taskId, @Nullable Task task) {
+      return new PendingMutation(id, operation, taskId, task);
+   }
+
+   /**
+    * Position of the mutation in its {@link OutboxStore}, 0 if it isn't stored.
+    */
+   public long getId() {
+      return mId;
+   }
+
+   @NonNull
+   public Operation getOperation() {
+      return mOperation;
+   }
+
+   /**
+    * Id of the task the mutation applies to, null for the mutations that apply to all tasks.
+    */
+   @Nullable
+   public String getTaskId() {
+      return mTaskId;
+   }
+
+   /**
+    * The task to send, for {@link Operation#SAVE}, and for {@link Operation#COMPLETE} and
+    * {@link Operation#ACTIVATE} unless they were created with an id only.
+    */
+   @Nullable
+   public Task getTask() {
+      return mTask;
+   }
+
+   /**
+    * Applies this mutation to {@code tasksDataSource}.
+    */
+   public void applyTo(@NonNull TasksDataSource tasksDataSource) {
+      switch (mOperation) {
+         case SAVE:
+            tasksDataSource.saveTask(mTask);
+            break;
+         case COMPLETE:
+            if (mTask != null) {
+               tasksDataSource.completeTask(mTask);
+            } else {
+               tasksDataSource.completeTasks(Collections.singletonList(mTaskId));
+            }
+            break;
+         case ACTIVATE:
+            if (mTask != null) {
+               tasksDataSource.activateTask(mTask);
+            } else {
+               tasksDataSource.activateTasks(Collections.singletonList(mTaskId));
+            }
+            break;
+         case DELETE:
+            tasksDataSource.deleteTask(mTaskId);
+            break;
+         case CLEAR_COMPLETED:
+            tasksDataSource.clearCompletedTasks();
+            break;
+         case DELETE_ALL:
+            tasksDataSource.deleteAllTasks();
+            break;
+         default:
+            throw new IllegalStateException("Unknown operation " + mOperation);
+      }
+   }
+
+   /**
+    * Applies {@code mutations} in order to {@code tasksDataSource}, sending each run of saves,
+    * completions, activations or deletions with a single batch call.
+    */
+   public static void applyAll(@NonNull List<PendingMutation> mutations,
+                               @NonNull TasksDataSource tasksDataSource) {
+      List<PendingMutation> run = new ArrayList<>();
+      for (PendingMutation mutation : mutations) {
+         if (!run.isEmpty() && run.get(0).mOperation != mutation.mOperation) {
+            applyRun(run, tasksDataSource);
+            run.clear();
+         }
+         if (isBatchable(mutation.mOperation)) {
+            run.add(mutation);
+         } else {
+            mutation.applyTo(tasksDataSource);
+         }
+      }
+      if (!run.isEmpty()) {
+         applyRun(run, tasksDataSource);
+      }
+   }
+
+   private static boolean isBatchable(Operation operation) {
+      return operation != Operation.CLEAR_COMPLETED && operation != Operation.DELETE_ALL;
+   }
+
+   // All the mutations in run have the same, batchable, operation.
+   private static void applyRun(List<PendingMutation> run, TasksDataSource tasksDataSource) {
+      Operation operation = run.get(0).mOperation;
+      if (operation == Operation.SAVE) {
+         List<Task> tasks = new ArrayList<>(run.size());
+         for (PendingMutation mutation : run) {
+            tasks.add(mutation.mTask);
+         }
+         tasksDataSource.saveTasks(tasks);
+         return;
+      }
+
+      List<String> taskIds = new ArrayList<>(run.size());
+      for (PendingMutation mutation : run) {
+         taskIds.add(mutation.mTaskId);
+      }
+      switch (operation) {
+         case COMPLETE:
+            tasksDataSource.completeTasks(taskIds);
+            break;
+         case ACTIVATE:
+            tasksDataSource.activateTasks(taskIds);
+            break;
+         case DELETE:
+            tasksDataSource.deleteTasks(taskIds);
+            break;
+         default:
+            throw new IllegalStateException("Not batchable " + operation);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return mOperation + (mTaskId == null ? "" : " " + mTaskId);
+   }
+}
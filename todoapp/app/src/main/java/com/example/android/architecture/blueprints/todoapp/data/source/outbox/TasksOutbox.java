@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Write-behind queue between the {@link
+ * com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository} and the remote
+ * data source.
+ * <p>
+ * Mutations are stored in a durable {@link OutboxStore} and sent by a background worker, so local
+ * writes never wait for the network. The worker sends the oldest mutations in batches, coalesced
+ * by {@link MutationCoalescer}, and only removes a batch once it was fully accepted. When the
+ * remote data source fails, the whole batch is retried later with an exponential backoff; every
+ * mutation sets a state rather than changing it, so sending one twice is harmless.
+ */
+public class TasksOutbox {
+
+   private static TasksOutbox INSTANCE;
+
+   @VisibleForTesting
+   static final int BATCH_SIZE = 100;
+
+   @VisibleForTesting
+   static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+
+   @VisibleForTesting
+   static final long MAX_RETRY_DELAY_MILLIS = 5 * 60 * 1000;
+
+   private final OutboxStore mStore;
+
+   private final TasksDataSource mTasksRemoteDataSource;
+
+   private final ScheduledExecutorService mExecutor;
+
+   /**
+    * Held while sending, so the worker and {@link #flush()} never send the same batch at once.
+    */
+   private final Object mDrainLock = new Object();
+
+   // Guarded by this.
+   private boolean mDrainScheduled;
+
+   // Delay before the next attempt, 0 while the remote data source accepts mutations. Guarded by
+   // this.
+   private long mRetryDelayMillis;
+
+   private final Runnable mDrainTask = new Runnable() {
+      @Override
+      public void run() {
+         synchronized (TasksOutbox.this) {
+            mDrainScheduled = false;
+         }
+         drain();
+      }
+   };
+
+   @VisibleForTesting
+   TasksOutbox(@NonNull OutboxStore store, @NonNull TasksDataSource tasksRemoteDataSource,
+               @NonNull ScheduledExecutorService executor) {
+      mStore = checkNotNull(store);
+      mTasksRemoteDataSource = checkNotNull(tasksRemoteDataSource);
+      mExecutor = checkNotNull(executor);
+   }
+
+   /**
+    * Returns the single instance of this class, creating it if necessary. A new instance starts
+    * sending whatever was left in {@code store} by a previous process.
+    */
+   public static synchronized TasksOutbox getInstance(@NonNull OutboxStore store,
+                                                      @NonNull TasksDataSource tasksRemoteDataSource) {
+      if (INSTANCE == null) {
+         INSTANCE = new TasksOutbox(store, tasksRemoteDataSource,
+               Executors.newSingleThreadScheduledExecutor());
+         INSTANCE.scheduleDrain();
+      }
+      return INSTANCE;
+   }
+
+   public void enqueue(@NonNull PendingMutation mutation) {
+      enqueue(Collections.singletonList(mutation));
+   }
+
+   /**
+    * Stores {@code mutations} and schedules sending them, unless the remote data source is
+    * failing, in which case they go with the next retry.
+    */
+   public void enqueue(@NonNull List<PendingMutation> mutations) {
+      mStore.append(mutations);
+      scheduleDrain();
+   }
+
+   /**
+    * Stores {@code mutations} without scheduling them, so that a caller can store them in the
+    * same transaction as the local write they mirror, when the store shares its database. The
+    * caller must then call {@link #scheduleDrain()} once the transaction is committed.
+    */
+   public void append(@NonNull List<PendingMutation> mutations) {
+      mStore.append(mutations);
+   }
+
+   /**
+    * Sends the pending mutations on the calling thread.
+    *
+    * @return true if nothing is left to send
+    */
+   public boolean flush() {
+      return drain();
+   }
+
+   @VisibleForTesting
+   boolean drain() {
+      synchronized (mDrainLock) {
+         while (true) {
+            List<PendingMutation> batch = mStore.peek(BATCH_SIZE);
+            if (batch.isEmpty()) {
+               onDrainSucceeded();
+               return true;
+            }
+            try {
+               PendingMutation.applyAll(MutationCoalescer.coalesce(batch), mTasksRemoteDataSource);
+            } catch (RuntimeException e) {
+               onDrainFailed();
+               return false;
+            }
+            mStore.remove(batch);
+         }
+      }
+   }
+
+   /**
+    * Schedules sending the stored mutations, unless the remote data source is failing, in which
+    * case they go with the next retry.
+    */
+   public synchronized void scheduleDrain() {
+      if (!mDrainScheduled) {
+         mDrainScheduled = true;
+         mExecutor.schedule(mDrainTask, mRetryDelayMillis, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private synchronized void onDrainSucceeded() {
+      mRetryDelayMillis = 0;
+   }
+
+   private synchronized void onDrainFailed() {
+      mRetryDelayMillis = mRetryDelayMillis == 0
+            ? INITIAL_RETRY_DELAY_MILLIS : Math.min(2 * mRetryDelayMillis, MAX_RETRY_DELAY_MILLIS);
+      scheduleDrain();
+   }
+}
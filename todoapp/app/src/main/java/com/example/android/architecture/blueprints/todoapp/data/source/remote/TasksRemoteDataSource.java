@@ -18,19 +18,32 @@ package com.example.android.architecture.blueprints.todoapp.data.source.remote;
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskCounts;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksCountSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDelta;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDeltaSource;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /**
  * Implementation of the data source that adds a latency simulating network.
+ * <p>
+ * Every modification is stamped with a new version and deletions leave a tombstone behind, so
+ * clients can sync incrementally through {@link #getTasksChangedSince(long)}.
  */
-public class TasksRemoteDataSource implements TasksDataSource {
+public class TasksRemoteDataSource
+        implements TasksDataSource, TasksCountSource, TasksDeltaSource {
 
     private static TasksRemoteDataSource INSTANCE;
 
@@ -38,8 +51,16 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     private static final Map<String, Task> TASKS_SERVICE_DATA;
 
+    // Version each deleted task was deleted at, keyed by task id. Guarded by TASKS_SERVICE_DATA.
+    // A real service would expire tombstones older than the oldest watermark it still serves.
+    private static final Map<String, Long> TOMBSTONES = new HashMap<>();
+
+    // Last version handed out. Guarded by TASKS_SERVICE_DATA.
+    private static long sVersion;
+
     static {
-        TASKS_SERVICE_DATA = new LinkedHashMap<>(2);
+        // Synchronized like a real service would be, requests can come from several threads.
+        TASKS_SERVICE_DATA = Collections.synchronizedMap(new LinkedHashMap<String, Task>(2));
         addTask("Build tower in Pisa", "Ground looks good, no foundation work required.");
         addTask("Finish bridge in Tacoma", "Found awesome girders at half the cost!");
     }
@@ -56,7 +77,33 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     private static void addTask(String title, String description) {
         Task newTask = new Task(title, description);
-        TASKS_SERVICE_DATA.put(newTask.getId(), newTask);
+        putTask(newTask);
+    }
+
+    /**
+     * Waits like a request to the service would. A cancelled caller is interrupted, and gives up
+     * with a {@link CancellationException} instead of waiting for a response it won't use.
+     */
+    private static void simulateLatency() {
+        try {
+            Thread.sleep(SERVICE_LATENCY_IN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Request to the tasks service cancelled");
+        }
+    }
+
+    /**
+     * Stores a copy of {@code task} stamped with the next version.
+     */
+    private static void putTask(Task task) {
+        synchronized (TASKS_SERVICE_DATA) {
+            long version = ++sVersion;
+            TASKS_SERVICE_DATA.put(task.getId(), new Task(task.getTitle(), task.getDescription(),
+                    task.getId(), task.isCompleted(), version, task.getCreatedAt(),
+                    task.getCompletedAt()));
+            TOMBSTONES.remove(task.getId());
+        }
     }
 
     /**
@@ -65,37 +112,88 @@ public class TasksRemoteDataSource implements TasksDataSource {
      * returns an error.
      */
     @Override
-    public ArrayList<Task> getTasks() {
+    public List<Task> getTasks() {
 
-        try {
-            Thread.sleep(SERVICE_LATENCY_IN_MILLIS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        simulateLatency();
+
+        synchronized (TASKS_SERVICE_DATA) {
+            return Lists.newArrayList(TASKS_SERVICE_DATA.values());
         }
+    }
 
-        return Lists.newArrayList(TASKS_SERVICE_DATA.values());
+    /**
+     * Same latency as {@link #getTasks()}, but only the tasks modified or deleted after
+     * {@code watermark} are transferred.
+     */
+    @NonNull
+    @Override
+    public TasksDelta getTasksChangedSince(long watermark) {
+
+        simulateLatency();
+
+        synchronized (TASKS_SERVICE_DATA) {
+            List<Task> changedTasks = new ArrayList<>();
+            for (Task task : TASKS_SERVICE_DATA.values()) {
+                if (task.getVersion() > watermark) {
+                    changedTasks.add(task);
+                }
+            }
+            List<String> deletedTaskIds = new ArrayList<>();
+            if (watermark > 0) {
+                for (Map.Entry<String, Long> tombstone : TOMBSTONES.entrySet()) {
+                    if (tombstone.getValue() > watermark) {
+                        deletedTaskIds.add(tombstone.getKey());
+                    }
+                }
+            }
+            return new TasksDelta(watermark, sVersion, changedTasks, deletedTaskIds);
+        }
     }
 
 
+    /**
+     * Same latency as {@link #getTasks()}, but only a summary of the tasks is transferred.
+     */
+    @NonNull
     @Override
-    public Task getTask(@NonNull String taskId) {
-        try {
-            Thread.sleep(SERVICE_LATENCY_IN_MILLIS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    public TaskCounts countTasksByState() {
+
+        simulateLatency();
+
+        synchronized (TASKS_SERVICE_DATA) {
+            int completedCount = 0;
+            for (Task task : TASKS_SERVICE_DATA.values()) {
+                if (task.isCompleted()) {
+                    completedCount++;
+                }
+            }
+            return new TaskCounts(TASKS_SERVICE_DATA.size() - completedCount, completedCount);
         }
+    }
+
+    @Override
+    public Task getTask(@NonNull String taskId) {
+        simulateLatency();
         return TASKS_SERVICE_DATA.get(taskId);
     }
 
     @Override
     public void saveTask(@NonNull final Task task) {
-                TASKS_SERVICE_DATA.put(task.getId(), task);
+        putTask(task);
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        synchronized (TASKS_SERVICE_DATA) {
+            for (Task task : tasks) {
+                putTask(task);
+            }
+        }
     }
 
     @Override
     public void completeTask(@NonNull final Task task) {
-                Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-                TASKS_SERVICE_DATA.put(task.getId(), completedTask);
+        putTask(withCompleted(task, true, System.currentTimeMillis()));
     }
 
     @Override
@@ -106,8 +204,7 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     @Override
     public void activateTask(@NonNull final Task task) {
-                Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-                TASKS_SERVICE_DATA.put(task.getId(), activeTask);
+        putTask(withCompleted(task, false, 0));
     }
 
     @Override
@@ -116,15 +213,51 @@ public class TasksRemoteDataSource implements TasksDataSource {
         // converting from a {@code taskId} to a {@link task} using its cached data.
     }
 
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, true);
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, false);
+    }
+
+    private static void setCompleted(Collection<String> taskIds, boolean completed) {
+        long now = System.currentTimeMillis();
+        synchronized (TASKS_SERVICE_DATA) {
+            for (String taskId : taskIds) {
+                Task task = TASKS_SERVICE_DATA.get(taskId);
+                if (task != null) {
+                    putTask(withCompleted(task, completed, now));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns {@code task} completed at {@code now}, or activated. A task that was already
+     * completed keeps its completion time.
+     */
+    private static Task withCompleted(Task task, boolean completed, long now) {
+        if (completed && task.getCompletedAt() > 0) {
+            return task;
+        }
+        return task.withCompleted(completed, now);
+    }
+
     @Override
     public void clearCompletedTasks() {
-                Iterator<Map.Entry<String, Task>> it = TASKS_SERVICE_DATA.entrySet().iterator();
-                while (it.hasNext()) {
-                    Map.Entry<String, Task> entry = it.next();
-                    if (entry.getValue().isCompleted()) {
-                        it.remove();
-                    }
+        synchronized (TASKS_SERVICE_DATA) {
+            Iterator<Map.Entry<String, Task>> it = TASKS_SERVICE_DATA.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Task> entry = it.next();
+                if (entry.getValue().isCompleted()) {
+                    it.remove();
+                    TOMBSTONES.put(entry.getKey(), ++sVersion);
                 }
+            }
+        }
     }
 
     @Override
@@ -135,11 +268,27 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     @Override
     public void deleteAllTasks() {
-        TASKS_SERVICE_DATA.clear();
+        synchronized (TASKS_SERVICE_DATA) {
+            for (String taskId : TASKS_SERVICE_DATA.keySet()) {
+                TOMBSTONES.put(taskId, ++sVersion);
+            }
+            TASKS_SERVICE_DATA.clear();
+        }
     }
 
     @Override
     public void deleteTask(@NonNull final String taskId) {
-                TASKS_SERVICE_DATA.remove(taskId);
+        deleteTasks(Collections.singletonList(taskId));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        synchronized (TASKS_SERVICE_DATA) {
+            for (String taskId : taskIds) {
+                if (TASKS_SERVICE_DATA.remove(taskId) != null) {
+                    TOMBSTONES.put(taskId, ++sVersion);
+                }
+            }
+        }
     }
 }
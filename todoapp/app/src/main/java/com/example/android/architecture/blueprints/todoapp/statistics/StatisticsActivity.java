@@ -73,7 +73,8 @@ public class StatisticsActivity extends AppCompatActivity {
 
       new StatisticsPresenter(
             statisticsFragment,
-            Injection.provideGetStatistics(getApplicationContext()));
+            Injection.provideGetStatistics(getApplicationContext()),
+            Injection.provideGetCompletionTrends(getApplicationContext()));
    }
 
    @Override
@@ -18,6 +18,7 @@ package com.example.android.architecture.blueprints.todoapp.statistics;
 
 import com.example.android.architecture.blueprints.todoapp.BasePresenter;
 import com.example.android.architecture.blueprints.todoapp.BaseView;
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.CompletionTrends;
 
 /**
  * This specifies the contract between the view and the presenter.
@@ -30,6 +31,8 @@ public interface StatisticsContract {
 
         void showStatistics(int numberOfIncompleteTasks, int numberOfCompletedTasks);
 
+        void showCompletionTrends(CompletionTrends trends);
+
         void showLoadingStatisticsError();
 
         boolean isActive();
@@ -37,5 +40,9 @@ public interface StatisticsContract {
 
     interface Presenter extends BasePresenter {
 
+        /**
+         * Shows the trends of the last {@code days}, today included.
+         */
+        void setTrendDays(int days);
     }
 }
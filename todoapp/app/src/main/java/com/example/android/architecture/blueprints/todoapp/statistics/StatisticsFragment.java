@@ -23,9 +23,13 @@ import android.support.v4.app.Fragment;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 
 import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.CompletionTrends;
+
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -36,6 +40,8 @@ public class StatisticsFragment extends Fragment implements StatisticsContract.V
 
     private TextView mStatisticsTV;
 
+    private TextView mTrendsTV;
+
     private StatisticsContract.Presenter mPresenter;
 
     public static StatisticsFragment newInstance() {
@@ -53,6 +59,20 @@ public class StatisticsFragment extends Fragment implements StatisticsContract.V
                              Bundle savedInstanceState) {
         View root = inflater.inflate(R.layout.statistics_frag, container, false);
         mStatisticsTV = (TextView) root.findViewById(R.id.statistics);
+        mTrendsTV = (TextView) root.findViewById(R.id.trends);
+        RadioGroup trendDays = (RadioGroup) root.findViewById(R.id.trend_days);
+        trendDays.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(RadioGroup group, int checkedId) {
+                if (checkedId == R.id.trend_90_days) {
+                    mPresenter.setTrendDays(90);
+                } else if (checkedId == R.id.trend_365_days) {
+                    mPresenter.setTrendDays(365);
+                } else {
+                    mPresenter.setTrendDays(30);
+                }
+            }
+        });
         return root;
     }
 
@@ -83,6 +103,31 @@ public class StatisticsFragment extends Fragment implements StatisticsContract.V
         }
     }
 
+    @Override
+    public void showCompletionTrends(CompletionTrends trends) {
+        String displayString = getString(R.string.statistics_trends, trends.getCreatedTasks(),
+                trends.getCompletedTasks(),
+                (float) trends.getCompletedTasks() / trends.getDays());
+        if (trends.getCompletedTasks() == 0) {
+            displayString += "\n" + getString(R.string.statistics_no_completed_tasks);
+        } else {
+            displayString += "\n" + getString(R.string.statistics_median_time_to_complete,
+                    formatDuration(trends.getMedianTimeToComplete()));
+        }
+        mTrendsTV.setText(displayString);
+    }
+
+    private String formatDuration(long millis) {
+        if (millis < TimeUnit.HOURS.toMillis(1)) {
+            return getString(R.string.statistics_duration_minutes,
+                    TimeUnit.MILLISECONDS.toMinutes(millis));
+        } else if (millis < TimeUnit.DAYS.toMillis(2)) {
+            return getString(R.string.statistics_duration_hours,
+                    TimeUnit.MILLISECONDS.toHours(millis));
+        }
+        return getString(R.string.statistics_duration_days, TimeUnit.MILLISECONDS.toDays(millis));
+    }
+
     @Override
     public void showLoadingStatisticsError() {
         mStatisticsTV.setText(getResources().getString(R.string.statistics_error));
@@ -18,7 +18,9 @@ package com.example.android.architecture.blueprints.todoapp.statistics;
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.CompletionTrends;
 import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.Statistics;
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase.GetCompletionTrends;
 import com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase.GetStatistics;
 
 import rx.Subscriber;
@@ -31,14 +33,22 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class StatisticsPresenter implements StatisticsContract.Presenter {
 
+    static final int DEFAULT_TREND_DAYS = 30;
+
     private final StatisticsContract.View mStatisticsView;
     private final GetStatistics getStatistics;
+    private final GetCompletionTrends getCompletionTrends;
+
+    private int mTrendDays = DEFAULT_TREND_DAYS;
 
     public StatisticsPresenter(
             @NonNull StatisticsContract.View statisticsView,
-            @NonNull GetStatistics getStatistics) {
+            @NonNull GetStatistics getStatistics,
+            @NonNull GetCompletionTrends getCompletionTrends) {
         mStatisticsView = checkNotNull(statisticsView, "StatisticsView cannot be null!");
         this.getStatistics = checkNotNull(getStatistics,"getStatistics cannot be null!");
+        this.getCompletionTrends =
+                checkNotNull(getCompletionTrends, "getCompletionTrends cannot be null!");
 
         mStatisticsView.setPresenter(this);
     }
@@ -46,11 +56,19 @@ public class StatisticsPresenter implements StatisticsContract.Presenter {
     @Override
     public void start() {
         loadStatistics();
+        loadCompletionTrends();
+    }
+
+    @Override
+    public void setTrendDays(int days) {
+        mTrendDays = days;
+        loadCompletionTrends();
     }
 
     @Override
     public void onDestroyView() {
         getStatistics.unsubscribe();
+        getCompletionTrends.unsubscribe();
     }
 
     private void loadStatistics() {
@@ -82,4 +100,32 @@ public class StatisticsPresenter implements StatisticsContract.Presenter {
             }
         });
     }
+
+    private void loadCompletionTrends() {
+        getCompletionTrends.execute(new GetCompletionTrends.RequestValues(mTrendDays),
+                new Subscriber<CompletionTrends>() {
+            @Override
+            public void onCompleted() {
+
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                // The view may not be able to handle UI updates anymore
+                if (!mStatisticsView.isActive()) {
+                    return;
+                }
+                mStatisticsView.showLoadingStatisticsError();
+            }
+
+            @Override
+            public void onNext(CompletionTrends trends) {
+                // The view may not be able to handle UI updates anymore
+                if (!mStatisticsView.isActive()) {
+                    return;
+                }
+                mStatisticsView.showCompletionTrends(trends);
+            }
+        });
+    }
 }
@@ -0,0 +1,54 @@
+package com.example.android.architecture.blueprints.todoapp.statistics.domain.model;
+
+/**
+ * How many tasks were created and completed over the last days, and how long they took.
+ */
+public class CompletionTrends {
+
+    private final int days;
+    private final int createdTasks;
+    private final int[] completedTasksPerDay;
+    private final long medianTimeToComplete;
+
+
+    /**
+     * @param createdTasks         number of tasks created over the days
+     * @param completedTasksPerDay number of tasks completed each day, oldest first
+     * @param medianTimeToComplete median time the tasks completed over the days took to
+     *                             complete in milliseconds, 0 if none was completed
+     */
+    public CompletionTrends(int createdTasks, int[] completedTasksPerDay,
+                            long medianTimeToComplete) {
+        this.days = completedTasksPerDay.length;
+        this.createdTasks = createdTasks;
+        this.completedTasksPerDay = completedTasksPerDay.clone();
+        this.medianTimeToComplete = medianTimeToComplete;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public int getCreatedTasks() {
+        return createdTasks;
+    }
+
+    public int getCompletedTasks() {
+        int completedTasks = 0;
+        for (int count : completedTasksPerDay) {
+            completedTasks += count;
+        }
+        return completedTasks;
+    }
+
+    /**
+     * @param day index of the day, 0 for the oldest one
+     */
+    public int getCompletedTasks(int day) {
+        return completedTasksPerDay[day];
+    }
+
+    public long getMedianTimeToComplete() {
+        return medianTimeToComplete;
+    }
+}
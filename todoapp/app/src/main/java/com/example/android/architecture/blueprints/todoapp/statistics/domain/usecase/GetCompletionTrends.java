@@ -0,0 +1,77 @@
+package com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskHistory;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.CompletionTrends;
+
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+
+/**
+ * Reads how many tasks were created and completed over the last days, today included, from the
+ * history kept by the {@link TasksRepository}.
+ */
+public class GetCompletionTrends extends UseCaseRx<GetCompletionTrends.RequestValues> {
+
+   private final TasksRepository tasksRepository;
+
+   public GetCompletionTrends(Scheduler threadExecutor, Scheduler postExecutionThread,
+                              @NonNull TasksRepository tasksRepository) {
+      super(threadExecutor, postExecutionThread);
+      this.tasksRepository = tasksRepository;
+   }
+
+   @Override
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.LATEST_WINS;
+   }
+
+   @Override
+   protected Observable<CompletionTrends> buildUseCaseObservable(
+         final RequestValues requestValues) {
+      return Observable.fromCallable(new Callable<TaskHistory>() {
+         @Override
+         public TaskHistory call() throws Exception {
+            long today = TaskHistory.toDay(System.currentTimeMillis());
+            return tasksRepository.getTaskHistory(today - requestValues.getDays() + 1, today);
+         }
+      })
+            .map(new Func1<TaskHistory, CompletionTrends>() {
+
+               @Override
+               public CompletionTrends call(TaskHistory history) {
+                  int[] completedTasksPerDay = new int[history.getDayCount()];
+                  for (int i = 0; i < completedTasksPerDay.length; i++) {
+                     completedTasksPerDay[i] = history.getCompletedCount(i);
+                  }
+                  return new CompletionTrends(history.getTotalCreatedCount(),
+                        completedTasksPerDay, history.getMedianTimeToComplete());
+               }
+            });
+   }
+
+   public static final class RequestValues extends UseCaseRx.RequestValues {
+
+      private final int mDays;
+
+      /**
+       * @param days number of days to go back, today included
+       */
+      public RequestValues(int days) {
+         if (days <= 0) {
+            throw new IllegalArgumentException("days must be positive: " + days);
+         }
+         mDays = days;
+      }
+
+      public int getDays() {
+         return mDays;
+      }
+   }
+}
@@ -4,10 +4,11 @@ import android.support.annotation.NonNull;
 
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskCounts;
 import com.example.android.architecture.blueprints.todoapp.statistics.domain.model.Statistics;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
-import java.util.ArrayList;
+import java.util.concurrent.Callable;
 
 import rx.Observable;
 import rx.Scheduler;
@@ -25,27 +26,25 @@ public class GetStatistics extends UseCaseRx<GetStatistics.RequestValues> {
       this.tasksRepository = tasksRepository;
    }
 
+   @Override
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.LATEST_WINS;
+   }
+
    @Override
    protected Observable<Statistics> buildUseCaseObservable(RequestValues requestValues) {
 
-      return Observable.just(tasksRepository.getTasks())
-            .map(new Func1<ArrayList<Task>, Statistics>() {
+      return Observable.fromCallable(new Callable<TaskCounts>() {
+         @Override
+         public TaskCounts call() throws Exception {
+            return tasksRepository.getTaskCounts();
+         }
+      })
+            .map(new Func1<TaskCounts, Statistics>() {
 
                @Override
-               public Statistics call(ArrayList<Task> tasks) {
-
-                  int activeTasks = 0;
-                  int completedTasks = 0;
-
-                  // We calculate number of active and completed tasks
-                  for (Task task : tasks) {
-                     if (task.isCompleted()) {
-                        completedTasks += 1;
-                     } else {
-                        activeTasks += 1;
-                     }
-                  }
-                  return new Statistics(completedTasks, activeTasks);
+               public Statistics call(TaskCounts counts) {
+                  return new Statistics(counts.getCompletedCount(), counts.getActiveCount());
                }
             });
    }
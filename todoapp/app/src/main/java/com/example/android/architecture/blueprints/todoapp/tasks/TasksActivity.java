@@ -75,6 +75,7 @@ public class TasksActivity extends AppCompatActivity {
         mTasksPresenter = new TasksPresenter(
                 tasksFragment,
                 Injection.provideGetTasks(getApplicationContext()),
+                Injection.provideObserveTasks(getApplicationContext()),
                 Injection.provideCompleteTasks(getApplicationContext()),
                 Injection.provideActivateTask(getApplicationContext()),
                 Injection.provideClearCompleteTasks(getApplicationContext())
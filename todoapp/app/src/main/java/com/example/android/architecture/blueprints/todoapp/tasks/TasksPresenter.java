@@ -26,8 +26,8 @@ import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.ClearCompleteTasks;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.CompleteTask;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.GetTasks;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.ObserveTasks;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import rx.Subscriber;
@@ -43,6 +43,7 @@ public class TasksPresenter implements TasksContract.Presenter {
 
    private final TasksContract.View mTasksView;
    private final GetTasks getTasks;
+   private final ObserveTasks observeTasks;
    private final CompleteTask completeTask;
    private final ActivateTask activateTask;
    private final ClearCompleteTasks clearCompleteTasks;
@@ -54,10 +55,12 @@ public class TasksPresenter implements TasksContract.Presenter {
 
    public TasksPresenter(
                          @NonNull TasksContract.View tasksView, @NonNull GetTasks getTasks,
+                         @NonNull ObserveTasks observeTasks,
                          @NonNull CompleteTask completeTask, @NonNull ActivateTask activateTask,
                          @NonNull ClearCompleteTasks clearCompleteTasks) {
       mTasksView = checkNotNull(tasksView, "tasksView cannot be null!");
       this.getTasks = checkNotNull(getTasks, "getTask cannot be null!");
+      this.observeTasks = checkNotNull(observeTasks, "observeTasks cannot be null!");
       this.completeTask = checkNotNull(completeTask, "completeTask cannot be null!");
       this.activateTask = checkNotNull(activateTask, "activateTask cannot be null!");
       this.clearCompleteTasks = checkNotNull(clearCompleteTasks,
@@ -75,6 +78,7 @@ public class TasksPresenter implements TasksContract.Presenter {
    @Override
    public void onDestroyView() {
       getTasks.unsubscribe();
+      observeTasks.unsubscribe();
       activateTask.unsubscribe();
       completeTask.unsubscribe();
       clearCompleteTasks.unsubscribe();
@@ -97,6 +101,9 @@ public class TasksPresenter implements TasksContract.Presenter {
    }
 
    /**
+    * Shows the tasks matching the current filter, and keeps showing them as they change until the
+    * view is destroyed or the filter changes, so writes don't need to load the tasks again.
+    *
     * @param forceUpdate   Pass in true to refresh the data in the {@link TasksDataSource}
     * @param showLoadingUI Pass in true to display a loading icon in the UI
     */
@@ -104,12 +111,16 @@ public class TasksPresenter implements TasksContract.Presenter {
       if (showLoadingUI) {
          mTasksView.setLoadingIndicator(true);
       }
+      if (forceUpdate) {
+         refreshTasks(showLoadingUI);
+      }
 
-      getTasks.execute(new GetTasks.RequestValues(forceUpdate, currentFiltering),
-            new Subscriber<ArrayList<Task>>() {
+      // The tasks available locally are shown right away, the refreshed ones once they arrive.
+      final boolean hideLoadingUI = showLoadingUI && !forceUpdate;
+      observeTasks.execute(new ObserveTasks.RequestValues(currentFiltering),
+            new Subscriber<List<Task>>() {
                @Override
                public void onCompleted() {
-
                }
 
                @Override
@@ -122,11 +133,11 @@ public class TasksPresenter implements TasksContract.Presenter {
                }
 
                @Override
-               public void onNext(ArrayList<Task> tasks) {
+               public void onNext(List<Task> tasks) {
                   if (!mTasksView.isActive()) {
                      return;
                   }
-                  if (showLoadingUI) {
+                  if (hideLoadingUI) {
                      mTasksView.setLoadingIndicator(false);
                   }
                   processTasks(tasks);
@@ -134,6 +145,38 @@ public class TasksPresenter implements TasksContract.Presenter {
             });
    }
 
+   /**
+    * Fetches the tasks from the remote data source. They reach the view through the observation
+    * started by {@link #loadTasks(boolean, boolean)}.
+    */
+   private void refreshTasks(final boolean showLoadingUI) {
+      getTasks.execute(new GetTasks.RequestValues(true, currentFiltering),
+            new Subscriber<List<Task>>() {
+               @Override
+               public void onCompleted() {
+                  if (!mTasksView.isActive()) {
+                     return;
+                  }
+                  if (showLoadingUI) {
+                     mTasksView.setLoadingIndicator(false);
+                  }
+               }
+
+               @Override
+               public void onError(Throwable e) {
+                  // The view may not be able to handle UI updates anymore
+                  if (!mTasksView.isActive()) {
+                     return;
+                  }
+                  mTasksView.showLoadingTasksError();
+               }
+
+               @Override
+               public void onNext(List<Task> tasks) {
+               }
+            });
+   }
+
    private void processTasks(List<Task> tasks) {
       if (tasks.isEmpty()) {
          // Show a message indicating there are no tasks for that filter type.
@@ -189,11 +232,12 @@ public class TasksPresenter implements TasksContract.Presenter {
    public void completeTask(@NonNull Task completedTask) {
       checkNotNull(completedTask, "completedTask cannot be null!");
 
-      completeTask.execute(new CompleteTask.RequestValues(completedTask.getId()), new Subscriber() {
+      CompleteTask.RequestValues requestValues =
+            new CompleteTask.RequestValues(completedTask.getTaskId());
+      completeTask.execute(requestValues, new Subscriber() {
          @Override
          public void onCompleted() {
             mTasksView.showTaskMarkedComplete();
-            loadTasks(false, false);
          }
 
          @Override
@@ -212,11 +256,12 @@ public class TasksPresenter implements TasksContract.Presenter {
    @Override
    public void activateTask(@NonNull Task activeTask) {
       checkNotNull(activeTask, "activeTask cannot be null!");
-      activateTask.execute(new ActivateTask.RequestValues(activeTask.getId()), new Subscriber() {
+      ActivateTask.RequestValues requestValues =
+            new ActivateTask.RequestValues(activeTask.getTaskId());
+      activateTask.execute(requestValues, new Subscriber() {
          @Override
          public void onCompleted() {
             mTasksView.showTaskMarkedActive();
-            loadTasks(false, false);
          }
 
          @Override
@@ -237,7 +282,6 @@ public class TasksPresenter implements TasksContract.Presenter {
          @Override
          public void onCompleted() {
             mTasksView.showCompletedTasksCleared();
-            loadTasks(false, false);
          }
 
          @Override
@@ -16,23 +16,23 @@
 
 package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
 
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.PartitionedTasks;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Returns the active tasks from a list of {@link Task}s.
+ * Returns the active tasks from a list of {@link Task}s. For {@link PartitionedTasks} this is a
+ * view, otherwise a copy.
  */
 class ActiveTaskFilter implements TaskFilter {
     @Override
     public List<Task> filter(List<Task> tasks) {
-        List<Task> filteredTasks = new ArrayList<>();
-        for (Task task : tasks) {
-            if (task.isActive()) {
-                filteredTasks.add(task);
-            }
-        }
-        return filteredTasks;
+        return TaskQuery.ACTIVE.filter(tasks);
+    }
+
+    @Override
+    public TaskQuery getQuery() {
+        return TaskQuery.ACTIVE;
     }
 }
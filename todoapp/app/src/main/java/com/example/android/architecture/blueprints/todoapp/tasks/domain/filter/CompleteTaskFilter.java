@@ -16,24 +16,23 @@
 
 package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
 
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.PartitionedTasks;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Returns the completed tasks from a list of {@link Task}s.
+ * Returns the completed tasks from a list of {@link Task}s. For {@link PartitionedTasks} this is
+ * a view, otherwise a copy.
  */
 class CompleteTaskFilter implements TaskFilter {
     @Override
     public List<Task> filter(List<Task> tasks) {
-        List<Task> filteredTasks = new ArrayList<>();
+        return TaskQuery.COMPLETED.filter(tasks);
+    }
 
-        for (Task task : tasks) {
-            if (task.isCompleted()) {
-                filteredTasks.add(task);
-            }
-        }
-        return filteredTasks;
+    @Override
+    public TaskQuery getQuery() {
+        return TaskQuery.COMPLETED;
     }
 }
@@ -18,15 +18,19 @@ package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
 
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Returns all the tasks from a list of {@link Task}s.
+ * Returns all the tasks from a list of {@link Task}s. The list is returned as is, no copy is made.
  */
 class FilterAllTaskFilter implements TaskFilter {
     @Override
     public List<Task> filter(List<Task> tasks) {
-        return new ArrayList<>(tasks);
+        return tasks;
+    }
+
+    @Override
+    public TaskQuery getQuery() {
+        return TaskQuery.ALL;
     }
 }
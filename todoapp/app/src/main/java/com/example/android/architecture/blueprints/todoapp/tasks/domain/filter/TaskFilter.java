@@ -20,6 +20,18 @@ import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Ta
 
 import java.util.List;
 
+/**
+ * Selects tasks from a list of {@link Task}s.
+ * <p>
+ * The returned list may be a view over the list passed in, such as the immutable snapshot the
+ * repository shares between readers, so callers must not modify it.
+ */
 public interface TaskFilter {
     List<Task> filter(List<Task> tasks);
+
+    /**
+     * Returns the query selecting the same tasks as {@link #filter(List)}, for the data sources
+     * that can run it.
+     */
+    TaskQuery getQuery();
 }
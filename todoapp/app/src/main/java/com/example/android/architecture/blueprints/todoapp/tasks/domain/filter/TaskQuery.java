@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.PartitionedTasks;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.example.android.architecture.blueprints.todoapp.util.ParallelListEvaluator;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+
+import java.util.List;
+
+/**
+ * Describes the tasks a {@link TaskFilter} selects, so that a data source can select them itself,
+ * for instance in the WHERE clause of a SQL query, instead of loading every task to filter them.
+ * <p>
+ * A query holds predicates that a task must all match. Only the completed state can be queried
+ * for now.
+ */
+public final class TaskQuery {
+
+    public static final TaskQuery ALL = new TaskQuery(null);
+
+    public static final TaskQuery ACTIVE = new TaskQuery(false);
+
+    public static final TaskQuery COMPLETED = new TaskQuery(true);
+
+    @Nullable
+    private final Boolean mCompleted;
+
+    private TaskQuery(@Nullable Boolean completed) {
+        mCompleted = completed;
+    }
+
+    /**
+     * Returns the completed state the tasks must have, or null if it doesn't matter.
+     */
+    @Nullable
+    public Boolean getCompleted() {
+        return mCompleted;
+    }
+
+    /**
+     * Returns true if every task matches this query.
+     */
+    public boolean isAll() {
+        return mCompleted == null;
+    }
+
+    public boolean matches(@NonNull Task task) {
+        return mCompleted == null || task.isCompleted() == mCompleted;
+    }
+
+    /**
+     * Selects the tasks matching this query in memory, keeping their order. The returned list may
+     * be {@code tasks} itself or a view over it, so callers must not modify it. Very long lists
+     * are split and filtered on several threads.
+     */
+    public List<Task> filter(@NonNull List<Task> tasks) {
+        if (isAll()) {
+            return tasks;
+        }
+        if (tasks instanceof PartitionedTasks) {
+            PartitionedTasks partitionedTasks = (PartitionedTasks) tasks;
+            return mCompleted
+                    ? partitionedTasks.getCompletedTasks() : partitionedTasks.getActiveTasks();
+        }
+        return ParallelListEvaluator.getInstance().filter(tasks, new Predicate<Task>() {
+            @Override
+            public boolean apply(Task task) {
+                return matches(task);
+            }
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskQuery taskQuery = (TaskQuery) o;
+        return Objects.equal(mCompleted, taskQuery.mCompleted);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mCompleted);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskQuery{completed=" + mCompleted + "}";
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Text the user searches the tasks for, split in terms.
+ * <p>
+ * A task matches when every term is the prefix of a word of its title or description. Words are
+ * runs of letters and digits, compared case-insensitively, like the SQLite full-text tokenizer
+ * does for ASCII text. Tasks matching in their title alone rank before the others.
+ */
+public final class TaskSearchQuery {
+
+    /**
+     * Rank of the tasks matching in their title alone.
+     */
+    public static final int RANK_TITLE = 0;
+
+    /**
+     * Rank of the tasks that need their description to match.
+     */
+    public static final int RANK_DESCRIPTION = 1;
+
+    /**
+     * Returned by {@link #rank(Task)} for the tasks that don't match.
+     */
+    public static final int NO_MATCH = -1;
+
+    private final List<String> mTerms;
+
+    private TaskSearchQuery(List<String> terms) {
+        mTerms = Collections.unmodifiableList(terms);
+    }
+
+    public static TaskSearchQuery parse(@NonNull String text) {
+        checkNotNull(text);
+        return new TaskSearchQuery(split(text));
+    }
+
+    /**
+     * Returns the lower-case terms, which are only made of letters and digits.
+     */
+    public List<String> getTerms() {
+        return mTerms;
+    }
+
+    /**
+     * Returns true if there is nothing to search for, in which case no task matches.
+     */
+    public boolean isEmpty() {
+        return mTerms.isEmpty();
+    }
+
+    /**
+     * Ranks {@code task} in memory the same way a full-text index would.
+     *
+     * @return {@link #RANK_TITLE}, {@link #RANK_DESCRIPTION} or {@link #NO_MATCH}
+     */
+    public int rank(@NonNull Task task) {
+        if (isEmpty()) {
+            return NO_MATCH;
+        }
+        List<String> titleWords = split(task.getTitle());
+        if (allPrefixWords(titleWords, null)) {
+            return RANK_TITLE;
+        }
+        return allPrefixWords(titleWords, split(task.getDescription()))
+                ? RANK_DESCRIPTION : NO_MATCH;
+    }
+
+    private boolean allPrefixWords(List<String> words, @Nullable List<String> moreWords) {
+        for (String term : mTerms) {
+            if (!prefixesAny(term, words) && (moreWords == null || !prefixesAny(term, moreWords))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean prefixesAny(String term, List<String> words) {
+        for (String word : words) {
+            if (word.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> split(@Nullable String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.US));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSearchQuery" + mTerms;
+    }
+}
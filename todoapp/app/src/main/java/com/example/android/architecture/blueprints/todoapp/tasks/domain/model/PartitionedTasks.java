@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.model;
+
+import java.util.List;
+
+/**
+ * A list of {@link Task}s that keeps its active and completed tasks apart, so that they can be
+ * selected and counted without going through every task.
+ */
+public interface PartitionedTasks extends List<Task> {
+
+    /**
+     * Returns a read-only view of the active tasks, in the order of this list.
+     */
+    List<Task> getActiveTasks();
+
+    /**
+     * Returns a read-only view of the completed tasks, in the order of this list.
+     */
+    List<Task> getCompletedTasks();
+}
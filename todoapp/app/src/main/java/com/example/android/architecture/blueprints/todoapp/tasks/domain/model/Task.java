@@ -22,15 +22,13 @@ import android.support.annotation.Nullable;
 import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 
-import java.util.UUID;
-
 /**
  * Immutable model class for a Task.
  */
 public final class Task {
 
     @NonNull
-    private final String mId;
+    private final TaskId mId;
 
     @Nullable
     private final String mTitle;
@@ -40,6 +38,14 @@ public final class Task {
 
     private final boolean mCompleted;
 
+    private final long mVersion;
+
+    private final long mCreatedAt;
+
+    private final long mCompletedAt;
+
+    private final boolean mSummary;
+
     /**
      * Use this constructor to create a new active Task.
      *
@@ -47,7 +53,7 @@ public final class Task {
      * @param description description of the task
      */
     public Task(@Nullable String title, @Nullable String description) {
-        this(title, description, UUID.randomUUID().toString(), false);
+        this(title, description, false);
     }
 
     /**
@@ -70,7 +76,8 @@ public final class Task {
      * @param completed   true if the task is completed, false if it's active
      */
     public Task(@Nullable String title, @Nullable String description, boolean completed) {
-        this(title, description, UUID.randomUUID().toString(), completed);
+        this(title, description, TaskId.random(), completed, 0, System.currentTimeMillis(),
+                completed ? System.currentTimeMillis() : 0, false);
     }
 
     /**
@@ -84,14 +91,89 @@ public final class Task {
      */
     public Task(@Nullable String title, @Nullable String description,
                 @NonNull String id, boolean completed) {
+        this(title, description, id, completed, 0);
+    }
+
+    /**
+     * Use this constructor for a Task read back from a data source that keeps track of
+     * modifications.
+     *
+     * @param title       title of the task
+     * @param description description of the task
+     * @param id          id of the task
+     * @param completed   true if the task is completed, false if it's active
+     * @param version     version assigned by the remote data source when the task was last
+     *                    modified, 0 if unknown
+     */
+    public Task(@Nullable String title, @Nullable String description,
+                @NonNull String id, boolean completed, long version) {
+        this(title, description, id, completed, version, 0, 0);
+    }
+
+    /**
+     * Use this constructor for a Task read back from a data source that also keeps track of when
+     * it was created and completed.
+     *
+     * @param title       title of the task
+     * @param description description of the task
+     * @param id          id of the task
+     * @param completed   true if the task is completed, false if it's active
+     * @param version     version assigned by the remote data source when the task was last
+     *                    modified, 0 if unknown
+     * @param createdAt   time the task was created at in milliseconds since the epoch, 0 if
+     *                    unknown
+     * @param completedAt time the task was completed at in milliseconds since the epoch, 0 if it
+     *                    is active or if unknown
+     */
+    public Task(@Nullable String title, @Nullable String description,
+                @NonNull String id, boolean completed, long version, long createdAt,
+                long completedAt) {
+        this(title, description, TaskId.fromString(id), completed, version, createdAt,
+                completedAt, false);
+    }
+
+    private Task(@Nullable String title, @Nullable String description,
+                 @NonNull TaskId id, boolean completed, long version, long createdAt,
+                 long completedAt, boolean summary) {
         mId = id;
         mTitle = title;
         mDescription = description;
         mCompleted = completed;
+        mVersion = version;
+        mCreatedAt = createdAt;
+        mCompletedAt = completed ? completedAt : 0;
+        mSummary = summary;
     }
 
+    /**
+     * Use this factory for a Task read back for a list, whose description was cut short by the
+     * data source. Takes the same parameters as the constructor above, {@code description} being
+     * the start of the actual one.
+     *
+     * @see #isSummary()
+     */
+    @NonNull
+    public static Task summary(@Nullable String title, @Nullable String description,
+                               @NonNull String id, boolean completed, long version,
+                               long createdAt, long completedAt) {
+        return new Task(title, description, TaskId.fromString(id), completed, version, createdAt,
+                completedAt, true);
+    }
+
+    /**
+     * Returns the string form of the id, see {@link #getTaskId()}.
+     */
     @NonNull
     public String getId() {
+        return mId.toString();
+    }
+
+    /**
+     * Returns the id, cheaper to compare and to hash than {@link #getId()}, which builds its
+     * string form on every call.
+     */
+    @NonNull
+    public TaskId getTaskId() {
         return mId;
     }
 
@@ -109,6 +191,9 @@ public final class Task {
         }
     }
 
+    /**
+     * Returns the description, or only its start if this task {@link #isSummary() is a summary}.
+     */
     @Nullable
     public String getDescription() {
         return mDescription;
@@ -118,6 +203,51 @@ public final class Task {
         return mCompleted;
     }
 
+    /**
+     * Version assigned by the remote data source when the task was last modified there, or 0 if it
+     * isn't known yet. Versions only grow, see
+     * {@link com.example.android.architecture.blueprints.todoapp.data.source.TasksDeltaSource}.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Time the task was created at in milliseconds since the epoch, or 0 if it isn't known. Copies
+     * made with the constructors taking an id don't know it, the data sources fill it in when
+     * saving them.
+     */
+    public long getCreatedAt() {
+        return mCreatedAt;
+    }
+
+    /**
+     * Time the task was completed at in milliseconds since the epoch, or 0 if it is active or if
+     * it isn't known, see {@link #getCreatedAt()}.
+     */
+    public long getCompletedAt() {
+        return mCompletedAt;
+    }
+
+    /**
+     * Returns a copy of this task marked as completed at {@code completedAt}, or as active, which
+     * shares the id instead of parsing its string form again.
+     */
+    @NonNull
+    public Task withCompleted(boolean completed, long completedAt) {
+        return new Task(mTitle, mDescription, mId, completed, mVersion, mCreatedAt, completedAt,
+                mSummary);
+    }
+
+    /**
+     * Returns true if {@link #getDescription()} is only the start of the description. Such a task
+     * is enough to show in a list, but must be read again by id to show or edit its description,
+     * and must never be saved in place of the full task.
+     */
+    public boolean isSummary() {
+        return mSummary;
+    }
+
     public boolean isActive() {
         return !mCompleted;
     }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Immutable id of a {@link Task}.
+ * <p>
+ * Ids are UUIDs in their canonical lowercase string form, which is what the data sources store
+ * and what {@link Task#getId()} returns. Such ids are held as two longs, a fraction of the size
+ * of the string, and compared without looking at any character. Any other string, from an older
+ * version or a test, is kept as is.
+ */
+public final class TaskId {
+
+    private static final int UUID_STRING_LENGTH = 36;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long mMostSignificantBits;
+
+    private final long mLeastSignificantBits;
+
+    // Only set for ids that are not UUIDs in canonical form.
+    @Nullable
+    private final String mOther;
+
+    private TaskId(long mostSignificantBits, long leastSignificantBits, @Nullable String other) {
+        mMostSignificantBits = mostSignificantBits;
+        mLeastSignificantBits = leastSignificantBits;
+        mOther = other;
+    }
+
+    /**
+     * Returns a new random id.
+     */
+    @NonNull
+    public static TaskId random() {
+        UUID uuid = UUID.randomUUID();
+        return new TaskId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), null);
+    }
+
+    /**
+     * Returns the id whose string form is {@code id}.
+     */
+    @NonNull
+    public static TaskId fromString(@NonNull String id) {
+        if (id.length() != UUID_STRING_LENGTH) {
+            return new TaskId(0, 0, id);
+        }
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        for (int i = 0; i < UUID_STRING_LENGTH; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return new TaskId(0, 0, id);
+                }
+                continue;
+            }
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return new TaskId(0, 0, id);
+            }
+            if (i < 18) {
+                mostSignificantBits = mostSignificantBits << 4 | digit;
+            } else {
+                leastSignificantBits = leastSignificantBits << 4 | digit;
+            }
+        }
+        return new TaskId(mostSignificantBits, leastSignificantBits, null);
+    }
+
+    /**
+     * Returns true if the id is held as two longs, see {@link #getMostSignificantBits()} and
+     * {@link #getLeastSignificantBits()}, false if it is held as a string.
+     */
+    public boolean isCompact() {
+        return mOther == null;
+    }
+
+    /**
+     * Returns the first 64 bits of the id, or 0 if it is not {@link #isCompact() compact}.
+     */
+    public long getMostSignificantBits() {
+        return mMostSignificantBits;
+    }
+
+    /**
+     * Returns the last 64 bits of the id, or 0 if it is not {@link #isCompact() compact}.
+     */
+    public long getLeastSignificantBits() {
+        return mLeastSignificantBits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskId taskId = (TaskId) o;
+        if (mOther != null) {
+            return mOther.equals(taskId.mOther);
+        }
+        return taskId.mOther == null
+                && mMostSignificantBits == taskId.mMostSignificantBits
+                && mLeastSignificantBits == taskId.mLeastSignificantBits;
+    }
+
+    @Override
+    public int hashCode() {
+        if (mOther != null) {
+            return mOther.hashCode();
+        }
+        long hash = mMostSignificantBits ^ mLeastSignificantBits;
+        return (int) (hash >> 32) ^ (int) hash;
+    }
+
+    /**
+     * Returns the string form of the id, which {@link #fromString(String)} turns back into it.
+     */
+    @Override
+    public String toString() {
+        if (mOther != null) {
+            return mOther;
+        }
+        char[] chars = new char[UUID_STRING_LENGTH];
+        int shift = 60;
+        for (int i = 0; i < UUID_STRING_LENGTH; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                chars[i] = '-';
+                continue;
+            }
+            long bits = i < 18 ? mMostSignificantBits : mLeastSignificantBits;
+            chars[i] = HEX_DIGITS[(int) (bits >>> shift) & 0xf];
+            shift = shift == 0 ? 60 : shift - 4;
+        }
+        return new String(chars);
+    }
+}
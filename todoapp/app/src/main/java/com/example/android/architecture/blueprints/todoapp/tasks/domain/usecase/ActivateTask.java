@@ -18,8 +18,10 @@ package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
 
 import rx.Observable;
 import rx.Scheduler;
@@ -40,14 +42,20 @@ public class ActivateTask extends UseCaseRx<ActivateTask.RequestValues> {
         this.tasksRepository = tasksRepository;
     }
 
+    @Override
+    protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+        return PriorityScheduler.Priority.USER_WRITE;
+    }
+
     @Override
     protected Observable buildUseCaseObservable(final RequestValues requestValues) {
 
         return Observable.create(new Observable.OnSubscribe<Object>() {
             @Override
             public void call(Subscriber<? super Object> subscriber) {
-                String activeTask = requestValues.getActivateTask();
+                TaskId activeTask = requestValues.getActivateTask();
                 tasksRepository.activateTask(activeTask);
+                subscriber.onCompleted();
             }
         });
 
@@ -55,13 +63,17 @@ public class ActivateTask extends UseCaseRx<ActivateTask.RequestValues> {
 
     public static final class RequestValues extends UseCaseRx.RequestValues {
 
-        private final String mActivateTask;
+        private final TaskId mActivateTask;
 
         public RequestValues(@NonNull String activateTask) {
+            this(TaskId.fromString(checkNotNull(activateTask, "activateTask cannot be null!")));
+        }
+
+        public RequestValues(@NonNull TaskId activateTask) {
             mActivateTask = checkNotNull(activateTask, "activateTask cannot be null!");
         }
 
-        public String getActivateTask() {
+        public TaskId getActivateTask() {
             return mActivateTask;
         }
     }
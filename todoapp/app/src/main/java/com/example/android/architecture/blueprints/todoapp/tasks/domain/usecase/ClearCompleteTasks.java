@@ -18,6 +18,7 @@ package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 
@@ -37,6 +38,11 @@ public class ClearCompleteTasks extends UseCaseRx<ClearCompleteTasks.RequestValu
         this.tasksRepository = tasksRepository;
     }
 
+    @Override
+    protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+        return PriorityScheduler.Priority.USER_WRITE;
+    }
+
     @Override
     protected Observable buildUseCaseObservable(RequestValues requestValues) {
 
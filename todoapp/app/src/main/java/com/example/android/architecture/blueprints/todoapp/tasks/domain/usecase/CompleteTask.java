@@ -18,8 +18,10 @@ package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
 
 import rx.Observable;
 import rx.Scheduler;
@@ -40,6 +42,11 @@ public class CompleteTask extends UseCaseRx<CompleteTask.RequestValues> {
 
     }
 
+    @Override
+    protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+        return PriorityScheduler.Priority.USER_WRITE;
+    }
+
     @Override
     protected Observable buildUseCaseObservable(final RequestValues requestValues) {
 
@@ -54,13 +61,17 @@ public class CompleteTask extends UseCaseRx<CompleteTask.RequestValues> {
 
     public static final class RequestValues extends UseCaseRx.RequestValues {
 
-        private final String mCompletedTask;
+        private final TaskId mCompletedTask;
 
         public RequestValues(@NonNull String completedTask) {
+            this(TaskId.fromString(checkNotNull(completedTask, "completedTask cannot be null!")));
+        }
+
+        public RequestValues(@NonNull TaskId completedTask) {
             mCompletedTask = checkNotNull(completedTask, "completedTask cannot be null!");
         }
 
-        public String getCompletedTask() {
+        public TaskId getCompletedTask() {
             return mCompletedTask;
         }
     }
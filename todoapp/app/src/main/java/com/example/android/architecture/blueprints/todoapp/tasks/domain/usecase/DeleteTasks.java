@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+
+import java.util.List;
+
+import rx.Scheduler;
+
+/**
+ * Deletes several tasks at once.
+ */
+public class DeleteTasks extends TaskBatchUseCase {
+
+    public DeleteTasks(Scheduler threadExecutor, Scheduler postExecutionThread,
+                       @NonNull TasksRepository tasksRepository) {
+        super(threadExecutor, postExecutionThread, tasksRepository);
+    }
+
+    @Override
+    protected void apply(@NonNull TasksRepository tasksRepository, @NonNull List<String> taskIds) {
+        tasksRepository.deleteTasks(taskIds);
+    }
+}
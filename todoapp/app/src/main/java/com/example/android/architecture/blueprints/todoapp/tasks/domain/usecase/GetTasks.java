@@ -18,6 +18,7 @@ package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase
 
 import android.support.annotation.NonNull;
 
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
 import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType;
@@ -26,6 +27,7 @@ import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.T
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import rx.Observable;
 import rx.Scheduler;
@@ -35,6 +37,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Fetches the list of tasks.
+ * <p>
+ * In stale-while-revalidate mode a forced update first emits the tasks already cached or stored
+ * locally, then the fresh tasks once the remote data source has answered. Screens that observe
+ * the tasks with {@link ObserveTasks} already get the local tasks first and don't need it.
  */
 public class GetTasks extends UseCaseRx<GetTasks.RequestValues> {
 
@@ -50,36 +56,95 @@ public class GetTasks extends UseCaseRx<GetTasks.RequestValues> {
    }
 
 
+   /**
+    * A new load, after a filter change or a refresh, makes the one in flight stale.
+    */
+   @Override
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.LATEST_WINS;
+   }
+
+   /**
+    * Forced updates fetch every task from the remote data source, so they run in the background
+    * lane and don't hold up the reads the user is waiting for.
+    */
+   @Override
+   protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+      return requestValues.isForceUpdate()
+            ? PriorityScheduler.Priority.BACKGROUND : PriorityScheduler.Priority.INTERACTIVE;
+   }
+
    @Override
    protected Observable buildUseCaseObservable(final GetTasks.RequestValues requestValues) {
       if (requestValues.isForceUpdate()) {
          mTasksRepository.refreshTasks();
       }
 
+      TaskFilter taskFilter = filterFactory.create(requestValues.currentFiltering);
+      Observable<List<Task>> tasks = getFreshTasks(taskFilter);
+      if (requestValues.isForceUpdate() && requestValues.isStaleWhileRevalidate()) {
+         tasks = Observable.concat(getStaleTasks(taskFilter), tasks);
+      }
+      return tasks;
+   }
+
+   private Observable<List<Task>> getFreshTasks(final TaskFilter taskFilter) {
+      // Deferred, so the subscriber gets the stale tasks before the remote data source is hit.
+      return Observable.fromCallable(new Callable<List<Task>>() {
+         @Override
+         public List<Task> call() throws Exception {
+            // Filtered by the repository, possibly without reading the other tasks at all.
+            return mTasksRepository.getTasks(taskFilter.getQuery());
+         }
+      });
+   }
 
-      return Observable.just(mTasksRepository.getTasks())
-            .map(new Func1<List<Task>, List<Task>>() {
-               @Override
-               public List<Task> call(List<Task> tasks) {
-                  TaskFilter taskFilter = filterFactory.create(requestValues.currentFiltering);
-                  List<Task> tasksFiltered = taskFilter.filter(tasks);
-                  return tasksFiltered;
-               }
-            });
+   private Observable<List<Task>> getStaleTasks(final TaskFilter taskFilter) {
+      return Observable.fromCallable(new Callable<List<Task>>() {
+         @Override
+         public List<Task> call() throws Exception {
+            return mTasksRepository.getCachedOrLocalTasks();
+         }
+      }).filter(new Func1<List<Task>, Boolean>() {
+         @Override
+         public Boolean call(List<Task> tasks) {
+            return tasks != null;
+         }
+      }).map(new Func1<List<Task>, List<Task>>() {
+         @Override
+         public List<Task> call(List<Task> tasks) {
+            return taskFilter.filter(tasks);
+         }
+      });
    }
 
    public static final class RequestValues extends UseCaseRx.RequestValues {
       private boolean forceUpdate;
       private TasksFilterType currentFiltering;
+      private boolean staleWhileRevalidate;
 
       public RequestValues(boolean mForceUpdate, TasksFilterType currentFiltering) {
+         this(mForceUpdate, currentFiltering, false);
+      }
+
+      /**
+       * @param staleWhileRevalidate pass in true to get the locally available tasks before the
+       *                             fresh ones when forcing an update
+       */
+      public RequestValues(boolean mForceUpdate, TasksFilterType currentFiltering,
+                           boolean staleWhileRevalidate) {
          this.forceUpdate = mForceUpdate;
          this.currentFiltering = currentFiltering;
+         this.staleWhileRevalidate = staleWhileRevalidate;
       }
 
       public boolean isForceUpdate() {
          return forceUpdate;
       }
+
+      public boolean isStaleWhileRevalidate() {
+         return staleWhileRevalidate;
+      }
    }
 
 
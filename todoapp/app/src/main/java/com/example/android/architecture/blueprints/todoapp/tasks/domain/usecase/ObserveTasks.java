@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.FilterFactory;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskFilter;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+import rx.Observable;
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Emits the filtered list of tasks, and emits it again every time the tasks change, until
+ * unsubscribed from. Never completes.
+ */
+public class ObserveTasks extends UseCaseRx<ObserveTasks.RequestValues> {
+
+   private final TasksRepository mTasksRepository;
+
+   private final FilterFactory mFilterFactory;
+
+   public ObserveTasks(Scheduler threadExecutor, Scheduler postExecutionThread,
+                       @NonNull TasksRepository tasksRepository,
+                       @NonNull FilterFactory filterFactory) {
+      super(threadExecutor, postExecutionThread);
+      mTasksRepository = checkNotNull(tasksRepository, "tasksRepository cannot be null!");
+      mFilterFactory = checkNotNull(filterFactory, "filterFactory cannot be null!");
+   }
+
+   /**
+    * Observing with a new filter replaces the previous observation.
+    */
+   @Override
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.LATEST_WINS;
+   }
+
+   @Override
+   protected Observable<List<Task>> buildUseCaseObservable(RequestValues requestValues) {
+      TaskFilter taskFilter = mFilterFactory.create(requestValues.getCurrentFiltering());
+      return mTasksRepository.observeTasks(taskFilter.getQuery());
+   }
+
+   public static final class RequestValues extends UseCaseRx.RequestValues {
+
+      private final TasksFilterType mCurrentFiltering;
+
+      public RequestValues(@NonNull TasksFilterType currentFiltering) {
+         mCurrentFiltering = checkNotNull(currentFiltering, "currentFiltering cannot be null!");
+      }
+
+      public TasksFilterType getCurrentFiltering() {
+         return mCurrentFiltering;
+      }
+   }
+}
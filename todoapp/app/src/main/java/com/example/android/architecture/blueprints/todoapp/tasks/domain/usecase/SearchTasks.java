@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Searches the titles and descriptions of the tasks for words starting with the terms typed, one
+ * page at a time. Tasks matching in their title come first.
+ */
+public class SearchTasks extends UseCaseRx<SearchTasks.RequestValues> {
+
+   private final TasksRepository mTasksRepository;
+
+   public SearchTasks(Scheduler threadExecutor, Scheduler postExecutionThread,
+                      @NonNull TasksRepository tasksRepository) {
+      super(threadExecutor, postExecutionThread);
+      mTasksRepository = checkNotNull(tasksRepository, "tasksRepository cannot be null!");
+   }
+
+   /**
+    * Searching as the user types makes the results of the previous terms useless.
+    */
+   @Override
+   protected ExecutionPolicy getExecutionPolicy() {
+      return ExecutionPolicy.LATEST_WINS;
+   }
+
+   @Override
+   protected Observable<List<Task>> buildUseCaseObservable(final RequestValues requestValues) {
+      return Observable.fromCallable(new Callable<List<Task>>() {
+         @Override
+         public List<Task> call() throws Exception {
+            return mTasksRepository.searchTasks(requestValues.getQuery(),
+                  requestValues.getOffset(), requestValues.getLimit());
+         }
+      });
+   }
+
+   public static final class RequestValues extends UseCaseRx.RequestValues {
+
+      private final TaskSearchQuery mQuery;
+
+      private final int mOffset;
+
+      private final int mLimit;
+
+      /**
+       * @param text   the text typed by the user
+       * @param offset number of matching tasks to skip, the page number times {@code limit}
+       * @param limit  the size of a page
+       */
+      public RequestValues(@NonNull String text, int offset, int limit) {
+         checkArgument(offset >= 0, "offset cannot be negative");
+         checkArgument(limit > 0, "limit must be positive");
+         mQuery = TaskSearchQuery.parse(text);
+         mOffset = offset;
+         mLimit = limit;
+      }
+
+      public TaskSearchQuery getQuery() {
+         return mQuery;
+      }
+
+      public int getOffset() {
+         return mOffset;
+      }
+
+      public int getLimit() {
+         return mLimit;
+      }
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import android.support.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler;
+import com.example.android.architecture.blueprints.todoapp.UseCaseRx;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Base of the use cases that apply the same change to several tasks with a single call to the
+ * repository. They emit nothing and complete once the change is made.
+ */
+public abstract class TaskBatchUseCase extends UseCaseRx<TaskBatchUseCase.RequestValues> {
+
+    private final TasksRepository mTasksRepository;
+
+    protected TaskBatchUseCase(Scheduler threadExecutor, Scheduler postExecutionThread,
+                               @NonNull TasksRepository tasksRepository) {
+        super(threadExecutor, postExecutionThread);
+        mTasksRepository = checkNotNull(tasksRepository, "tasksRepository cannot be null!");
+    }
+
+    /**
+     * Applies the change to the tasks with the given ids, ignoring the ones the repository
+     * doesn't know.
+     */
+    protected abstract void apply(@NonNull TasksRepository tasksRepository,
+                                  @NonNull List<String> taskIds);
+
+    @Override
+    protected PriorityScheduler.Priority getPriority(RequestValues requestValues) {
+        return PriorityScheduler.Priority.USER_WRITE;
+    }
+
+    @Override
+    protected Observable<Void> buildUseCaseObservable(final RequestValues requestValues) {
+        return Observable.fromCallable(new Callable<Void>() {
+            @Override
+            public Void call() {
+                apply(mTasksRepository, requestValues.getTaskIds());
+                return null;
+            }
+        }).ignoreElements();
+    }
+
+    public static final class RequestValues extends UseCaseRx.RequestValues {
+
+        private final List<String> mTaskIds;
+
+        public RequestValues(@NonNull Collection<String> taskIds) {
+            checkNotNull(taskIds, "taskIds cannot be null!");
+            mTaskIds = Collections.unmodifiableList(new ArrayList<>(taskIds));
+        }
+
+        public List<String> getTaskIds() {
+            return mTaskIds;
+        }
+    }
+}
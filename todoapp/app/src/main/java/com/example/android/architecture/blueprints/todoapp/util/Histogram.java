@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of non negative values with a bounded relative error, in the spirit of
+ * HdrHistogram: values below 32 get a bucket each, and every power of two above is split into 16
+ * linear buckets, so a value is known to about 6% whatever its magnitude. Recording is a few
+ * atomic increments and never allocates.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * Larger values are recorded as this one, about 12 days in microseconds.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong mTotalCount = new AtomicLong();
+
+    private final AtomicLong mSum = new AtomicLong();
+
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records {@code value}, which is clamped to [0, {@link #MAX_VALUE}].
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        mCounts.incrementAndGet(bucketIndex(clamped));
+        mTotalCount.incrementAndGet();
+        mSum.addAndGet(clamped);
+        long max;
+        do {
+            max = mMax.get();
+        } while (clamped > max && !mMax.compareAndSet(max, clamped));
+    }
+
+    public long getCount() {
+        return mTotalCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mTotalCount.get();
+        return count == 0 ? 0 : (double) mSum.get() / count;
+    }
+
+    /**
+     * Returns the value {@code percentile} percent of the recorded values are lower than or equal
+     * to, rounded up to the end of its bucket but never above the largest recorded value, or 0 if
+     * nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = mTotalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueInBucket(i), mMax.get());
+            }
+        }
+        // Recorded concurrently with this call.
+        return mMax.get();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT
+                + (int) (value >> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * In-process registry of use case metrics, kept for the lifetime of the process.
+ * <p>
+ * Durations are recorded in microseconds. The registry can be read from code with
+ * {@link #getUseCaseMetrics(String)}, or dumped for field diagnostics with {@link #dumpToLog()}
+ * and {@link #dumpToFile(File)}.
+ */
+public final class MetricsRegistry {
+
+    private static final String TAG = "MetricsRegistry";
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private static MetricsRegistry INSTANCE;
+
+    private final ConcurrentMap<String, UseCaseMetrics> mUseCaseMetrics = new ConcurrentHashMap<>();
+
+    private final long mCreatedAtNanos = System.nanoTime();
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MetricsRegistry();
+        }
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    MetricsRegistry() {
+    }
+
+    /**
+     * Returns the metrics of the use case called {@code name}, created empty on first use.
+     */
+    @NonNull
+    public UseCaseMetrics getUseCaseMetrics(@NonNull String name) {
+        checkNotNull(name);
+        UseCaseMetrics metrics = mUseCaseMetrics.get(name);
+        if (metrics == null) {
+            UseCaseMetrics created = new UseCaseMetrics(name);
+            metrics = mUseCaseMetrics.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of every use case executed so far, sorted by name.
+     */
+    @NonNull
+    public List<UseCaseMetrics> getAllUseCaseMetrics() {
+        List<UseCaseMetrics> all = new ArrayList<>(mUseCaseMetrics.values());
+        Collections.sort(all, new Comparator<UseCaseMetrics>() {
+            @Override
+            public int compare(UseCaseMetrics lhs, UseCaseMetrics rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Writes one line per use case to {@code writer}.
+     */
+    public void dump(@NonNull PrintWriter writer) {
+        long uptimeSeconds =
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - mCreatedAtNanos));
+        for (UseCaseMetrics metrics : getAllUseCaseMetrics()) {
+            writer.print(metrics.getName());
+            writer.print(": executions=" + metrics.getExecutionCount());
+            writer.print(String.format(Locale.US, " (%.2f/s)", (double) metrics.getExecutionCount() / uptimeSeconds));
+            writer.print(" inFlight=" + metrics.getInFlightCount());
+            writer.print(" errors=" + metrics.getErrorCount());
+            writer.print(" cancelled=" + metrics.getCancelledCount());
+            dumpHistogram(writer, "firstEmission", metrics.getFirstEmissionLatency());
+            dumpHistogram(writer, "total", metrics.getExecutionTime());
+            writer.println();
+        }
+        writer.flush();
+    }
+
+    public void dumpToLog() {
+        StringWriter dump = new StringWriter();
+        dump(new PrintWriter(dump));
+        for (String line : dump.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    public void dumpToFile(@NonNull File file) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            dump(writer);
+            if (writer.checkError()) {
+                throw new IOException("Could not write metrics to " + file);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void dumpHistogram(PrintWriter writer, String name, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        writer.print(" " + name + "Ms[");
+        for (double percentile : PERCENTILES) {
+            writer.print("p" + (int) percentile + "="
+                    + toMillis(histogram.getValueAtPercentile(percentile)) + " ");
+        }
+        writer.print("max=" + toMillis(histogram.getMax()) + "]");
+    }
+
+    private static String toMillis(long micros) {
+        return String.format(Locale.US, "%.1f", micros / 1000.0);
+    }
+
+    /**
+     * Metrics of the executions of one use case.
+     */
+    public static final class UseCaseMetrics {
+
+        private final String mName;
+
+        private final Histogram mFirstEmissionLatency = new Histogram();
+
+        private final Histogram mExecutionTime = new Histogram();
+
+        private final AtomicLong mExecutionCount = new AtomicLong();
+
+        private final AtomicLong mErrorCount = new AtomicLong();
+
+        private final AtomicLong mCancelledCount = new AtomicLong();
+
+        private final AtomicInteger mInFlightCount = new AtomicInteger();
+
+        UseCaseMetrics(String name) {
+            mName = name;
+        }
+
+        /**
+         * Starts timing an execution, at the moment it is subscribed to.
+         */
+        @NonNull
+        public Execution startExecution() {
+            mExecutionCount.incrementAndGet();
+            mInFlightCount.incrementAndGet();
+            return new Execution(this);
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Time from subscription to the first item, for executions that emitted one.
+         */
+        public Histogram getFirstEmissionLatency() {
+            return mFirstEmissionLatency;
+        }
+
+        /**
+         * Time from subscription to completion or error.
+         */
+        public Histogram getExecutionTime() {
+            return mExecutionTime;
+        }
+
+        public long getExecutionCount() {
+            return mExecutionCount.get();
+        }
+
+        public long getErrorCount() {
+            return mErrorCount.get();
+        }
+
+        /**
+         * Number of executions unsubscribed from before they completed or failed.
+         */
+        public long getCancelledCount() {
+            return mCancelledCount.get();
+        }
+
+        public int getInFlightCount() {
+            return mInFlightCount.get();
+        }
+    }
+
+    /**
+     * One execution of a use case. Its methods are called as the execution progresses, and once
+     * it has finished, further calls are ignored.
+     */
+    public static final class Execution {
+
+        private final UseCaseMetrics mMetrics;
+
+        private final long mStartNanos = System.nanoTime();
+
+        private volatile boolean mEmitted;
+
+        private final AtomicBoolean mFinished = new AtomicBoolean();
+
+        Execution(UseCaseMetrics metrics) {
+            mMetrics = metrics;
+        }
+
+        public void onNext() {
+            if (!mEmitted && !mFinished.get()) {
+                mEmitted = true;
+                mMetrics.mFirstEmissionLatency.record(elapsedMicros());
+            }
+        }
+
+        public void onCompleted() {
+            if (finish()) {
+                mMetrics.mExecutionTime.record(elapsedMicros());
+            }
+        }
+
+        public void onError() {
+            if (finish()) {
+                mMetrics.mErrorCount.incrementAndGet();
+                mMetrics.mExecutionTime.record(elapsedMicros());
+            }
+        }
+
+        /**
+         * Called when the execution is unsubscribed from, which also happens after it completed
+         * or failed.
+         */
+        public void onUnsubscribe() {
+            if (finish()) {
+                mMetrics.mCancelledCount.incrementAndGet();
+            }
+        }
+
+        private boolean finish() {
+            if (mFinished.compareAndSet(false, true)) {
+                mMetrics.mInFlightCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private long elapsedMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - mStartNanos);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filters and counts the elements of very large lists on several threads.
+ * <p>
+ * A list at least as long as the threshold is split in one slice per core. The calling thread
+ * evaluates the last slice itself while a pool thread evaluates each of the others, and the
+ * results are merged in list order. Shorter lists, lists without random access and single core
+ * devices are evaluated on the calling thread alone, since handing the work over would cost more
+ * than it saves.
+ * <p>
+ * The repository keeps the counts and the active and completed tasks of its snapshots up to
+ * date, so only the lists it hasn't built itself get here, and lists long enough to be split are
+ * rare. The pool threads are therefore only started when such a list comes, and stop once they
+ * have been idle for {@link #KEEP_ALIVE_SECONDS}.
+ * <p>
+ * A caller interrupted while waiting for the other slices cancels them and throws a
+ * {@link CancellationException}.
+ */
+public final class ParallelListEvaluator {
+
+    /**
+     * Length from which a list is split. {@code ParallelListEvaluatorBenchmark} measures where
+     * splitting starts to pay off on a given machine. It is kept on the high side since several
+     * use cases can already run at once.
+     */
+    public static final int DEFAULT_THRESHOLD = 50000;
+
+    /**
+     * Time after which an idle pool thread stops.
+     */
+    public static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static ParallelListEvaluator INSTANCE;
+
+    private final int mParallelism;
+
+    private final int mThreshold;
+
+    // Null when everything runs on the calling thread.
+    private final ExecutorService mExecutor;
+
+    public static synchronized ParallelListEvaluator getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ParallelListEvaluator(Runtime.getRuntime().availableProcessors(),
+                    DEFAULT_THRESHOLD);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @param parallelism number of threads evaluating a list, the calling thread included
+     * @param threshold   length from which a list is split
+     */
+    @VisibleForTesting
+    public ParallelListEvaluator(int parallelism, int threshold) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        checkArgument(threshold > 0, "threshold must be positive");
+        mParallelism = parallelism;
+        mThreshold = threshold;
+        mExecutor = parallelism == 1 ? null : newPool(parallelism - 1);
+    }
+
+    /**
+     * Returns a new list of the elements of {@code list} matching {@code predicate}, in order.
+     */
+    @NonNull
+    public <T> List<T> filter(@NonNull List<T> list,
+                              @NonNull final Predicate<? super T> predicate) {
+        checkNotNull(predicate);
+        List<List<T>> slices = evaluate(list, new Function<List<T>, List<T>>() {
+            @Override
+            public List<T> apply(List<T> slice) {
+                List<T> matches = new ArrayList<>();
+                for (T element : slice) {
+                    if (predicate.apply(element)) {
+                        matches.add(element);
+                    }
+                }
+                return matches;
+            }
+        });
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        int size = 0;
+        for (List<T> slice : slices) {
+            size += slice.size();
+        }
+        List<T> matches = new ArrayList<>(size);
+        for (List<T> slice : slices) {
+            matches.addAll(slice);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the number of elements of {@code list} matching {@code predicate}.
+     */
+    public <T> int count(@NonNull List<T> list, @NonNull final Predicate<? super T> predicate) {
+        checkNotNull(predicate);
+        List<Integer> slices = evaluate(list, new Function<List<T>, Integer>() {
+            @Override
+            public Integer apply(List<T> slice) {
+                int count = 0;
+                for (T element : slice) {
+                    if (predicate.apply(element)) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+        });
+        int count = 0;
+        for (int sliceCount : slices) {
+            count += sliceCount;
+        }
+        return count;
+    }
+
+    /**
+     * Stops the pool threads. Only for evaluators created by tests.
+     */
+    @VisibleForTesting
+    public void shutdown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the results of {@code function} for consecutive slices of {@code list}, in order.
+     */
+    private <T, R> List<R> evaluate(List<T> list, final Function<List<T>, R> function) {
+        checkNotNull(list);
+        List<R> results = new ArrayList<>(mParallelism);
+        if (mExecutor == null || list.size() < mThreshold || !(list instanceof RandomAccess)) {
+            results.add(function.apply(list));
+            return results;
+        }
+
+        int size = list.size();
+        int slices = Math.min(mParallelism, size);
+        List<Future<R>> futures = new ArrayList<>(slices - 1);
+        try {
+            for (int i = 0; i < slices - 1; i++) {
+                final List<T> slice = list.subList(sliceStart(i, slices, size),
+                        sliceStart(i + 1, slices, size));
+                futures.add(mExecutor.submit(new Callable<R>() {
+                    @Override
+                    public R call() {
+                        return function.apply(slice);
+                    }
+                }));
+            }
+            R last = function.apply(list.subList(sliceStart(slices - 1, slices, size), size));
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            results.add(last);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("List evaluation cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } finally {
+            // No-op for the slices already done.
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static ExecutorService newPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new EvaluatorThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static int sliceStart(int slice, int slices, int size) {
+        return (int) ((long) slice * size / slices);
+    }
+
+    private static final class EvaluatorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "tasks-evaluator-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import android.support.annotation.NonNull;
+
+import com.google.common.base.Supplier;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Coalesces concurrent calls for the same key into a single call.
+ * <p>
+ * The first caller for a key runs the supplier; callers arriving with the same key while it is in
+ * flight wait for it and get the same result, or the same exception. Once the call finishes the key
+ * is forgotten, so nothing is cached: the next caller starts a new call.
+ * <p>
+ * If the first caller is cancelled, which the supplier reports with a
+ * {@link CancellationException}, the waiting callers start a new call rather than fail with it.
+ * A waiting caller that is interrupted stops waiting and throws a {@link CancellationException}.
+ *
+ * @param <K> type of the keys identifying the calls
+ * @param <V> type of the results
+ */
+public final class SingleFlight<K, V> {
+
+    // Calls in flight by key, guarded by itself.
+    private final Map<K, Call<V>> mCalls = new HashMap<>();
+
+    private final AtomicLong mExecutedCount = new AtomicLong();
+
+    private final AtomicLong mDeduplicatedCount = new AtomicLong();
+
+    /**
+     * Returns the result of {@code supplier}, or of the call already in flight for {@code key}.
+     */
+    public V execute(@NonNull K key, @NonNull Supplier<V> supplier) {
+        checkNotNull(key);
+        checkNotNull(supplier);
+
+        Call<V> call;
+        while (true) {
+            boolean leader;
+            synchronized (mCalls) {
+                call = mCalls.get(key);
+                leader = call == null;
+                if (leader) {
+                    call = new Call<>();
+                    mCalls.put(key, call);
+                }
+            }
+            if (leader) {
+                break;
+            }
+
+            mDeduplicatedCount.incrementAndGet();
+            try {
+                call.mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Cancelled while waiting for " + key);
+            }
+            if (!(call.mFailure instanceof CancellationException)) {
+                return call.get();
+            }
+        }
+
+        mExecutedCount.incrementAndGet();
+        try {
+            call.mValue = supplier.get();
+            return call.mValue;
+        } catch (RuntimeException | Error e) {
+            call.mFailure = e;
+            throw e;
+        } finally {
+            synchronized (mCalls) {
+                mCalls.remove(key);
+            }
+            call.mDone.countDown();
+        }
+    }
+
+    /**
+     * Number of calls that actually ran their supplier.
+     */
+    public long getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /**
+     * Number of calls that shared the result of a call already in flight.
+     */
+    public long getDeduplicatedCount() {
+        return mDeduplicatedCount.get();
+    }
+
+    private static final class Call<V> {
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+
+        // Published to the waiting callers by mDone.
+        V mValue;
+
+        Throwable mFailure;
+
+        // Only called once mDone is counted down.
+        V get() {
+            if (mFailure instanceof RuntimeException) {
+                throw (RuntimeException) mFailure;
+            } else if (mFailure instanceof Error) {
+                throw (Error) mFailure;
+            }
+            return mValue;
+        }
+    }
+}
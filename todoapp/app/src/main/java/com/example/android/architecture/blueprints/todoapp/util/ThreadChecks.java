@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.example.android.architecture.blueprints.todoapp.BuildConfig;
+
+/**
+ * Checks that slow work, such as reading the database or the network, never runs on the UI
+ * thread.
+ * <p>
+ * The checks are on in debug builds running on a device. JVM tests have no UI thread to look up,
+ * so they turn the checks on themselves and say which thread stands in for it.
+ */
+public final class ThreadChecks {
+
+    private static volatile boolean sEnabled = BuildConfig.DEBUG && isAndroidRuntime();
+
+    // The UI thread, looked up on the first check unless set by a test.
+    private static volatile Thread sMainThread;
+
+    private ThreadChecks() {
+    }
+
+    @VisibleForTesting
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Makes the checks take {@code mainThread} for the UI thread, or look the UI thread up again
+     * if it is null.
+     */
+    @VisibleForTesting
+    public static void setMainThread(@Nullable Thread mainThread) {
+        sMainThread = mainThread;
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} naming {@code work} if called on the UI thread while
+     * the checks are on.
+     */
+    public static void checkNotOnMainThread(@NonNull String work) {
+        if (!sEnabled) {
+            return;
+        }
+        Thread mainThread = sMainThread;
+        if (mainThread == null) {
+            mainThread = Looper.getMainLooper().getThread();
+            sMainThread = mainThread;
+        }
+        if (Thread.currentThread() == mainThread) {
+            throw new IllegalStateException(work + " is running on the main thread");
+        }
+    }
+
+    /**
+     * Returns true on Dalvik and ART, which both report themselves as Dalvik.
+     */
+    private static boolean isAndroidRuntime() {
+        return "Dalvik".equals(System.getProperty("java.vm.name"));
+    }
+}
@@ -26,6 +26,8 @@ import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteD
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.TasksOutbox;
+import com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase.GetCompletionTrends;
 import com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase.GetStatistics;
 import com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.FilterFactory;
@@ -33,10 +35,11 @@ import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.ClearCompleteTasks;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.CompleteTask;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.GetTasks;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.ObserveTasks;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase.SearchTasks;
 
 import rx.Scheduler;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -49,8 +52,10 @@ public class Injection {
 
    public static TasksRepository provideTasksRepository(@NonNull Context context) {
       checkNotNull(context);
-      return TasksRepository.getInstance(FakeTasksRemoteDataSource.getInstance(),
-            TasksLocalDataSource.getInstance(context));
+      TasksLocalDataSource tasksLocalDataSource = TasksLocalDataSource.getInstance(context);
+      FakeTasksRemoteDataSource tasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      return TasksRepository.getInstance(tasksRemoteDataSource, tasksLocalDataSource,
+            TasksOutbox.getInstance(tasksLocalDataSource.getOutboxStore(), tasksRemoteDataSource));
    }
 
    public static TasksRepository provideFakeTasksRepository() {
@@ -63,7 +68,7 @@ public class Injection {
    }
 
    public static Scheduler provideThreadExecutor() {
-      return Schedulers.io();
+      return PriorityScheduler.getInstance();
    }
 
    public static GetTasks provideGetTasks(@NonNull Context context) {
@@ -75,6 +80,20 @@ public class Injection {
             TasksFilterType.ALL_TASKS);
    }
 
+   public static ObserveTasks provideObserveTasks(@NonNull Context context) {
+      return new ObserveTasks(
+            Injection.provideThreadExecutor(),
+            Injection.providePostExecutionThread(),
+            provideTasksRepository(context), new FilterFactory());
+   }
+
+   public static SearchTasks provideSearchTasks(@NonNull Context context) {
+      return new SearchTasks(
+            Injection.provideThreadExecutor(),
+            Injection.providePostExecutionThread(),
+            provideTasksRepository(context));
+   }
+
    public static GetTask provideGetTask(@NonNull Context context) {
       return new GetTask(
             Injection.provideThreadExecutor(),
@@ -107,4 +126,11 @@ public class Injection {
    public static GetStatistics provideGetStatistics(@NonNull Context context) {
       return new GetStatistics(provideThreadExecutor(),providePostExecutionThread(),Injection.provideTasksRepository(context));
    }
+
+   public static GetCompletionTrends provideGetCompletionTrends(@NonNull Context context) {
+      return new GetCompletionTrends(
+            Injection.provideThreadExecutor(),
+            Injection.providePostExecutionThread(),
+            provideTasksRepository(context));
+   }
 }
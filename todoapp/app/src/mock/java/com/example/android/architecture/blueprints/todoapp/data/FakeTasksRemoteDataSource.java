@@ -20,22 +20,35 @@ import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDelta;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDeltaSource;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
 import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Implementation of a remote data source with static access to the data for easy testing.
  */
-public class FakeTasksRemoteDataSource implements TasksDataSource {
+public class FakeTasksRemoteDataSource implements TasksDataSource, TasksDeltaSource {
 
    private static FakeTasksRemoteDataSource INSTANCE;
 
-   private static final Map<String, Task> TASKS_SERVICE_DATA = new LinkedHashMap<>();
+   private static final Map<String, Task> TASKS_SERVICE_DATA =
+         Collections.synchronizedMap(new LinkedHashMap<String, Task>());
+
+   // Version each deleted task was deleted at, keyed by task id. Guarded by TASKS_SERVICE_DATA.
+   private static final Map<String, Long> TOMBSTONES = new HashMap<>();
+
+   // Last version handed out. Guarded by TASKS_SERVICE_DATA.
+   private static long sVersion;
 
    // Prevent direct instantiation.
    private FakeTasksRemoteDataSource() {
@@ -49,8 +62,32 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
    }
 
    @Override
-   public ArrayList<Task> getTasks() {
-      return Lists.newArrayList(TASKS_SERVICE_DATA.values());
+   public List<Task> getTasks() {
+      synchronized (TASKS_SERVICE_DATA) {
+         return Lists.newArrayList(TASKS_SERVICE_DATA.values());
+      }
+   }
+
+   @NonNull
+   @Override
+   public TasksDelta getTasksChangedSince(long watermark) {
+      synchronized (TASKS_SERVICE_DATA) {
+         List<Task> changedTasks = new ArrayList<>();
+         for (Task task : TASKS_SERVICE_DATA.values()) {
+            if (task.getVersion() > watermark) {
+               changedTasks.add(task);
+            }
+         }
+         List<String> deletedTaskIds = new ArrayList<>();
+         if (watermark > 0) {
+            for (Map.Entry<String, Long> tombstone : TOMBSTONES.entrySet()) {
+               if (tombstone.getValue() > watermark) {
+                  deletedTaskIds.add(tombstone.getKey());
+               }
+            }
+         }
+         return new TasksDelta(watermark, sVersion, changedTasks, deletedTaskIds);
+      }
    }
 
    @Override
@@ -60,13 +97,21 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
 
    @Override
    public void saveTask(@NonNull final Task task) {
-      TASKS_SERVICE_DATA.put(task.getId(), task);
+      putTask(task);
+   }
+
+   @Override
+   public void saveTasks(@NonNull Collection<Task> tasks) {
+      synchronized (TASKS_SERVICE_DATA) {
+         for (Task task : tasks) {
+            putTask(task);
+         }
+      }
    }
 
    @Override
    public void completeTask(@NonNull final Task task) {
-      Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-      TASKS_SERVICE_DATA.put(task.getId(), completedTask);
+      putTask(withCompleted(task, true, System.currentTimeMillis()));
    }
 
    @Override
@@ -76,8 +121,7 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
 
    @Override
    public void activateTask(@NonNull final Task task) {
-            Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-            TASKS_SERVICE_DATA.put(task.getId(), activeTask);
+      putTask(withCompleted(task, false, 0));
    }
 
    @Override
@@ -85,15 +129,51 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
       // Not required for the remote data source.
    }
 
+   @Override
+   public void completeTasks(@NonNull Collection<String> taskIds) {
+      setCompleted(taskIds, true);
+   }
+
+   @Override
+   public void activateTasks(@NonNull Collection<String> taskIds) {
+      setCompleted(taskIds, false);
+   }
+
+   private static void setCompleted(Collection<String> taskIds, boolean completed) {
+      long now = System.currentTimeMillis();
+      synchronized (TASKS_SERVICE_DATA) {
+         for (String taskId : taskIds) {
+            Task task = TASKS_SERVICE_DATA.get(taskId);
+            if (task != null) {
+               putTask(withCompleted(task, completed, now));
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns {@code task} completed at {@code now}, or activated. A task that was already
+    * completed keeps its completion time.
+    */
+   private static Task withCompleted(Task task, boolean completed, long now) {
+      if (completed && task.getCompletedAt() > 0) {
+         return task;
+      }
+      return task.withCompleted(completed, now);
+   }
+
    @Override
    public void clearCompletedTasks() {
-            Iterator<Map.Entry<String, Task>> it = TASKS_SERVICE_DATA.entrySet().iterator();
-            while (it.hasNext()) {
-               Map.Entry<String, Task> entry = it.next();
-               if (entry.getValue().isCompleted()) {
-                  it.remove();
-               }
+      synchronized (TASKS_SERVICE_DATA) {
+         Iterator<Map.Entry<String, Task>> it = TASKS_SERVICE_DATA.entrySet().iterator();
+         while (it.hasNext()) {
+            Map.Entry<String, Task> entry = it.next();
+            if (entry.getValue().isCompleted()) {
+               it.remove();
+               TOMBSTONES.put(entry.getKey(), ++sVersion);
             }
+         }
+      }
    }
 
    public void refreshTasks() {
@@ -103,18 +183,49 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
 
    @Override
    public void deleteTask(@NonNull final String taskId) {
-            TASKS_SERVICE_DATA.remove(taskId);
+      deleteTasks(Collections.singletonList(taskId));
+   }
+
+   @Override
+   public void deleteTasks(@NonNull Collection<String> taskIds) {
+      synchronized (TASKS_SERVICE_DATA) {
+         for (String taskId : taskIds) {
+            if (TASKS_SERVICE_DATA.remove(taskId) != null) {
+               TOMBSTONES.put(taskId, ++sVersion);
+            }
+         }
+      }
    }
 
    @Override
    public void deleteAllTasks() {
-      TASKS_SERVICE_DATA.clear();
+      synchronized (TASKS_SERVICE_DATA) {
+         for (String taskId : TASKS_SERVICE_DATA.keySet()) {
+            TOMBSTONES.put(taskId, ++sVersion);
+         }
+         TASKS_SERVICE_DATA.clear();
+      }
    }
 
    @VisibleForTesting
    public void addTasks(Task... tasks) {
-      for (Task task : tasks) {
-         TASKS_SERVICE_DATA.put(task.getId(), task);
+      synchronized (TASKS_SERVICE_DATA) {
+         for (Task task : tasks) {
+            putTask(task);
+         }
+      }
+   }
+
+   /**
+    * Stores a copy of {@code task} stamped with the next version.
+    */
+   private static void putTask(Task task) {
+      synchronized (TASKS_SERVICE_DATA) {
+         long version = ++sVersion;
+         TASKS_SERVICE_DATA.put(task.getId(), new Task(task.getTitle(), task.getDescription(),
+               task.getId(), task.isCompleted(), version, task.getCreatedAt(),
+               task.getCompletedAt()));
+         TOMBSTONES.remove(task.getId());
       }
    }
 }
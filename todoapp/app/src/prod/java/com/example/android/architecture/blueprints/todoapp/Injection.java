@@ -27,6 +27,7 @@ import com.example.android.architecture.blueprints.todoapp.addedittask.domain.us
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.TasksOutbox;
 import com.example.android.architecture.blueprints.todoapp.data.source.remote.TasksRemoteDataSource;
 import com.example.android.architecture.blueprints.todoapp.statistics.domain.usecase.GetStatistics;
 import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.FilterFactory;
@@ -43,8 +44,10 @@ public class Injection {
 
     public static TasksRepository provideTasksRepository(@NonNull Context context) {
         checkNotNull(context);
-        return TasksRepository.getInstance(TasksRemoteDataSource.getInstance(),
-                TasksLocalDataSource.getInstance(context));
+        TasksLocalDataSource tasksLocalDataSource = TasksLocalDataSource.getInstance(context);
+        TasksRemoteDataSource tasksRemoteDataSource = TasksRemoteDataSource.getInstance();
+        return TasksRepository.getInstance(tasksRemoteDataSource, tasksLocalDataSource,
+                TasksOutbox.getInstance(tasksLocalDataSource.getOutboxStore(), tasksRemoteDataSource));
     }
 
     public static GetTasks provideGetTasks(@NonNull Context context) {
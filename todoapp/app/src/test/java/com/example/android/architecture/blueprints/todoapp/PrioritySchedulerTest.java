@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp;
+
+import com.example.android.architecture.blueprints.todoapp.PriorityScheduler.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link PriorityScheduler}.
+ */
+public class PrioritySchedulerTest {
+
+   private PriorityScheduler mScheduler;
+
+   private final CountDownLatch mRelease = new CountDownLatch(1);
+
+   @Before
+   public void setup() {
+      mScheduler = new PriorityScheduler();
+   }
+
+   @After
+   public void tearDown() {
+      mRelease.countDown();
+      mScheduler.shutdown();
+   }
+
+   @Test
+   public void busyBackgroundLane_doesNotHoldUpInteractiveWork() throws Exception {
+      Scheduler.Worker background = mScheduler.get(Priority.BACKGROUND).createWorker();
+      CountDownLatch backgroundStarted = new CountDownLatch(1);
+      background.schedule(blockingAction(backgroundStarted));
+      background.schedule(countDown(new CountDownLatch(1)));
+      assertThat(backgroundStarted.await(5, TimeUnit.SECONDS), is(true));
+
+      CountDownLatch interactiveDone = new CountDownLatch(1);
+      mScheduler.get(Priority.INTERACTIVE).createWorker().schedule(countDown(interactiveDone));
+
+      assertThat(interactiveDone.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(mScheduler.getStats(Priority.BACKGROUND).getQueueDepth(), is(1));
+      assertThat(mScheduler.getStats(Priority.INTERACTIVE).getStartedCount(), is(1L));
+   }
+
+   @Test
+   public void unsubscribe_interruptsRunningActionAndDropsQueuedOnes() throws Exception {
+      Scheduler.Worker worker = mScheduler.get(Priority.USER_WRITE).createWorker();
+      CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch firstStarted = new CountDownLatch(1);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      worker.schedule(new Action0() {
+         @Override
+         public void call() {
+            firstStarted.countDown();
+            try {
+               mRelease.await();
+            } catch (InterruptedException e) {
+               interrupted.countDown();
+            }
+         }
+      });
+      worker.schedule(blockingAction(started));
+      assertThat(firstStarted.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(mScheduler.getStats(Priority.USER_WRITE).getQueueDepth(), is(1));
+
+      worker.unsubscribe();
+
+      assertThat(interrupted.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(started.getCount(), is(1L));
+      assertThat(mScheduler.getStats(Priority.USER_WRITE).getQueueDepth(), is(0));
+   }
+
+   @Test
+   public void unsubscribe_fromOwnAction_doesNotInterruptLaneThread() throws Exception {
+      final Scheduler.Worker worker = mScheduler.get(Priority.USER_WRITE).createWorker();
+      final CountDownLatch done = new CountDownLatch(1);
+      final AtomicBoolean interrupted = new AtomicBoolean();
+      worker.schedule(new Action0() {
+         @Override
+         public void call() {
+            // As a downstream take(1) does on the thread the item was emitted on.
+            worker.unsubscribe();
+            interrupted.set(Thread.currentThread().isInterrupted());
+            done.countDown();
+         }
+      });
+
+      assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(interrupted.get(), is(false));
+   }
+
+   @Test
+   public void worker_runsActionsInOrder() throws Exception {
+      Scheduler.Worker worker = mScheduler.get(Priority.INTERACTIVE).createWorker();
+      final StringBuilder order = new StringBuilder();
+      CountDownLatch done = new CountDownLatch(1);
+      for (int i = 0; i < 5; i++) {
+         final int action = i;
+         worker.schedule(new Action0() {
+            @Override
+            public void call() {
+               order.append(action);
+            }
+         });
+      }
+      worker.schedule(countDown(done), 10, TimeUnit.MILLISECONDS);
+
+      assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(order.toString(), is("01234"));
+   }
+
+   @Test
+   public void delayedAction_unsubscribedOnceQueued_doesNotRun() throws Exception {
+      Scheduler.Worker worker = mScheduler.get(Priority.USER_WRITE).createWorker();
+      CountDownLatch started = new CountDownLatch(1);
+      worker.schedule(blockingAction(started));
+      assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+      CountDownLatch delayedRun = new CountDownLatch(1);
+      Subscription delayed = worker.schedule(countDown(delayedRun), 10, TimeUnit.MILLISECONDS);
+      // Wait until the timer hands it over to the busy lane.
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (mScheduler.getStats(Priority.USER_WRITE).getQueueDepth() == 0
+            && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      assertThat(mScheduler.getStats(Priority.USER_WRITE).getQueueDepth(), is(1));
+
+      delayed.unsubscribe();
+      CountDownLatch done = new CountDownLatch(1);
+      worker.schedule(countDown(done));
+      mRelease.countDown();
+
+      assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(delayedRun.getCount(), is(1L));
+   }
+
+   @Test
+   public void delayedAction_unsubscribedBeforeDue_doesNotRun() throws Exception {
+      Scheduler.Worker worker = mScheduler.get(Priority.INTERACTIVE).createWorker();
+      CountDownLatch delayedRun = new CountDownLatch(1);
+      Subscription delayed = worker.schedule(countDown(delayedRun), 50, TimeUnit.MILLISECONDS);
+
+      delayed.unsubscribe();
+
+      assertThat(delayedRun.await(200, TimeUnit.MILLISECONDS), is(false));
+      assertThat(mScheduler.getStats(Priority.INTERACTIVE).getQueueDepth(), is(0));
+   }
+
+   private Action0 blockingAction(final CountDownLatch started) {
+      return new Action0() {
+         @Override
+         public void call() {
+            started.countDown();
+            try {
+               mRelease.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+   }
+
+   private static Action0 countDown(final CountDownLatch latch) {
+      return new Action0() {
+         @Override
+         public void call() {
+            latch.countDown();
+         }
+      };
+   }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp;
+
+import com.example.android.architecture.blueprints.todoapp.util.MetricsRegistry;
+import com.example.android.architecture.blueprints.todoapp.util.ThreadChecks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for the threading contract of {@link UseCaseRx}.
+ */
+public class UseCaseRxTest {
+
+   private ExecutorService mExecutor;
+
+   @Before
+   public void setup() {
+      ThreadChecks.setEnabled(true);
+      // Executions are started from the test thread, as they are from the UI thread in the app.
+      ThreadChecks.setMainThread(Thread.currentThread());
+      mExecutor = Executors.newSingleThreadExecutor();
+   }
+
+   @After
+   public void tearDown() {
+      mExecutor.shutdownNow();
+      ThreadChecks.setEnabled(false);
+      ThreadChecks.setMainThread(null);
+   }
+
+   @Test
+   public void execute_buildsAndRunsOnThreadExecutor() {
+      ThreadRecordingUseCase useCase =
+            new ThreadRecordingUseCase(Schedulers.from(mExecutor), Schedulers.immediate());
+      TestSubscriber<Thread> subscriber = new TestSubscriber<>();
+
+      useCase.execute(new UseCaseRx.RequestValues() {}, subscriber);
+
+      subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      subscriber.assertNoErrors();
+      assertThat(useCase.mBuildThread, is(not(Thread.currentThread())));
+      assertThat(subscriber.getOnNextEvents().get(0), is(useCase.mBuildThread));
+   }
+
+   @Test
+   public void execute_onMainThread_fails() throws Exception {
+      // The executor thread stands in for the UI thread, as when it is passed as the thread
+      // executor.
+      ThreadChecks.setMainThread(mExecutor.submit(new Callable<Thread>() {
+         @Override
+         public Thread call() {
+            return Thread.currentThread();
+         }
+      }).get());
+      ThreadRecordingUseCase useCase =
+            new ThreadRecordingUseCase(Schedulers.from(mExecutor), Schedulers.immediate());
+
+      TestSubscriber<Thread> subscriber = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, subscriber);
+      subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+      assertThat(subscriber.getOnErrorEvents().size(), is(1));
+      assertThat(subscriber.getOnErrorEvents().get(0), instanceOf(IllegalStateException.class));
+   }
+
+   @Test
+   public void execute_withImmediateSchedulersOnMainThread_fails() {
+      // Both schedulers run the work on the calling thread, which is the UI thread here.
+      Scheduler scheduler = Schedulers.immediate();
+      ThreadRecordingUseCase useCase = new ThreadRecordingUseCase(scheduler, scheduler);
+
+      TestSubscriber<Thread> subscriber = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, subscriber);
+
+      subscriber.assertNoValues();
+      assertThat(subscriber.getOnErrorEvents().get(0), instanceOf(IllegalStateException.class));
+      assertThat(useCase.mBuildThread, is(nullValue()));
+   }
+
+   @Test
+   public void execute_withChecksOff_runsOnMainThread() {
+      ThreadChecks.setEnabled(false);
+      Scheduler scheduler = Schedulers.immediate();
+      ThreadRecordingUseCase useCase = new ThreadRecordingUseCase(scheduler, scheduler);
+
+      TestSubscriber<Thread> subscriber = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, subscriber);
+
+      subscriber.assertNoErrors();
+      subscriber.assertValue(Thread.currentThread());
+   }
+
+   @Test
+   public void latestWins_cancelsExecutionInFlight() throws Exception {
+      // As in the app, whose thread executor interrupts cancelled work.
+      BlockingUseCase useCase = new BlockingUseCase(Schedulers.io(), Schedulers.immediate(),
+            UseCaseRx.ExecutionPolicy.LATEST_WINS);
+      TestSubscriber<Integer> first = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, first);
+      assertThat(useCase.mStarted.await(5, TimeUnit.SECONDS), is(true));
+
+      useCase.mBlock = false;
+      TestSubscriber<Integer> second = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, second);
+
+      second.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      second.assertValue(2);
+      // The first execution was interrupted and never delivered anything.
+      assertThat(useCase.mInterrupted.await(5, TimeUnit.SECONDS), is(true));
+      first.assertNoValues();
+      first.assertNoTerminalEvent();
+   }
+
+   @Test
+   public void queue_runsExecutionsOneAfterTheOther() throws Exception {
+      // Each execution runs on its own thread, so only the queue keeps them apart.
+      BlockingUseCase useCase = new BlockingUseCase(Schedulers.newThread(),
+            Schedulers.immediate(), UseCaseRx.ExecutionPolicy.QUEUE);
+      TestSubscriber<Integer> first = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, first);
+      TestSubscriber<Integer> second = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, second);
+      assertThat(useCase.mStarted.await(5, TimeUnit.SECONDS), is(true));
+
+      // The second one waits for the first one to finish.
+      Thread.sleep(50);
+      assertThat(useCase.mExecutions.get(), is(1));
+      useCase.mBlock = false;
+      useCase.mRelease.countDown();
+
+      first.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      second.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      first.assertValue(1);
+      second.assertValue(2);
+   }
+
+   @Test
+   public void unsubscribe_cancelsQueuedExecutions() throws Exception {
+      BlockingUseCase useCase = new BlockingUseCase(Schedulers.newThread(),
+            Schedulers.immediate(), UseCaseRx.ExecutionPolicy.QUEUE);
+      TestSubscriber<Integer> first = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, first);
+      TestSubscriber<Integer> second = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, second);
+      assertThat(useCase.mStarted.await(5, TimeUnit.SECONDS), is(true));
+
+      useCase.unsubscribe();
+
+      // Executions made afterwards are not held up by the cancelled ones.
+      useCase.mBlock = false;
+      TestSubscriber<Integer> third = new TestSubscriber<>();
+      useCase.execute(new UseCaseRx.RequestValues() {}, third);
+      third.awaitTerminalEvent(5, TimeUnit.SECONDS);
+      third.assertValue(2);
+      second.assertNoValues();
+   }
+
+   @Test
+   public void execute_recordsMetrics() {
+      MetricsRegistry.UseCaseMetrics metrics =
+            MetricsRegistry.getInstance().getUseCaseMetrics("ThreadRecordingUseCase");
+      long executions = metrics.getExecutionCount();
+      long emissions = metrics.getFirstEmissionLatency().getCount();
+      // Everything runs on the test thread, which stands in for the UI thread.
+      ThreadChecks.setEnabled(false);
+      Scheduler scheduler = Schedulers.immediate();
+      ThreadRecordingUseCase useCase = new ThreadRecordingUseCase(scheduler, scheduler);
+
+      useCase.execute(new UseCaseRx.RequestValues() {}, new TestSubscriber<Thread>());
+
+      assertThat(metrics.getExecutionCount(), is(executions + 1));
+      assertThat(metrics.getFirstEmissionLatency().getCount(), is(emissions + 1));
+      assertThat(metrics.getInFlightCount(), is(0));
+   }
+
+   @Test
+   public void cancelledExecution_isCountedAsCancelled() throws Exception {
+      MetricsRegistry.UseCaseMetrics metrics =
+            MetricsRegistry.getInstance().getUseCaseMetrics("BlockingUseCase");
+      long cancelled = metrics.getCancelledCount();
+      long errors = metrics.getErrorCount();
+      BlockingUseCase useCase = new BlockingUseCase(Schedulers.io(), Schedulers.immediate(),
+            UseCaseRx.ExecutionPolicy.PARALLEL);
+      useCase.execute(new UseCaseRx.RequestValues() {}, new TestSubscriber<Integer>());
+      assertThat(useCase.mStarted.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(metrics.getInFlightCount(), is(1));
+
+      useCase.unsubscribe();
+
+      assertThat(useCase.mInterrupted.await(5, TimeUnit.SECONDS), is(true));
+      assertThat(metrics.getCancelledCount(), is(cancelled + 1));
+      assertThat(metrics.getErrorCount(), is(errors));
+      assertThat(metrics.getInFlightCount(), is(0));
+   }
+
+   /**
+    * Blocks its first execution until released or interrupted.
+    */
+   private static class BlockingUseCase extends UseCaseRx<UseCaseRx.RequestValues> {
+
+      private final ExecutionPolicy mExecutionPolicy;
+
+      private final CountDownLatch mStarted = new CountDownLatch(1);
+
+      private final CountDownLatch mRelease = new CountDownLatch(1);
+
+      private final AtomicInteger mExecutions = new AtomicInteger();
+
+      private final CountDownLatch mInterrupted = new CountDownLatch(1);
+
+      private volatile boolean mBlock = true;
+
+      BlockingUseCase(Scheduler threadExecutor, Scheduler postExecutionThread,
+                      ExecutionPolicy executionPolicy) {
+         super(threadExecutor, postExecutionThread);
+         mExecutionPolicy = executionPolicy;
+      }
+
+      @Override
+      protected ExecutionPolicy getExecutionPolicy() {
+         return mExecutionPolicy;
+      }
+
+      @Override
+      protected Observable<Integer> buildUseCaseObservable(RequestValues requestValues) {
+         return Observable.fromCallable(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+               int execution = mExecutions.incrementAndGet();
+               if (mBlock) {
+                  mStarted.countDown();
+                  try {
+                     mRelease.await();
+                  } catch (InterruptedException e) {
+                     mInterrupted.countDown();
+                     throw e;
+                  }
+               }
+               return execution;
+            }
+         });
+      }
+   }
+
+   private static class ThreadRecordingUseCase extends UseCaseRx<UseCaseRx.RequestValues> {
+
+      private volatile Thread mBuildThread;
+
+      ThreadRecordingUseCase(Scheduler threadExecutor, Scheduler postExecutionThread) {
+         super(threadExecutor, postExecutionThread);
+      }
+
+      @Override
+      protected Observable<Thread> buildUseCaseObservable(RequestValues requestValues) {
+         mBuildThread = Thread.currentThread();
+         return Observable.fromCallable(new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+               return Thread.currentThread();
+            }
+         });
+      }
+   }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Checks maintained {@link TaskCounts} against a full scan of the tasks they count.
+ */
+final class TaskCountsChecker {
+
+   private TaskCountsChecker() {
+   }
+
+   static void assertCountsMatchScan(TaskCounts counts, List<Task> tasks) {
+      int activeCount = 0;
+      int completedCount = 0;
+      for (Task task : tasks) {
+         if (task.isCompleted()) {
+            completedCount++;
+         } else {
+            activeCount++;
+         }
+      }
+      assertThat("Counts of " + tasks, counts, is(new TaskCounts(activeCount, completedCount)));
+   }
+
+   static void assertCountsMatchScan(TasksSnapshot snapshot) {
+      assertCountsMatchScan(snapshot.getCounts(), snapshot);
+   }
+}
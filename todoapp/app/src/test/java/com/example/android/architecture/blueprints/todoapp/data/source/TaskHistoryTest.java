@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Unit tests for {@link TaskHistory}.
+ */
+public class TaskHistoryTest {
+
+   private static final long DAY = TaskHistory.DAY_MILLIS;
+
+   private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+   private TimeZone mDefaultTimeZone;
+
+   @Before
+   public void setUp() {
+      // Days are local, the times below are on the days they are multiples of in UTC.
+      mDefaultTimeZone = TimeZone.getDefault();
+      TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+   }
+
+   @After
+   public void tearDown() {
+      TimeZone.setDefault(mDefaultTimeZone);
+   }
+
+   @Test
+   public void toDay_countsLocalDays() {
+      TimeZone.setDefault(TimeZone.getTimeZone("GMT+10:00"));
+      assertThat(TaskHistory.toDay(10 * DAY - 11 * HOUR), is(9L));
+      assertThat(TaskHistory.toDay(10 * DAY - 9 * HOUR), is(10L));
+
+      TimeZone.setDefault(TimeZone.getTimeZone("GMT-05:00"));
+      assertThat(TaskHistory.toDay(10 * DAY + 4 * HOUR), is(9L));
+      assertThat(TaskHistory.toDay(10 * DAY + 6 * HOUR), is(10L));
+   }
+
+   @Test
+   public void latencyBuckets_coverEveryLatencyInOrder() {
+      assertThat(TaskHistory.toLatencyBucket(-1), is(0));
+      assertThat(TaskHistory.toLatencyBucket(0), is(0));
+      assertThat(TaskHistory.toLatencyBucket(Long.MAX_VALUE),
+            is(TaskHistory.LATENCY_BUCKET_COUNT - 1));
+      for (int i = 0; i < TaskHistory.LATENCY_BUCKET_COUNT - 1; i++) {
+         long bound = TaskHistory.getLatencyBucketBound(i);
+         assertThat(TaskHistory.toLatencyBucket(bound - 1), is(i));
+         assertThat(TaskHistory.toLatencyBucket(bound), is(i + 1));
+      }
+      assertThat(TaskHistory.getLatencyBucketBound(TaskHistory.LATENCY_BUCKET_COUNT - 2),
+            greaterThanOrEqualTo(TimeUnit.DAYS.toMillis(364)));
+   }
+
+   @Test
+   public void medianTimeToComplete_isEndOfMiddleBucket() {
+      int[] latencyCounts = new int[TaskHistory.LATENCY_BUCKET_COUNT];
+      latencyCounts[TaskHistory.toLatencyBucket(TimeUnit.MINUTES.toMillis(5))] = 1;
+      latencyCounts[TaskHistory.toLatencyBucket(TimeUnit.HOURS.toMillis(3))] = 1;
+      latencyCounts[TaskHistory.toLatencyBucket(TimeUnit.DAYS.toMillis(10))] = 1;
+      TaskHistory history = new TaskHistory(0, new int[1], new int[1], latencyCounts);
+
+      long median = history.getMedianTimeToComplete();
+      assertThat(median, greaterThanOrEqualTo(TimeUnit.HOURS.toMillis(3)));
+      assertThat(median, lessThan((long) (TimeUnit.HOURS.toMillis(3) * 1.5)));
+   }
+
+   @Test
+   public void medianTimeToComplete_nothingCompleted_isZero() {
+      TaskHistory history = new TaskHistory(0, new int[1], new int[1],
+            new int[TaskHistory.LATENCY_BUCKET_COUNT]);
+
+      assertThat(history.getMedianTimeToComplete(), is(0L));
+   }
+
+   @Test
+   public void of_countsTasksByDayWithinRange() {
+      TaskHistory history = TaskHistory.of(Arrays.asList(
+            task(10 * DAY, 0),
+            task(10 * DAY + 1, 12 * DAY),
+            task(9 * DAY, 11 * DAY + 5),
+            task(0, 11 * DAY),
+            task(12 * DAY, 13 * DAY)), 10, 12);
+
+      assertThat(history.getFirstDay(), is(10L));
+      assertThat(history.getDayCount(), is(3));
+      assertThat(history.getCreatedCount(0), is(2));
+      assertThat(history.getCreatedCount(2), is(1));
+      assertThat(history.getTotalCreatedCount(), is(3));
+      assertThat(history.getCompletedCount(1), is(1));
+      assertThat(history.getCompletedCount(2), is(1));
+      assertThat(history.getTotalCompletedCount(), is(2));
+      assertThat(history.getMedianTimeToComplete(),
+            is(TaskHistory.getLatencyBucketBound(TaskHistory.toLatencyBucket(2 * DAY - 1))));
+   }
+
+   private static Task task(long createdAt, long completedAt) {
+      return new Task("Title", "Description", "id" + createdAt, completedAt > 0, 0, createdAt,
+            completedAt);
+   }
+}
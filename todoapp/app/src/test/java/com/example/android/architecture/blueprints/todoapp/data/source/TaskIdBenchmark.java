@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares the ids of the cached tasks held as strings in a {@link HashMap} with {@link TaskId}s
+ * in {@link TaskPositions}, for the memory they take and the time to look them up. The lookups
+ * are timed both with the {@link TaskId}s at hand and with the strings parsed first, as
+ * {@link TasksSnapshot#getTask(String)} does. Results are printed, they depend on the VM.
+ * <p>
+ * Ignored in the unit test suite, since it only measures: remove {@code @Ignore} to run it.
+ */
+@Ignore("Benchmark")
+public class TaskIdBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private static final long BENCHMARK_NANOS = 50 * 1000 * 1000;
+
+    @Test
+    public void footprint_stringsVersusTaskIds() {
+        String[] strings = new String[SIZE];
+        long before = usedMemory();
+        for (int i = 0; i < SIZE; i++) {
+            strings[i] = UUID.randomUUID().toString();
+        }
+        long stringBytes = usedMemory() - before;
+
+        TaskId[] ids = new TaskId[SIZE];
+        before = usedMemory();
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = TaskId.random();
+        }
+        long idBytes = usedMemory() - before;
+
+        System.out.println(SIZE + " ids: strings " + stringBytes / SIZE + " bytes each, "
+                + "task ids " + idBytes / SIZE + " bytes each");
+        // Keeps both alive until measured.
+        System.out.println(strings[SIZE - 1] + " " + ids[SIZE - 1]);
+    }
+
+    @Test
+    public void lookup_stringMapVersusPositions() {
+        String[] strings = new String[SIZE];
+        TaskId[] ids = new TaskId[SIZE];
+        Map<String, Integer> stringPositions = new HashMap<>(SIZE * 4 / 3 + 1);
+        TaskPositions positions = new TaskPositions(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = TaskId.random();
+            strings[i] = ids[i].toString();
+            stringPositions.put(strings[i], i);
+            positions.put(ids[i], i);
+        }
+
+        long stringNanos = timeStringLookups(stringPositions, strings);
+        long idNanos = timeIdLookups(positions, ids);
+        long parsedNanos = timeParsedLookups(positions, strings);
+        System.out.println(SIZE + " lookups: string map " + stringNanos / 1000 + " us, "
+                + "task positions " + idNanos / 1000 + " us, "
+                + "task positions from strings " + parsedNanos / 1000 + " us");
+    }
+
+    /**
+     * Returns the average time to look up all of {@code strings}, after a warm up.
+     */
+    private static long timeStringLookups(Map<String, Integer> positions, String[] strings) {
+        long sum = 0;
+        for (int i = 0; i < 3; i++) {
+            for (String string : strings) {
+                sum += positions.get(string);
+            }
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (String string : strings) {
+                sum += positions.get(string);
+            }
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < BENCHMARK_NANOS);
+        consume(sum);
+        return elapsed / runs;
+    }
+
+    /**
+     * Returns the average time to look up all of {@code ids}, after a warm up.
+     */
+    private static long timeIdLookups(TaskPositions positions, TaskId[] ids) {
+        long sum = 0;
+        for (int i = 0; i < 3; i++) {
+            for (TaskId id : ids) {
+                sum += positions.get(id);
+            }
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (TaskId id : ids) {
+                sum += positions.get(id);
+            }
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < BENCHMARK_NANOS);
+        consume(sum);
+        return elapsed / runs;
+    }
+
+    /**
+     * Returns the average time to parse and look up all of {@code strings}, after a warm up.
+     */
+    private static long timeParsedLookups(TaskPositions positions, String[] strings) {
+        long sum = 0;
+        for (int i = 0; i < 3; i++) {
+            for (String string : strings) {
+                sum += positions.get(TaskId.fromString(string));
+            }
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (String string : strings) {
+                sum += positions.get(TaskId.fromString(string));
+            }
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < BENCHMARK_NANOS);
+        consume(sum);
+        return elapsed / runs;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void consume(long value) {
+        if (value == 42) {
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link TaskPositions}.
+ */
+public class TaskPositionsTest {
+
+   @Test
+   public void get_findsEveryPutId() {
+      for (int size : new int[]{0, 1, 2, 3, 100, 10000}) {
+         TaskId[] ids = new TaskId[size];
+         TaskPositions positions = new TaskPositions(size);
+         for (int i = 0; i < size; i++) {
+            // Mixes in ids that aren't compact, as read back from older versions.
+            ids[i] = i % 10 == 0 ? TaskId.fromString("id" + i) : TaskId.random();
+            positions.put(ids[i], i);
+         }
+
+         for (int i = 0; i < size; i++) {
+            assertThat(positions.get(ids[i]), is(i));
+            assertThat(positions.get(TaskId.fromString(ids[i].toString())), is(i));
+         }
+      }
+   }
+
+   @Test
+   public void get_unknownId_returnsNoPosition() {
+      TaskPositions positions = new TaskPositions(100);
+      for (int i = 0; i < 100; i++) {
+         positions.put(TaskId.random(), i);
+      }
+      positions.put(TaskId.fromString("id"), 100);
+
+      assertThat(positions.get(TaskId.random()), is(TaskPositions.NO_POSITION));
+      assertThat(positions.get(TaskId.fromString("other")), is(TaskPositions.NO_POSITION));
+      assertThat(new TaskPositions(0).get(TaskId.random()), is(TaskPositions.NO_POSITION));
+   }
+}
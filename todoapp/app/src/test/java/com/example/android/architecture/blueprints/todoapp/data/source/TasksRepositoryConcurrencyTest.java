@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.architecture.blueprints.todoapp.data.source.TaskCountsChecker.assertCountsMatchScan;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress tests for {@link TasksRepository} used from several threads at once, the way use cases
+ * running on {@code Schedulers.io()} use it. {@link TasksRepositoryReadBenchmark} measures the
+ * read throughput.
+ */
+public class TasksRepositoryConcurrencyTest {
+
+   private static final int THREADS = 8;
+
+   private static final int OPERATIONS_PER_THREAD = 2000;
+
+   private static final int INITIAL_TASKS = 100;
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   @Mock
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   private ExecutorService mExecutor;
+
+   @Before
+   public void setupTasksRepository() {
+      MockitoAnnotations.initMocks(this);
+
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      for (int i = 0; i < INITIAL_TASKS; i++) {
+         mTasksRemoteDataSource.addTasks(new Task("Title" + i, "Description" + i, i % 2 == 0));
+      }
+
+      // The local data source is empty, so loads go to the remote data source.
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+
+      mExecutor = Executors.newFixedThreadPool(THREADS + 1);
+   }
+
+   @After
+   public void tearDown() {
+      mExecutor.shutdownNow();
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void concurrentReadsAndWrites_cacheStaysConsistentWithRemote() throws Exception {
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<Void>> results = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+         final Random random = new Random(t);
+         results.add(mExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               start.await();
+               for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                  runRandomOperation(random);
+               }
+               return null;
+            }
+         }));
+      }
+      start.countDown();
+
+      // Rethrows anything that went wrong on the worker threads.
+      for (Future<Void> result : results) {
+         result.get(30, TimeUnit.SECONDS);
+      }
+
+      if (mTasksRepository.mCacheIsDirty) {
+         mTasksRepository.getTasks();
+      }
+      assertSameTasks(mTasksRepository.mCachedTasks, mTasksRemoteDataSource.getTasks());
+      assertCountsMatchScan(mTasksRepository.mCachedTasks);
+   }
+
+   @Test
+   public void concurrentRefreshes_shareOneRemoteFetch() throws Exception {
+      // A remote data source that blocks until every caller is waiting on the fetch.
+      final CountDownLatch release = new CountDownLatch(1);
+      TasksDataSource slowRemoteDataSource = mock(TasksDataSource.class);
+      when(slowRemoteDataSource.getTasks()).thenAnswer(new Answer<List<Task>>() {
+         @Override
+         public List<Task> answer(InvocationOnMock invocation) throws Throwable {
+            release.await();
+            return mTasksRemoteDataSource.getTasks();
+         }
+      });
+      TasksRepository.destroyInstance();
+      final TasksRepository repository =
+            TasksRepository.getInstance(slowRemoteDataSource, mTasksLocalDataSource);
+      repository.refreshTasks();
+
+      List<Future<List<Task>>> results = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+         results.add(mExecutor.submit(new Callable<List<Task>>() {
+            @Override
+            public List<Task> call() {
+               return repository.getTasks();
+            }
+         }));
+      }
+      long deadline = System.currentTimeMillis() + 5000;
+      while (repository.getDeduplicatedRemoteFetchCount() < THREADS - 1
+            && System.currentTimeMillis() < deadline) {
+         Thread.sleep(1);
+      }
+      release.countDown();
+
+      for (Future<List<Task>> result : results) {
+         assertThat(result.get(5, TimeUnit.SECONDS).size(), is(INITIAL_TASKS));
+      }
+      verify(slowRemoteDataSource, times(1)).getTasks();
+      verify(mTasksLocalDataSource, times(1)).deleteAllTasks();
+      assertThat(repository.getExecutedRemoteFetchCount(), is(1L));
+      assertThat(repository.getDeduplicatedRemoteFetchCount(), is((long) THREADS - 1));
+   }
+
+   private void runRandomOperation(Random random) {
+      int operation = random.nextInt(100);
+      if (operation < 5) {
+         TasksSnapshot snapshot = mTasksRepository.mCachedTasks;
+         if (snapshot != null) {
+            assertCountsMatchScan(snapshot);
+         }
+      } else if (operation < 50) {
+         List<Task> tasks = mTasksRepository.getTasks();
+         Set<String> ids = new HashSet<>();
+         for (Task task : tasks) {
+            assertThat(task, notNullValue());
+            assertThat("Duplicate task in " + tasks, ids.add(task.getId()), is(true));
+         }
+      } else if (operation < 60) {
+         String taskId = randomTaskId(random);
+         if (taskId != null) {
+            mTasksRepository.completeTask(taskId);
+         }
+      } else if (operation < 65) {
+         mTasksRepository.completeTasks(randomTaskIds(random));
+      } else if (operation < 75) {
+         String taskId = randomTaskId(random);
+         if (taskId != null) {
+            mTasksRepository.activateTask(taskId);
+         }
+      } else if (operation < 80) {
+         mTasksRepository.activateTasks(randomTaskIds(random));
+      } else if (operation < 90) {
+         mTasksRepository.saveTask(new Task("New", "Task"));
+      } else if (operation < 93) {
+         String taskId = randomTaskId(random);
+         if (taskId != null) {
+            mTasksRepository.deleteTask(taskId);
+         }
+      } else if (operation < 95) {
+         mTasksRepository.deleteTasks(randomTaskIds(random));
+      } else if (operation < 98) {
+         mTasksRepository.clearCompletedTasks();
+      } else {
+         mTasksRepository.refreshTasks();
+      }
+   }
+
+   private String randomTaskId(Random random) {
+      List<Task> tasks = mTasksRepository.getTasks();
+      return tasks.isEmpty() ? null : tasks.get(random.nextInt(tasks.size())).getId();
+   }
+
+   private List<String> randomTaskIds(Random random) {
+      List<String> taskIds = new ArrayList<>();
+      for (Task task : mTasksRepository.getTasks()) {
+         if (random.nextInt(10) == 0) {
+            taskIds.add(task.getId());
+         }
+      }
+      return taskIds;
+   }
+
+   private static void assertSameTasks(List<Task> actual, List<Task> expected) {
+      assertThat(actual.size(), is(expected.size()));
+      for (int i = 0; i < expected.size(); i++) {
+         assertThat(actual.get(i).getId(), is(expected.get(i).getId()));
+         assertThat(actual.get(i).isCompleted(), is(expected.get(i).isCompleted()));
+      }
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.example.android.architecture.blueprints.todoapp.data.source.TaskCountsChecker.assertCountsMatchScan;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Unit tests for the counts kept by {@link TasksRepository#getTaskCounts()}.
+ */
+public class TasksRepositoryCountsTest {
+
+   private static final Task ACTIVE_TASK = new Task("Title1", "Description1");
+
+   private static final Task COMPLETED_TASK = new Task("Title2", "Description2", true);
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   @Before
+   public void setupTasksRepository() {
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      mTasksRemoteDataSource.addTasks(ACTIVE_TASK, COMPLETED_TASK);
+
+      mTasksLocalDataSource = mock(TasksDataSource.class);
+      when(mTasksLocalDataSource.getTasks()).thenReturn(Collections.<Task>emptyList());
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+   }
+
+   @After
+   public void tearDown() {
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void getTaskCounts_nothingCached_loadsTasksOnce() {
+      assertThat(mTasksRepository.getTaskCounts(), is(new TaskCounts(1, 1)));
+      assertThat(mTasksRepository.getTaskCounts(), is(new TaskCounts(1, 1)));
+
+      verify(mTasksLocalDataSource, times(1)).getTasks();
+   }
+
+   @Test
+   public void getTaskCounts_nothingCached_countsInLocalDataSource() {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksCountSource.class));
+      when(((TasksCountSource) localDataSource).countTasksByState())
+            .thenReturn(new TaskCounts(3, 4));
+      TasksRepository.destroyInstance();
+      TasksRepository repository =
+            TasksRepository.getInstance(mTasksRemoteDataSource, localDataSource);
+
+      assertThat(repository.getTaskCounts(), is(new TaskCounts(3, 4)));
+      verify(localDataSource, never()).getTasks();
+      assertThat(repository.mCachedTasks, nullValue());
+   }
+
+   @Test
+   public void getTaskCounts_nothingLocal_countsInRemoteDataSource() {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksCountSource.class));
+      when(((TasksCountSource) localDataSource).countTasksByState())
+            .thenReturn(new TaskCounts(0, 0));
+      TasksDataSource remoteDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksCountSource.class));
+      when(((TasksCountSource) remoteDataSource).countTasksByState())
+            .thenReturn(new TaskCounts(5, 6));
+      TasksRepository.destroyInstance();
+      TasksRepository repository = TasksRepository.getInstance(remoteDataSource, localDataSource);
+
+      assertThat(repository.getTaskCounts(), is(new TaskCounts(5, 6)));
+      verify(localDataSource, never()).getTasks();
+      verify(remoteDataSource, never()).getTasks();
+   }
+
+   @Test
+   public void getTaskCounts_cacheDirty_loadsTasks() {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksCountSource.class));
+      TasksRepository.destroyInstance();
+      TasksRepository repository =
+            TasksRepository.getInstance(mTasksRemoteDataSource, localDataSource);
+      repository.refreshTasks();
+
+      assertThat(repository.getTaskCounts(), is(new TaskCounts(1, 1)));
+      verify((TasksCountSource) localDataSource, never()).countTasksByState();
+   }
+
+   @Test
+   public void getTaskCounts_followsEveryWrite() {
+      mTasksRepository.getTasks();
+      Task newTask = new Task("Title3", "Description3");
+
+      mTasksRepository.saveTask(newTask);
+      assertCounts(2, 1);
+      mTasksRepository.completeTask(newTask.getId());
+      assertCounts(1, 2);
+      mTasksRepository.activateTasks(Lists.newArrayList(newTask.getId(), COMPLETED_TASK.getId()));
+      assertCounts(3, 0);
+      mTasksRepository.completeTasks(Lists.newArrayList(newTask.getId(), ACTIVE_TASK.getId()));
+      assertCounts(1, 2);
+      mTasksRepository.deleteTask(COMPLETED_TASK.getId());
+      assertCounts(0, 2);
+      mTasksRepository.clearCompletedTasks();
+      assertCounts(0, 0);
+   }
+
+   private void assertCounts(int activeCount, int completedCount) {
+      TaskCounts counts = mTasksRepository.getTaskCounts();
+      assertThat(counts, is(new TaskCounts(activeCount, completedCount)));
+      assertCountsMatchScan(counts, mTasksRepository.getTasks());
+   }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.List;
+
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Unit tests for the live queries of {@link TasksRepository#observeTasks()} and
+ * {@link TasksRepository#observeTasks(TaskQuery)}.
+ */
+public class TasksRepositoryObserveTest {
+
+   private static final Task TASK1 = new Task("Title1", "Description1");
+
+   private static final Task TASK2 = new Task("Title2", "Description2");
+
+   private static final Task LOCAL_TASK1 = new Task("Local1", "Description1");
+
+   private static final Task LOCAL_TASK2 = new Task("Local2", "Description2");
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   @Mock
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   private TestSubscriber<List<Task>> mSubscriber;
+
+   @Before
+   public void setupTasksRepository() {
+      MockitoAnnotations.initMocks(this);
+
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      mTasksRemoteDataSource.addTasks(TASK1, TASK2);
+
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+      mTasksRepository.refreshTasks();
+
+      mSubscriber = new TestSubscriber<>();
+   }
+
+   @After
+   public void tearDown() {
+      mSubscriber.unsubscribe();
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void observeTasks_emitsCurrentTasks() {
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(TASK1, TASK2));
+   }
+
+   @Test
+   public void observeTasks_emitsAfterEachWrite() {
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+
+      mTasksRepository.completeTask(TASK1.getId());
+      mSubscriber.assertValueCount(2);
+      assertThat(lastTasks().get(0).isCompleted(), is(true));
+
+      mTasksRepository.clearCompletedTasks();
+      mSubscriber.assertValueCount(3);
+      assertThat(lastTasks(), contains(TASK2));
+
+      mTasksRepository.deleteTask(TASK2.getId());
+      mSubscriber.assertValueCount(4);
+      assertThat(lastTasks().isEmpty(), is(true));
+   }
+
+   @Test
+   public void observeTasks_doesNotEmitForReads() {
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+
+      mTasksRepository.getTasks();
+      mTasksRepository.getTask(TASK1.getId());
+
+      mSubscriber.assertValueCount(1);
+   }
+
+   @Test
+   public void observeTasks_lateSubscriberGetsLatestTasksOnly() {
+      mTasksRepository.getTasks();
+      mTasksRepository.completeTask(TASK2.getId());
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks().get(1).isCompleted(), is(true));
+   }
+
+   @Test
+   public void unsubscribedObserver_getsNoMoreTasks() {
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+      mSubscriber.unsubscribe();
+
+      mTasksRepository.completeTask(TASK1.getId());
+
+      mSubscriber.assertValueCount(1);
+   }
+
+   @Test
+   public void observeTasks_emitsFirstLocalChunkBeforeReadingTheOthers() {
+      PublishSubject<List<Task>> chunks = PublishSubject.create();
+      TasksDataSource localDataSource = givenChunkedLocalDataSource(chunks);
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+      chunks.onNext(Collections.singletonList(LOCAL_TASK1));
+      mSubscriber.assertValueCount(0);
+
+      chunks.onNext(Collections.singletonList(LOCAL_TASK2));
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(LOCAL_TASK1));
+
+      chunks.onCompleted();
+      mSubscriber.assertValueCount(2);
+      assertThat(lastTasks(), contains(LOCAL_TASK1, LOCAL_TASK2));
+      assertThat(mTasksRepository.getTasks(), contains(LOCAL_TASK1, LOCAL_TASK2));
+      verify(localDataSource, never()).getTasks();
+   }
+
+   @Test
+   public void observeTasks_withOneLocalChunk_emitsItOnce() {
+      PublishSubject<List<Task>> chunks = PublishSubject.create();
+      givenChunkedLocalDataSource(chunks);
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+      chunks.onNext(Collections.singletonList(LOCAL_TASK1));
+      chunks.onCompleted();
+
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(LOCAL_TASK1));
+   }
+
+   @Test
+   public void observeTasksWithQuery_skipsFirstLocalChunkWithoutMatchingTasks() {
+      Task completedTask = new Task("Local3", "Description3", true);
+      PublishSubject<List<Task>> chunks = PublishSubject.create();
+      givenChunkedLocalDataSource(chunks);
+
+      mTasksRepository.observeTasks(TaskQuery.COMPLETED).subscribe(mSubscriber);
+      chunks.onNext(Collections.singletonList(LOCAL_TASK1));
+      chunks.onNext(Collections.singletonList(completedTask));
+      mSubscriber.assertValueCount(0);
+
+      chunks.onCompleted();
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(completedTask));
+   }
+
+   @Test
+   public void observeTasksWithQuery_emitsOnlyMatchingTasks() {
+      mTasksRepository.observeTasks(TaskQuery.ACTIVE).subscribe(mSubscriber);
+
+      mTasksRepository.completeTask(TASK1.getId());
+
+      mSubscriber.assertValueCount(2);
+      assertThat(mSubscriber.getOnNextEvents().get(0), contains(TASK1, TASK2));
+      assertThat(lastTasks(), contains(TASK2));
+   }
+
+   @Test
+   public void observeTasks_withNoLocalChunks_loadsRemoteTasks() {
+      PublishSubject<List<Task>> chunks = PublishSubject.create();
+      givenChunkedLocalDataSource(chunks);
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+      chunks.onCompleted();
+
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(TASK1, TASK2));
+   }
+
+   @Test
+   public void observeTasks_withDirtyCache_emitsLocalTasksWithoutWaitingForRemote() {
+      when(mTasksLocalDataSource.getTasks()).thenReturn(Collections.singletonList(LOCAL_TASK1));
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+
+      mSubscriber.assertValueCount(1);
+      assertThat(lastTasks(), contains(LOCAL_TASK1));
+      assertThat(mTasksRepository.getExecutedRemoteFetchCount(), is(0L));
+
+      // The cache is still dirty, the refresh that follows reaches the observer.
+      mTasksRepository.getTasks();
+      mSubscriber.assertValueCount(2);
+      assertThat(lastTasks(), contains(TASK1, TASK2));
+   }
+
+   @Test
+   public void observeTasks_withDirtyCache_emitsLocalChunks() {
+      PublishSubject<List<Task>> chunks = PublishSubject.create();
+      givenChunkedLocalDataSource(chunks);
+      mTasksRepository.refreshTasks();
+
+      mTasksRepository.observeTasks().subscribe(mSubscriber);
+      chunks.onNext(Collections.singletonList(LOCAL_TASK1));
+      chunks.onCompleted();
+
+      assertThat(lastTasks(), contains(LOCAL_TASK1));
+      assertThat(mTasksRepository.getExecutedRemoteFetchCount(), is(0L));
+   }
+
+   private TasksDataSource givenChunkedLocalDataSource(PublishSubject<List<Task>> chunks) {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksChunkSource.class));
+      when(((TasksChunkSource) localDataSource).getTasksInChunks(anyInt())).thenReturn(chunks);
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource, localDataSource);
+      return localDataSource;
+   }
+
+   private List<Task> lastTasks() {
+      List<List<Task>> emitted = mSubscriber.getOnNextEvents();
+      return emitted.get(emitted.size() - 1);
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskSearchQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Unit tests for the queries of {@link TasksRepository#getTasks(TaskQuery)} and
+ * {@link TasksRepository#searchTasks(TaskSearchQuery, int, int)}.
+ */
+public class TasksRepositoryQueryTest {
+
+   private static final Task ACTIVE_TASK = new Task("Title1", "Description1");
+
+   private static final Task COMPLETED_TASK = new Task("Title2", "Description2", true);
+
+   private static final Task SEARCHED_TASK = new Task("Description", "Title");
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   @Before
+   public void setupTasksRepository() {
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      mTasksRemoteDataSource.addTasks(ACTIVE_TASK, COMPLETED_TASK);
+
+      mTasksLocalDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksQuerySource.class));
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+   }
+
+   @After
+   public void tearDown() {
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void getTasksWithQuery_nothingCached_runsQueryInLocalDataSource() {
+      when(((TasksQuerySource) mTasksLocalDataSource).getTasks(TaskQuery.ACTIVE))
+            .thenReturn(Lists.newArrayList(ACTIVE_TASK));
+
+      assertThat(mTasksRepository.getTasks(TaskQuery.ACTIVE), contains(ACTIVE_TASK));
+      verify(mTasksLocalDataSource, never()).getTasks();
+   }
+
+   @Test
+   public void getTasksWithQuery_nothingLocal_filtersRemoteTasks() {
+      when(((TasksQuerySource) mTasksLocalDataSource).getTasks(TaskQuery.COMPLETED))
+            .thenReturn(Collections.<Task>emptyList());
+      when(mTasksLocalDataSource.getTasks()).thenReturn(Collections.<Task>emptyList());
+
+      assertThat(mTasksRepository.getTasks(TaskQuery.COMPLETED), contains(COMPLETED_TASK));
+   }
+
+   @Test
+   public void getTasksWithQuery_cached_filtersCacheOnly() {
+      mTasksRepository.refreshTasks();
+      mTasksRepository.getTasks();
+
+      assertThat(mTasksRepository.getTasks(TaskQuery.ACTIVE), contains(ACTIVE_TASK));
+      assertThat(mTasksRepository.getTasks(TaskQuery.COMPLETED), contains(COMPLETED_TASK));
+      verify((TasksQuerySource) mTasksLocalDataSource, never()).getTasks(any(TaskQuery.class));
+   }
+
+   @Test
+   public void searchTasks_withoutIndex_ranksCachedTasksInMemory() {
+      mTasksRemoteDataSource.addTasks(SEARCHED_TASK);
+      mTasksRepository.refreshTasks();
+
+      TaskSearchQuery query = TaskSearchQuery.parse("descr");
+      assertThat(mTasksRepository.searchTasks(query, 0, 10),
+            contains(SEARCHED_TASK, ACTIVE_TASK, COMPLETED_TASK));
+      assertThat(mTasksRepository.searchTasks(query, 1, 1), contains(ACTIVE_TASK));
+      assertThat(mTasksRepository.searchTasks(query, 3, 1).isEmpty(), is(true));
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how many reads of the cached tasks {@link TasksRepository} serves per second while a
+ * writer keeps completing and activating tasks, for a growing number of readers. Results are
+ * printed, they depend on the number of cores.
+ * <p>
+ * Ignored in the unit test suite, since it only measures: remove {@code @Ignore} to run it.
+ */
+@Ignore("Benchmark")
+public class TasksRepositoryReadBenchmark {
+
+   private static final int THREADS = 8;
+
+   private static final int INITIAL_TASKS = 100;
+
+   private static final long BENCHMARK_MILLIS = 200;
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   private ExecutorService mExecutor;
+
+   @Before
+   public void setupTasksRepository() {
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      for (int i = 0; i < INITIAL_TASKS; i++) {
+         mTasksRemoteDataSource.addTasks(new Task("Title" + i, "Description" + i, i % 2 == 0));
+      }
+
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mock(TasksDataSource.class));
+
+      mExecutor = Executors.newFixedThreadPool(THREADS + 1);
+   }
+
+   @After
+   public void tearDown() {
+      mExecutor.shutdownNow();
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void readThroughput_withConcurrentWriter() throws Exception {
+      // Warm the cache up.
+      mTasksRepository.getTasks();
+
+      for (int readers = 1; readers <= THREADS; readers *= 2) {
+         long reads = measureReads(readers);
+         System.out.println(readers + " reader(s) with 1 writer: "
+               + reads * 1000 / BENCHMARK_MILLIS + " reads/s");
+      }
+   }
+
+   private long measureReads(int readers) throws Exception {
+      final AtomicBoolean running = new AtomicBoolean(true);
+      final AtomicLong reads = new AtomicLong();
+      List<Future<?>> results = new ArrayList<>();
+
+      results.add(mExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            Random random = new Random();
+            while (running.get()) {
+               List<Task> tasks = mTasksRepository.getTasks();
+               if (!tasks.isEmpty()) {
+                  String taskId = tasks.get(random.nextInt(tasks.size())).getId();
+                  mTasksRepository.completeTask(taskId);
+                  mTasksRepository.activateTask(taskId);
+               }
+            }
+         }
+      }));
+      for (int i = 0; i < readers; i++) {
+         results.add(mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+               long count = 0;
+               while (running.get()) {
+                  mTasksRepository.getTasks();
+                  count++;
+               }
+               reads.addAndGet(count);
+            }
+         }));
+      }
+
+      Thread.sleep(BENCHMARK_MILLIS);
+      running.set(false);
+      for (Future<?> result : results) {
+         result.get(10, TimeUnit.SECONDS);
+      }
+      return reads.get();
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.example.android.architecture.blueprints.todoapp.util.ThreadChecks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for how {@link TasksRepository} handles {@link Task#isSummary() summaries} read from
+ * the local data source.
+ */
+public class TasksRepositorySummaryTest {
+
+   private static final Task FULL_TASK = new Task("Title", "Long description", "id");
+
+   private static final Task SUMMARY =
+         Task.summary("Title", "Long", "id", false, 0, 0, 0);
+
+   private TasksDataSource mTasksRemoteDataSource;
+
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   @Before
+   public void setupTasksRepository() {
+      mTasksRemoteDataSource = mock(TasksDataSource.class);
+      mTasksLocalDataSource = mock(TasksDataSource.class);
+      when(mTasksLocalDataSource.getTasks()).thenReturn(Collections.singletonList(SUMMARY));
+      when(mTasksLocalDataSource.getTask("id")).thenReturn(FULL_TASK);
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+      mTasksRepository.getTasks();
+   }
+
+   @After
+   public void tearDown() {
+      ThreadChecks.setEnabled(false);
+      ThreadChecks.setMainThread(null);
+      TasksRepository.destroyInstance();
+   }
+
+   @Test
+   public void getTask_cachedSummary_readsFullTask() {
+      Task task = mTasksRepository.getTask("id");
+
+      assertThat(task.isSummary(), is(false));
+      assertThat(task.getDescription(), is("Long description"));
+      // The cache keeps the summary.
+      assertThat(mTasksRepository.mCachedTasks.getTask("id").isSummary(), is(true));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void getTask_cachedSummaryOnMainThread_fails() {
+      // The test thread stands in for the UI thread.
+      ThreadChecks.setEnabled(true);
+      ThreadChecks.setMainThread(Thread.currentThread());
+
+      mTasksRepository.getTask("id");
+   }
+
+   @Test
+   public void getTaskByTaskId_cachedSummary_readsFullTask() {
+      Task task = mTasksRepository.getTask(SUMMARY.getTaskId());
+
+      assertThat(task.isSummary(), is(false));
+      assertThat(task.getDescription(), is("Long description"));
+   }
+
+   @Test
+   public void completeTaskByTaskId_summary_sendsIdOnly() {
+      mTasksRepository.completeTask(SUMMARY.getTaskId());
+
+      verify(mTasksRemoteDataSource).completeTasks(Collections.singletonList("id"));
+      assertThat(mTasksRepository.mCachedTasks.getTask("id").isCompleted(), is(true));
+   }
+
+   @Test
+   public void completeTask_summary_sendsIdOnly() {
+      mTasksRepository.completeTask("id");
+
+      verify(mTasksLocalDataSource, never()).getTask("id");
+      verify(mTasksRemoteDataSource).completeTasks(Collections.singletonList("id"));
+      verify(mTasksRemoteDataSource, never()).completeTask(any(Task.class));
+      Task cachedTask = mTasksRepository.mCachedTasks.getTask("id");
+      assertThat(cachedTask.isCompleted(), is(true));
+      assertThat(cachedTask.isSummary(), is(true));
+   }
+
+   @Test
+   public void activateTask_summary_sendsIdOnly() {
+      mTasksRepository.completeTasks(Collections.singletonList("id"));
+
+      mTasksRepository.activateTask(mTasksRepository.mCachedTasks.getTask("id"));
+
+      verify(mTasksRemoteDataSource).activateTasks(Collections.singletonList("id"));
+      verify(mTasksRemoteDataSource, never()).activateTask(any(Task.class));
+      assertThat(mTasksRepository.mCachedTasks.getTask("id").isActive(), is(true));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void saveTask_summary_isRejected() {
+      mTasksRepository.saveTask(SUMMARY);
+   }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Unit tests for the incremental sync between {@link TasksRepository} and a
+ * {@link TasksDeltaSource}.
+ */
+public class TasksRepositorySyncTest {
+
+   private static final Task TASK1 = new Task("Title1", "Description1");
+
+   private static final Task TASK2 = new Task("Title2", "Description2");
+
+   private static final Task TASK3 = new Task("Title3", "Description3");
+
+   private FakeTasksRemoteDataSource mTasksRemoteDataSource;
+
+   @Mock
+   private TasksDataSource mTasksLocalDataSource;
+
+   private TasksRepository mTasksRepository;
+
+   @Before
+   public void setupTasksRepository() {
+      MockitoAnnotations.initMocks(this);
+
+      mTasksRemoteDataSource = FakeTasksRemoteDataSource.getInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+      mTasksRemoteDataSource.addTasks(TASK1, TASK2);
+
+      TasksRepository.destroyInstance();
+      mTasksRepository = TasksRepository.getInstance(mTasksRemoteDataSource,
+            mTasksLocalDataSource);
+   }
+
+   @After
+   public void tearDown() {
+      TasksRepository.destroyInstance();
+      mTasksRemoteDataSource.deleteAllTasks();
+   }
+
+   @Test
+   public void firstRefresh_fetchesEverything() {
+      mTasksRepository.refreshTasks();
+
+      List<Task> tasks = mTasksRepository.getTasks();
+
+      assertThat(tasks, contains(TASK1, TASK2));
+      assertThat(tasks.get(0).getVersion(), greaterThan(0L));
+      verify(mTasksLocalDataSource).deleteAllTasks();
+      verify(mTasksLocalDataSource).saveTasks(tasks);
+   }
+
+   @Test
+   public void laterRefresh_appliesOnlyChangesAndTombstones() {
+      mTasksRepository.refreshTasks();
+      mTasksRepository.getTasks();
+      reset(mTasksLocalDataSource);
+
+      // Changes made by another client.
+      mTasksRemoteDataSource.deleteTask(TASK1.getId());
+      mTasksRemoteDataSource.addTasks(TASK3);
+      mTasksRepository.refreshTasks();
+
+      List<Task> tasks = mTasksRepository.getTasks();
+
+      assertThat(tasks, contains(TASK2, TASK3));
+      verify(mTasksLocalDataSource, never()).deleteAllTasks();
+      verify(mTasksLocalDataSource).saveTasks(Collections.singletonList(TASK3));
+      verify(mTasksLocalDataSource).deleteTasks(Collections.singletonList(TASK1.getId()));
+   }
+
+   @Test
+   public void refresh_replacesLocalTasksInOneTransaction() {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksTransactionSource.class));
+      final boolean[] inTransaction = new boolean[1];
+      doAnswer(new Answer<Void>() {
+         @Override
+         public Void answer(InvocationOnMock invocation) {
+            inTransaction[0] = true;
+            ((Runnable) invocation.getArguments()[0]).run();
+            inTransaction[0] = false;
+            return null;
+         }
+      }).when((TasksTransactionSource) localDataSource).runInTransaction(any(Runnable.class));
+      doAnswer(new Answer<Void>() {
+         @Override
+         public Void answer(InvocationOnMock invocation) {
+            assertThat(inTransaction[0], is(true));
+            return null;
+         }
+      }).when(localDataSource).deleteAllTasks();
+      TasksRepository.destroyInstance();
+      TasksRepository repository =
+            TasksRepository.getInstance(mTasksRemoteDataSource, localDataSource);
+      repository.refreshTasks();
+
+      List<Task> tasks = repository.getTasks();
+
+      verify((TasksTransactionSource) localDataSource).runInTransaction(any(Runnable.class));
+      verify(localDataSource).deleteAllTasks();
+      verify(localDataSource).saveTasks(tasks);
+   }
+
+   @Test
+   public void refreshWithoutChanges_writesNothing() {
+      mTasksRepository.refreshTasks();
+      mTasksRepository.getTasks();
+      reset(mTasksLocalDataSource);
+      mTasksRepository.refreshTasks();
+
+      mTasksRepository.getTasks();
+
+      verify(mTasksLocalDataSource).saveTasks(Collections.<Task>emptyList());
+      verify(mTasksLocalDataSource, never()).deleteTask(anyString());
+   }
+
+   @Test
+   public void completeTask_keepsTheTimesOfTheTask() {
+      mTasksRepository.refreshTasks();
+      mTasksRepository.getTasks();
+
+      mTasksRepository.completeTask(TASK1.getId());
+
+      Task cachedTask = mTasksRepository.getTask(TASK1.getId());
+      assertThat(cachedTask.getCreatedAt(), is(TASK1.getCreatedAt()));
+      assertThat(cachedTask.getCompletedAt(), greaterThan(0L));
+      Task remoteTask = mTasksRemoteDataSource.getTask(TASK1.getId());
+      assertThat(remoteTask.getCreatedAt(), is(TASK1.getCreatedAt()));
+      assertThat(remoteTask.getCompletedAt(), is(cachedTask.getCompletedAt()));
+
+      mTasksRepository.activateTask(TASK1.getId());
+
+      assertThat(mTasksRepository.getTask(TASK1.getId()).getCreatedAt(),
+            is(TASK1.getCreatedAt()));
+      assertThat(mTasksRemoteDataSource.getTask(TASK1.getId()).getCompletedAt(), is(0L));
+   }
+
+   @Test
+   public void remoteDeltaSinceWatermark_returnsOnlyLaterChanges() {
+      long watermark = mTasksRemoteDataSource.getTasksChangedSince(0).getWatermark();
+      mTasksRemoteDataSource.completeTask(TASK2);
+      mTasksRemoteDataSource.deleteTask(TASK1.getId());
+
+      TasksDelta delta = mTasksRemoteDataSource.getTasksChangedSince(watermark);
+
+      assertThat(delta.isFullSync(), is(false));
+      assertThat(delta.getChangedTasks(), contains(TASK2));
+      assertThat(delta.getChangedTasks().get(0).isCompleted(), is(true));
+      assertThat(delta.getDeletedTaskIds(), contains(TASK1.getId()));
+      assertThat(delta.getWatermark(), is(watermark + 2));
+      assertThat(mTasksRemoteDataSource.getTasksChangedSince(delta.getWatermark()).isEmpty(),
+            is(true));
+   }
+
+   @Test
+   public void fullDelta_hasNoTombstones() {
+      mTasksRemoteDataSource.deleteTask(TASK1.getId());
+
+      TasksDelta delta = mTasksRemoteDataSource.getTasksChangedSince(0);
+
+      assertThat(delta.getChangedTasks(), containsInAnyOrder(TASK2));
+      assertThat(delta.getDeletedTaskIds(), empty());
+   }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.android.architecture.blueprints.todoapp.data.source.TaskCountsChecker.assertCountsMatchScan;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Unit tests for {@link TasksSnapshot}.
+ */
+public class TasksSnapshotTest {
+
+   private static final Task TASK1 = new Task("Title1", "Description1");
+
+   private static final Task TASK2 = new Task("Title2", "Description2", true);
+
+   private static final Task TASK3 = new Task("Title3", "Description3");
+
+   @Test
+   public void withTask_replacesInPlaceAndLeavesOriginalUntouched() {
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2));
+
+      Task editedTask = new Task("Edited", "Description1", TASK1.getId());
+      TasksSnapshot edited = snapshot.withTask(editedTask);
+
+      assertThat(edited, contains(editedTask, TASK2));
+      assertThat(edited.getTask(TASK1.getId()), is(editedTask));
+      assertThat(edited.getVersion(), is(snapshot.getVersion() + 1));
+      assertThat(snapshot, contains(TASK1, TASK2));
+   }
+
+   @Test
+   public void withTask_appendsNewTask() {
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY.withTask(TASK1).withTask(TASK2);
+
+      assertThat(snapshot, contains(TASK1, TASK2));
+      assertThat(snapshot.getTask(TASK2.getId()), is(TASK2));
+   }
+
+   @Test
+   public void getTask_byTaskId_findsSameTaskAsByString() {
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2));
+
+      assertThat(snapshot.getTask(TASK2.getTaskId()), is(TASK2));
+      assertThat(snapshot.containsTask(TASK1.getTaskId()), is(true));
+      assertThat(snapshot.containsTask(TASK3.getTaskId()), is(false));
+   }
+
+   @Test
+   public void withoutTask_removesTaskAndReindexes() {
+      TasksSnapshot snapshot =
+            TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2, TASK3));
+
+      TasksSnapshot removed = snapshot.withoutTask(TASK1.getId());
+
+      assertThat(removed, contains(TASK2, TASK3));
+      assertThat(removed.getTask(TASK1.getId()), nullValue());
+      assertThat(removed.getTask(TASK3.getId()), is(TASK3));
+   }
+
+   @Test
+   public void withoutTask_unknownIdReturnsSameSnapshot() {
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY.withTask(TASK1);
+
+      assertThat(snapshot.withoutTask("unknown"), sameInstance(snapshot));
+   }
+
+   @Test
+   public void withCompleted_flipsKnownTasksInPlace() {
+      TasksSnapshot snapshot =
+            TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2, TASK3));
+
+      TasksSnapshot completed = snapshot.withCompleted(
+            Lists.newArrayList(TASK3.getId(), TASK1.getId(), "unknown"), true);
+
+      assertThat(completed, contains(TASK1, TASK2, TASK3));
+      assertThat(completed.get(0).isCompleted(), is(true));
+      assertThat(completed.get(2).isCompleted(), is(true));
+      assertThat(completed.getTask(TASK3.getId()).isCompleted(), is(true));
+      assertThat(snapshot.get(0).isCompleted(), is(false));
+   }
+
+   @Test
+   public void withCompleted_noChangeReturnsSameSnapshot() {
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2));
+
+      assertThat(snapshot.withCompleted(Lists.newArrayList(TASK2.getId()), true),
+            sameInstance(snapshot));
+   }
+
+   @Test
+   public void withoutCompletedTasks_keepsActiveTasks() {
+      TasksSnapshot snapshot =
+            TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2, TASK3));
+
+      assertThat(snapshot.withoutCompletedTasks(), contains(TASK1, TASK3));
+   }
+
+   @Test
+   public void partitions_followCompletionChanges() {
+      TasksSnapshot snapshot =
+            TasksSnapshot.EMPTY.withAllTasks(Lists.newArrayList(TASK1, TASK2, TASK3));
+      assertThat(snapshot.getActiveTasks(), contains(TASK1, TASK3));
+      assertThat(snapshot.getCompletedTasks(), contains(TASK2));
+
+      TasksSnapshot completed = snapshot.withCompleted(Lists.newArrayList(TASK3.getId()), true);
+      assertThat(completed.getActiveTasks(), contains(TASK1));
+      assertThat(completed.getCompletedTasks(), contains(TASK2, TASK3));
+
+      TasksSnapshot activated =
+            completed.withTask(new Task("Title2", "Description2", TASK2.getId()));
+      assertThat(activated.getActiveTasks(), contains(TASK1, TASK2));
+      assertThat(activated.getCompletedTasks(), contains(TASK3));
+
+      TasksSnapshot cleared = activated.withoutCompletedTasks();
+      assertThat(cleared.getActiveTasks(), contains(TASK1, TASK2));
+      assertThat(cleared.getCompletedTasks(), is(empty()));
+
+      // The original snapshot is untouched.
+      assertThat(snapshot.getActiveTasks(), contains(TASK1, TASK3));
+   }
+
+   @Test
+   public void partitions_matchTasksAfterRandomChanges() {
+      Random random = new Random(42);
+      TasksSnapshot snapshot = TasksSnapshot.EMPTY;
+      for (int i = 0; i < 1000; i++) {
+         int operation = random.nextInt(6);
+         String randomId = snapshot.isEmpty()
+               ? "unknown" : snapshot.get(random.nextInt(snapshot.size())).getId();
+         if (operation == 0) {
+            snapshot = snapshot.withTask(new Task("Title", "", random.nextBoolean()));
+         } else if (operation == 1) {
+            snapshot = snapshot.withTask(new Task("Title", "", randomId, random.nextBoolean()));
+         } else if (operation == 2) {
+            snapshot = snapshot.withCompleted(Lists.newArrayList(randomId), random.nextBoolean());
+         } else if (operation == 3) {
+            snapshot = snapshot.withoutTask(randomId);
+         } else if (operation == 4) {
+            snapshot = snapshot.withTasks(Lists.newArrayList(new Task("Title", "", true),
+                  new Task("Title", "", randomId, random.nextBoolean())));
+         } else if (random.nextInt(10) == 0) {
+            snapshot = snapshot.withoutCompletedTasks();
+         }
+         assertPartitionsMatch(snapshot);
+         assertCountsMatchScan(snapshot);
+      }
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void partitions_cannotBeModified() {
+      TasksSnapshot.EMPTY.withTask(TASK1).getActiveTasks().remove(0);
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void snapshot_cannotBeModified() {
+      TasksSnapshot.EMPTY.withTask(TASK1).add(TASK2);
+   }
+
+   private static void assertPartitionsMatch(TasksSnapshot snapshot) {
+      List<Task> activeTasks = new ArrayList<>();
+      List<Task> completedTasks = new ArrayList<>();
+      for (Task task : snapshot) {
+         (task.isCompleted() ? completedTasks : activeTasks).add(task);
+      }
+      assertThat(new ArrayList<>(snapshot.getActiveTasks()), is(activeTasks));
+      assertThat(new ArrayList<>(snapshot.getCompletedTasks()), is(completedTasks));
+      for (Task task : snapshot.getCompletedTasks()) {
+         assertThat(task.isCompleted(), is(true));
+      }
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.outbox.PendingMutation.Operation;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link MutationCoalescer}.
+ */
+public class MutationCoalescerTest {
+
+   private static final Task TASK1 = new Task("Title1", "Description1");
+
+   private static final Task TASK2 = new Task("Title2", "Description2");
+
+   @Test
+   public void completeThenActivate_keepsActivate() {
+      // The remote may have had the task completed already, so this is not a no-op.
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.complete(TASK1), PendingMutation.activate(TASK1.getId())));
+
+      assertThat(coalesced.size(), is(1));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.ACTIVATE));
+   }
+
+   @Test
+   public void repeatedToggles_keepLastOne() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.complete(TASK1), PendingMutation.activate(TASK1),
+            PendingMutation.complete(TASK1), PendingMutation.complete(TASK1)));
+
+      assertThat(coalesced.size(), is(1));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.COMPLETE));
+   }
+
+   @Test
+   public void deleteThenCompleteById_keepsDelete() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.delete(TASK1.getId()), PendingMutation.complete(TASK1.getId())));
+
+      assertThat(coalesced.size(), is(1));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.DELETE));
+   }
+
+   @Test
+   public void saveThenComplete_foldsIntoSave() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.save(TASK1), PendingMutation.complete(TASK1)));
+
+      assertThat(coalesced.size(), is(1));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.SAVE));
+      assertThat(coalesced.get(0).getTask(), is(TASK1));
+      assertThat(coalesced.get(0).getTask().isCompleted(), is(true));
+   }
+
+   @Test
+   public void saveThenComplete_keepsTheTimesOfTheTask() {
+      Task completedTask = TASK1.withCompleted(true, TASK1.getCreatedAt() + 1000);
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.save(TASK1), PendingMutation.complete(completedTask)));
+
+      assertThat(coalesced.get(0).getTask().getCreatedAt(), is(TASK1.getCreatedAt()));
+      assertThat(coalesced.get(0).getTask().getCompletedAt(), is(completedTask.getCompletedAt()));
+   }
+
+   @Test
+   public void delete_overridesEarlierMutations() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.save(TASK1), PendingMutation.complete(TASK1),
+            PendingMutation.save(TASK2), PendingMutation.delete(TASK1.getId())));
+
+      assertThat(coalesced.size(), is(2));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.SAVE));
+      assertThat(coalesced.get(0).getTaskId(), is(TASK2.getId()));
+      assertThat(coalesced.get(1).getOperation(), is(Operation.DELETE));
+      assertThat(coalesced.get(1).getTaskId(), is(TASK1.getId()));
+   }
+
+   @Test
+   public void clearCompleted_isABarrier() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.complete(TASK1), PendingMutation.clearCompleted(),
+            PendingMutation.clearCompleted(), PendingMutation.save(TASK1)));
+
+      assertThat(coalesced.size(), is(3));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.COMPLETE));
+      assertThat(coalesced.get(1).getOperation(), is(Operation.CLEAR_COMPLETED));
+      assertThat(coalesced.get(2).getOperation(), is(Operation.SAVE));
+   }
+
+   @Test
+   public void deleteAll_dropsEverythingBefore() {
+      List<PendingMutation> coalesced = MutationCoalescer.coalesce(Lists.newArrayList(
+            PendingMutation.save(TASK1), PendingMutation.clearCompleted(),
+            PendingMutation.save(TASK2), PendingMutation.deleteAll(),
+            PendingMutation.save(TASK1)));
+
+      assertThat(coalesced.size(), is(2));
+      assertThat(coalesced.get(0).getOperation(), is(Operation.DELETE_ALL));
+      assertThat(coalesced.get(1).getTaskId(), is(TASK1.getId()));
+   }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.outbox;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksTransactionSource;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Unit tests for {@link TasksOutbox} and the write-behind path of {@link TasksRepository}.
+ */
+public class TasksOutboxTest {
+
+   private static final Task TASK1 = new Task("Title1", "Description1");
+
+   private static final Task TASK2 = new Task("Title2", "Description2");
+
+   @Mock
+   private TasksDataSource mTasksRemoteDataSource;
+
+   @Mock
+   private TasksDataSource mTasksLocalDataSource;
+
+   // Drains are run by hand by the tests.
+   @Mock
+   private ScheduledExecutorService mExecutor;
+
+   private InMemoryOutboxStore mStore;
+
+   private TasksOutbox mOutbox;
+
+   @Before
+   public void setupOutbox() {
+      MockitoAnnotations.initMocks(this);
+      mStore = new InMemoryOutboxStore();
+      mOutbox = new TasksOutbox(mStore, mTasksRemoteDataSource, mExecutor);
+   }
+
+   @After
+   public void tearDown() {
+      TasksRepository.destroyInstance();
+   }
+
+   @Test
+   public void repositoryWrites_commitLocallyWithoutTouchingRemote() {
+      TasksRepository repository =
+            TasksRepository.getInstance(mTasksRemoteDataSource, mTasksLocalDataSource, mOutbox);
+
+      repository.saveTask(TASK1);
+      repository.completeTask(TASK1);
+      repository.deleteTask(TASK2.getId());
+
+      verify(mTasksLocalDataSource).saveTask(TASK1);
+      verify(mTasksLocalDataSource).completeTask(TASK1);
+      verify(mTasksLocalDataSource).deleteTask(TASK2.getId());
+      verifyZeroInteractions(mTasksRemoteDataSource);
+      assertThat(mStore.mMutations.size(), is(3));
+      verify(mExecutor).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void drain_sendsCoalescedBatchAndEmptiesStore() {
+      mOutbox.enqueue(PendingMutation.save(TASK1));
+      mOutbox.enqueue(PendingMutation.save(TASK2));
+      mOutbox.enqueue(PendingMutation.complete(TASK2));
+      mOutbox.enqueue(PendingMutation.activate(TASK2));
+      mOutbox.enqueue(PendingMutation.delete(TASK1.getId()));
+
+      assertThat(mOutbox.drain(), is(true));
+
+      InOrder inOrder = inOrder(mTasksRemoteDataSource);
+      inOrder.verify(mTasksRemoteDataSource).saveTasks(Collections.singletonList(TASK2));
+      inOrder.verify(mTasksRemoteDataSource).deleteTasks(Collections.singletonList(TASK1.getId()));
+      verify(mTasksRemoteDataSource, never()).completeTask(any(Task.class));
+      assertThat(mStore.mMutations, is(empty()));
+   }
+
+   @Test
+   public void drain_sendsRunsOfIdOnlyMutationsAsBatches() {
+      mOutbox.enqueue(Lists.newArrayList(PendingMutation.complete(TASK1.getId()),
+            PendingMutation.complete(TASK2.getId())));
+      mOutbox.enqueue(PendingMutation.clearCompleted());
+      mOutbox.enqueue(Lists.newArrayList(PendingMutation.delete(TASK1.getId()),
+            PendingMutation.delete(TASK2.getId())));
+
+      assertThat(mOutbox.drain(), is(true));
+
+      InOrder inOrder = inOrder(mTasksRemoteDataSource);
+      inOrder.verify(mTasksRemoteDataSource)
+            .completeTasks(Lists.newArrayList(TASK1.getId(), TASK2.getId()));
+      inOrder.verify(mTasksRemoteDataSource).clearCompletedTasks();
+      inOrder.verify(mTasksRemoteDataSource)
+            .deleteTasks(Lists.newArrayList(TASK1.getId(), TASK2.getId()));
+      verify(mTasksRemoteDataSource, never()).completeTask(any(Task.class));
+      assertThat(mStore.mMutations, is(empty()));
+   }
+
+   @Test
+   public void failingRemote_keepsMutationsAndBacksOff() {
+      doThrow(new RuntimeException("Offline")).when(mTasksRemoteDataSource)
+            .saveTasks(anyCollectionOf(Task.class));
+      mOutbox.enqueue(PendingMutation.save(TASK1));
+
+      // The first attempt and the retry both fail.
+      runScheduledDrain();
+      runScheduledDrain();
+
+      assertThat(mStore.mMutations.size(), is(1));
+      InOrder inOrder = inOrder(mExecutor);
+      inOrder.verify(mExecutor).schedule(any(Runnable.class), eq(0L), any(TimeUnit.class));
+      inOrder.verify(mExecutor).schedule(any(Runnable.class),
+            eq(TasksOutbox.INITIAL_RETRY_DELAY_MILLIS), any(TimeUnit.class));
+      inOrder.verify(mExecutor).schedule(any(Runnable.class),
+            eq(2 * TasksOutbox.INITIAL_RETRY_DELAY_MILLIS), any(TimeUnit.class));
+
+      // Once the remote is back, the mutation goes through.
+      doNothing().when(mTasksRemoteDataSource).saveTasks(anyCollectionOf(Task.class));
+      assertThat(mOutbox.flush(), is(true));
+      assertThat(mStore.mMutations, is(empty()));
+   }
+
+   @Test
+   public void repositoryWrite_storesMutationsInTheLocalTransaction() {
+      TasksDataSource localDataSource = mock(TasksDataSource.class,
+            withSettings().extraInterfaces(TasksTransactionSource.class));
+      final List<Integer> storedInTransaction = new ArrayList<>();
+      doAnswer(new Answer<Void>() {
+         @Override
+         public Void answer(InvocationOnMock invocation) {
+            ((Runnable) invocation.getArguments()[0]).run();
+            storedInTransaction.add(mStore.mMutations.size());
+            // Nothing may be sent before the transaction is committed.
+            verifyZeroInteractions(mExecutor);
+            return null;
+         }
+      }).when((TasksTransactionSource) localDataSource).runInTransaction(any(Runnable.class));
+      TasksRepository repository =
+            TasksRepository.getInstance(mTasksRemoteDataSource, localDataSource, mOutbox);
+
+      repository.saveTask(TASK1);
+
+      verify(localDataSource).saveTask(TASK1);
+      assertThat(storedInTransaction, is(Collections.singletonList(1)));
+      verify(mExecutor).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void enqueueWhileDrainScheduled_schedulesOnce() {
+      mOutbox.enqueue(PendingMutation.save(TASK1));
+      mOutbox.enqueue(PendingMutation.save(TASK2));
+
+      verify(mExecutor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+   }
+
+   private void runScheduledDrain() {
+      ArgumentCaptor<Runnable> drainTask = ArgumentCaptor.forClass(Runnable.class);
+      verify(mExecutor, atLeastOnce()).schedule(drainTask.capture(), anyLong(), any(TimeUnit.class));
+      drainTask.getValue().run();
+   }
+
+   private static class InMemoryOutboxStore implements OutboxStore {
+
+      final List<PendingMutation> mMutations = new ArrayList<>();
+
+      private long mNextId = 1;
+
+      @Override
+      public synchronized void append(List<PendingMutation> mutations) {
+         for (PendingMutation mutation : mutations) {
+            mMutations.add(PendingMutation.fromStore(mNextId++, mutation.getOperation(),
+                  mutation.getTaskId(), mutation.getTask()));
+         }
+      }
+
+      @Override
+      public synchronized List<PendingMutation> peek(int maxCount) {
+         return new ArrayList<>(mMutations.subList(0, Math.min(maxCount, mMutations.size())));
+      }
+
+      @Override
+      public synchronized void remove(List<PendingMutation> mutations) {
+         mMutations.removeAll(mutations);
+      }
+   }
+}
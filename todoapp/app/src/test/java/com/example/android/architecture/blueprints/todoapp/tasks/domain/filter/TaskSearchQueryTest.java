@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.filter;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link TaskSearchQuery}.
+ */
+public class TaskSearchQueryTest {
+
+   private static final Task TASK = new Task("Build tower in Pisa",
+         "Ground looks good, no foundation work required.");
+
+   @Test
+   public void parse_keepsLowerCaseWordsOnly() {
+      TaskSearchQuery query = TaskSearchQuery.parse("  Tower* \"pisa\" title:OR-2 ");
+
+      assertThat(query.getTerms(), contains("tower", "pisa", "title", "or", "2"));
+   }
+
+   @Test
+   public void parse_nothingToSearch_isEmpty() {
+      assertThat(TaskSearchQuery.parse(" *- ").isEmpty(), is(true));
+      assertThat(TaskSearchQuery.parse(" *- ").rank(TASK), is(TaskSearchQuery.NO_MATCH));
+   }
+
+   @Test
+   public void rank_titleMatchesRankFirst() {
+      assertThat(TaskSearchQuery.parse("tow PI").rank(TASK), is(TaskSearchQuery.RANK_TITLE));
+      assertThat(TaskSearchQuery.parse("tower found").rank(TASK),
+            is(TaskSearchQuery.RANK_DESCRIPTION));
+   }
+
+   @Test
+   public void rank_everyTermMustStartAWord() {
+      assertThat(TaskSearchQuery.parse("ower").rank(TASK), is(TaskSearchQuery.NO_MATCH));
+      assertThat(TaskSearchQuery.parse("tower bridge").rank(TASK), is(TaskSearchQuery.NO_MATCH));
+   }
+}
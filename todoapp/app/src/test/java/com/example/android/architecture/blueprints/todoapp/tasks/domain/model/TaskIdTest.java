@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.model;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Unit tests for {@link TaskId}.
+ */
+public class TaskIdTest {
+
+   @Test
+   public void uuidString_isCompactAndRoundTrips() {
+      for (int i = 0; i < 1000; i++) {
+         UUID uuid = UUID.randomUUID();
+         TaskId id = TaskId.fromString(uuid.toString());
+
+         assertThat(id.isCompact(), is(true));
+         assertThat(id.getMostSignificantBits(), is(uuid.getMostSignificantBits()));
+         assertThat(id.getLeastSignificantBits(), is(uuid.getLeastSignificantBits()));
+         assertThat(id.toString(), is(uuid.toString()));
+      }
+   }
+
+   @Test
+   public void randomId_equalsItsParsedStringForm() {
+      TaskId id = TaskId.random();
+      TaskId parsed = TaskId.fromString(id.toString());
+
+      assertThat(parsed, is(id));
+      assertThat(parsed.hashCode(), is(id.hashCode()));
+      assertThat(TaskId.random(), is(not(id)));
+   }
+
+   @Test
+   public void otherStrings_areKeptAsIs() {
+      String uuid = UUID.randomUUID().toString();
+      String[] others = {"", "1", "id42", uuid.toUpperCase(), uuid.replace('-', '_'),
+            uuid.substring(1) + "g", uuid + "0"};
+      for (String other : others) {
+         TaskId id = TaskId.fromString(other);
+
+         assertThat(id.isCompact(), is(false));
+         assertThat(id.toString(), is(other));
+         assertThat(TaskId.fromString(other), is(id));
+      }
+      // An upper case UUID is a different id than its lower case form, as it is for the sources.
+      assertThat(TaskId.fromString(uuid.toUpperCase()), is(not(TaskId.fromString(uuid))));
+   }
+
+   @Test
+   public void copies_shareTheId() {
+      Task task = new Task("Title", "Description");
+      Task completed = task.withCompleted(true, 10);
+      Task copy = new Task("Title", "Description", task.getId());
+
+      assertThat(completed.getTaskId(), is(task.getTaskId()));
+      assertThat(completed.isCompleted(), is(true));
+      assertThat(completed.getCompletedAt(), is(10L));
+      assertThat(completed.getCreatedAt(), is(task.getCreatedAt()));
+      assertThat(copy, is(task));
+   }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.TaskId;
+import com.example.android.architecture.blueprints.todoapp.util.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link ActivateTask}.
+ */
+public class ActivateTaskTest {
+
+   @Mock
+   private TasksRepository mTasksRepository;
+
+   private ActivateTask mActivateTask;
+
+   @Before
+   public void setupActivateTask() {
+      MockitoAnnotations.initMocks(this);
+      mActivateTask = new ActivateTask(Schedulers.immediate(), Schedulers.immediate(),
+            mTasksRepository);
+   }
+
+   @Test
+   public void execute_activatesTaskAndCompletes() {
+      MetricsRegistry.UseCaseMetrics metrics =
+            MetricsRegistry.getInstance().getUseCaseMetrics("ActivateTask");
+      long executionTimes = metrics.getExecutionTime().getCount();
+      TestSubscriber<Object> subscriber = new TestSubscriber<>();
+
+      mActivateTask.execute(new ActivateTask.RequestValues("id"), subscriber);
+
+      verify(mTasksRepository).activateTask(TaskId.fromString("id"));
+      subscriber.assertCompleted();
+      assertThat(metrics.getInFlightCount(), is(0));
+      assertThat(metrics.getExecutionTime().getCount(), is(executionTimes + 1));
+   }
+}
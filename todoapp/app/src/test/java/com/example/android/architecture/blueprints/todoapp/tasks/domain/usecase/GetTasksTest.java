@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.FilterFactory;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.filter.TaskQuery;
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GetTasks}.
+ */
+public class GetTasksTest {
+
+   private static final List<Task> STALE_TASKS = Lists.newArrayList(new Task("Title1", "Stale"));
+
+   private static final List<Task> FRESH_TASKS = Lists.newArrayList(new Task("Title1", "Fresh"),
+         new Task("Title2", "Fresh"));
+
+   @Mock
+   private TasksRepository mTasksRepository;
+
+   private GetTasks mGetTasks;
+
+   @Before
+   public void setupGetTasks() {
+      MockitoAnnotations.initMocks(this);
+      mGetTasks = new GetTasks(Schedulers.immediate(), Schedulers.immediate(), mTasksRepository,
+            new FilterFactory(), false, TasksFilterType.ALL_TASKS);
+      when(mTasksRepository.getTasks(TaskQuery.ALL)).thenReturn(FRESH_TASKS);
+   }
+
+   @Test
+   public void forceUpdate_refreshesBeforeReadingTasks() {
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(true, TasksFilterType.ALL_TASKS), subscriber);
+
+      subscriber.assertValue(FRESH_TASKS);
+      subscriber.assertCompleted();
+      InOrder inOrder = inOrder(mTasksRepository);
+      inOrder.verify(mTasksRepository).refreshTasks();
+      inOrder.verify(mTasksRepository).getTasks(TaskQuery.ALL);
+   }
+
+   @Test
+   public void staleWhileRevalidate_emitsLocalTasksThenFreshTasks() {
+      when(mTasksRepository.getCachedOrLocalTasks()).thenReturn(STALE_TASKS);
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(true, TasksFilterType.ALL_TASKS, true),
+            subscriber);
+
+      subscriber.assertValues(STALE_TASKS, FRESH_TASKS);
+      subscriber.assertCompleted();
+      InOrder inOrder = inOrder(mTasksRepository);
+      inOrder.verify(mTasksRepository).refreshTasks();
+      inOrder.verify(mTasksRepository).getCachedOrLocalTasks();
+      inOrder.verify(mTasksRepository).getTasks(TaskQuery.ALL);
+   }
+
+   @Test
+   public void staleWhileRevalidate_nothingLocal_emitsFreshTasksOnly() {
+      when(mTasksRepository.getCachedOrLocalTasks()).thenReturn(null);
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(true, TasksFilterType.ALL_TASKS, true),
+            subscriber);
+
+      subscriber.assertValue(FRESH_TASKS);
+   }
+
+   @Test
+   public void staleWhileRevalidate_withoutForceUpdate_emitsTasksOnce() {
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(false, TasksFilterType.ALL_TASKS, true),
+            subscriber);
+
+      subscriber.assertValue(FRESH_TASKS);
+      verify(mTasksRepository, never()).getCachedOrLocalTasks();
+   }
+
+   @Test
+   public void withoutForceUpdate_emitsTasksOnce() {
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(false, TasksFilterType.ALL_TASKS), subscriber);
+
+      subscriber.assertValue(FRESH_TASKS);
+      verify(mTasksRepository, never()).refreshTasks();
+   }
+
+   @Test
+   public void activeFilter_isPassedToRepositoryAsQuery() {
+      List<Task> activeTasks = Lists.newArrayList(new Task("Title3", "Active"));
+      when(mTasksRepository.getTasks(TaskQuery.ACTIVE)).thenReturn(activeTasks);
+      TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+      mGetTasks.execute(new GetTasks.RequestValues(false, TasksFilterType.ACTIVE_TASKS),
+            subscriber);
+
+      subscriber.assertValue(activeTasks);
+      verify(mTasksRepository, never()).getTasks();
+   }
+}
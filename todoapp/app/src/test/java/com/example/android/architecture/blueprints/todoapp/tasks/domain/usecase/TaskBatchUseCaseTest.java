@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.tasks.domain.usecase;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link TaskBatchUseCase} and the use cases built on it.
+ */
+public class TaskBatchUseCaseTest {
+
+   private static final List<String> TASK_IDS = Lists.newArrayList("id1", "id2");
+
+   @Mock
+   private TasksRepository mTasksRepository;
+
+   @Before
+   public void setupMocks() {
+      MockitoAnnotations.initMocks(this);
+   }
+
+   @Test
+   public void completeTasks_completesAllTasksInOneCall() {
+      TestSubscriber<Void> subscriber = execute(
+            new CompleteTasks(Schedulers.immediate(), Schedulers.immediate(), mTasksRepository),
+            TASK_IDS);
+
+      verify(mTasksRepository).completeTasks(TASK_IDS);
+      subscriber.assertNoValues();
+      subscriber.assertCompleted();
+   }
+
+   @Test
+   public void activateTasks_activatesAllTasksInOneCall() {
+      TestSubscriber<Void> subscriber = execute(
+            new ActivateTasks(Schedulers.immediate(), Schedulers.immediate(), mTasksRepository),
+            TASK_IDS);
+
+      verify(mTasksRepository).activateTasks(TASK_IDS);
+      subscriber.assertNoValues();
+      subscriber.assertCompleted();
+   }
+
+   @Test
+   public void deleteTasks_deletesAllTasksInOneCall() {
+      TestSubscriber<Void> subscriber = execute(
+            new DeleteTasks(Schedulers.immediate(), Schedulers.immediate(), mTasksRepository),
+            TASK_IDS);
+
+      verify(mTasksRepository).deleteTasks(TASK_IDS);
+      subscriber.assertNoValues();
+      subscriber.assertCompleted();
+   }
+
+   @Test
+   public void requestValues_keepTheOrderOfTheIds() {
+      TaskBatchUseCase.RequestValues requestValues =
+            new TaskBatchUseCase.RequestValues(Sets.newLinkedHashSet(TASK_IDS));
+
+      assertThat(requestValues.getTaskIds(), is(TASK_IDS));
+   }
+
+   @Test
+   public void repositoryFailure_isDeliveredAsError() {
+      IllegalStateException failure = new IllegalStateException();
+      doThrow(failure).when(mTasksRepository).deleteTasks(anyListOf(String.class));
+
+      TestSubscriber<Void> subscriber = execute(
+            new DeleteTasks(Schedulers.immediate(), Schedulers.immediate(), mTasksRepository),
+            TASK_IDS);
+
+      subscriber.assertError(failure);
+   }
+
+   private static TestSubscriber<Void> execute(TaskBatchUseCase useCase, List<String> taskIds) {
+      TestSubscriber<Void> subscriber = new TestSubscriber<>();
+      useCase.execute(new TaskBatchUseCase.RequestValues(taskIds), subscriber);
+      return subscriber;
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueWithoutGaps() {
+        long previousHighest = -1;
+        for (int index = 0; index < Histogram.bucketIndex(Histogram.MAX_VALUE); index++) {
+            long highest = Histogram.highestValueInBucket(index);
+            assertThat(Histogram.bucketIndex(previousHighest + 1), is(index));
+            assertThat(Histogram.bucketIndex(highest), is(index));
+            previousHighest = highest;
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount(), is(100000L));
+        assertThat((double) histogram.getValueAtPercentile(50), closeTo(50000, 50000 * 0.07));
+        assertThat((double) histogram.getValueAtPercentile(99), closeTo(99000, 99000 * 0.07));
+        assertThat(histogram.getValueAtPercentile(100), is(100000L));
+        assertThat(histogram.getMax(), is(100000L));
+        assertThat(histogram.getMean(), closeTo(50000.5, 0.001));
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(random.nextInt(31) + 1);
+        }
+        histogram.record(0);
+
+        assertThat(histogram.getValueAtPercentile(0), is(0L));
+        assertThat(histogram.getValueAtPercentile(100), is(31L));
+    }
+
+    @Test
+    public void emptyHistogram_reportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+        assertThat(histogram.getMean(), is(0.0));
+    }
+}
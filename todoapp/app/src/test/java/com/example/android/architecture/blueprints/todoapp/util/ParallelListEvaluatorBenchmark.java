@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import com.example.android.architecture.blueprints.todoapp.tasks.domain.model.Task;
+import com.google.common.base.Predicate;
+
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times {@link ParallelListEvaluator} against sequential evaluation for growing lists of tasks,
+ * to find the length from which splitting pays off. Results are printed, the crossover depends on
+ * the number of cores and their speed.
+ * <p>
+ * Ignored in the unit test suite, since it only measures: remove {@code @Ignore} to run it.
+ */
+@Ignore("Benchmark")
+public class ParallelListEvaluatorBenchmark {
+
+    private static final int[] SIZES = {1000, 10000, 50000, 100000, 500000};
+
+    private static final long BENCHMARK_NANOS = 50 * 1000 * 1000;
+
+    private static final Predicate<Task> IS_COMPLETED = new Predicate<Task>() {
+        @Override
+        public boolean apply(Task task) {
+            return task.isCompleted();
+        }
+    };
+
+    private final ParallelListEvaluator mSequential = new ParallelListEvaluator(1, 1);
+
+    private final ParallelListEvaluator mParallel = new ParallelListEvaluator(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), 1);
+
+    @After
+    public void tearDown() {
+        mParallel.shutdown();
+    }
+
+    @Test
+    public void filter_sequentialVersusParallel() {
+        System.out.println(Runtime.getRuntime().availableProcessors() + " core(s)");
+        for (int size : SIZES) {
+            List<Task> tasks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                tasks.add(new Task("Title" + i, "Description" + i, "id" + i, i % 3 == 0));
+            }
+
+            long sequentialNanos = timeFilter(mSequential, tasks);
+            long parallelNanos = timeFilter(mParallel, tasks);
+            System.out.println(size + " tasks: sequential " + sequentialNanos / 1000 + " us, "
+                    + "parallel " + parallelNanos / 1000 + " us"
+                    + (parallelNanos < sequentialNanos ? " (parallel wins)" : ""));
+        }
+    }
+
+    /**
+     * Returns the average time to filter {@code tasks}, after a warm up.
+     */
+    private static long timeFilter(ParallelListEvaluator evaluator, List<Task> tasks) {
+        for (int i = 0; i < 3; i++) {
+            evaluator.filter(tasks, IS_COMPLETED);
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            evaluator.filter(tasks, IS_COMPLETED);
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < BENCHMARK_NANOS);
+        return elapsed / runs;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import com.google.common.base.Predicate;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for {@link ParallelListEvaluator}.
+ */
+public class ParallelListEvaluatorTest {
+
+    private static final Predicate<Integer> IS_EVEN = new Predicate<Integer>() {
+        @Override
+        public boolean apply(Integer value) {
+            return value % 2 == 0;
+        }
+    };
+
+    private final ParallelListEvaluator mEvaluator = new ParallelListEvaluator(4, 1);
+
+    @After
+    public void tearDown() {
+        mEvaluator.shutdown();
+    }
+
+    @Test
+    public void filterAndCount_matchSequentialResultInOrder() {
+        for (int size = 0; size <= 20; size++) {
+            List<Integer> values = range(size);
+            List<Integer> expected = new ArrayList<>();
+            for (int value : values) {
+                if (IS_EVEN.apply(value)) {
+                    expected.add(value);
+                }
+            }
+
+            assertThat(mEvaluator.filter(values, IS_EVEN), is(expected));
+            assertThat(mEvaluator.count(values, IS_EVEN), is(expected.size()));
+        }
+    }
+
+    @Test
+    public void filter_listWithoutRandomAccess_isEvaluatedSequentially() {
+        List<Integer> values = new LinkedList<>(range(10));
+
+        assertThat(mEvaluator.filter(values, IS_EVEN), is((List<Integer>) range(10, 2)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void filter_predicateFailure_isRethrown() {
+        mEvaluator.filter(range(100), new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer value) {
+                if (value == 10) {
+                    throw new IllegalStateException();
+                }
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void interruptedCaller_throwsCancellationException() throws Exception {
+        final CountDownLatch sliceStarted = new CountDownLatch(3);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mEvaluator.count(range(8), new Predicate<Integer>() {
+                        @Override
+                        public boolean apply(Integer value) {
+                            // Only the slices on the pool threads block.
+                            if (value < 6 && value % 2 == 0) {
+                                sliceStarted.countDown();
+                                awaitUninterruptibly(neverReleased);
+                            }
+                            return true;
+                        }
+                    });
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        });
+        caller.start();
+        sliceStarted.await();
+        caller.interrupt();
+        caller.join(5000);
+
+        assertThat(error.get(), instanceOf(CancellationException.class));
+        neverReleased.countDown();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            // Cancelled by the caller, the result is not used anymore.
+        }
+    }
+
+    private static List<Integer> range(int size) {
+        return range(size, 1);
+    }
+
+    private static List<Integer> range(int size, int step) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i += step) {
+            values.add(i);
+        }
+        return values;
+    }
+}
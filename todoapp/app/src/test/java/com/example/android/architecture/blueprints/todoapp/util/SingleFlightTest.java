@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import com.google.common.base.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+    private static final int CALLERS = 4;
+
+    private final SingleFlight<String, Integer> mSingleFlight = new SingleFlight<>();
+
+    private final AtomicInteger mSupplierCalls = new AtomicInteger();
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setup() {
+        mExecutor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsForSameKey_shareOneCall() throws Exception {
+        List<Future<Integer>> results = callConcurrently("key", new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                awaitRelease();
+                return mSupplierCalls.incrementAndGet();
+            }
+        });
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS), is(1));
+        }
+        assertThat(mSupplierCalls.get(), is(1));
+        assertThat(mSingleFlight.getExecutedCount(), is(1L));
+        assertThat(mSingleFlight.getDeduplicatedCount(), is((long) CALLERS - 1));
+    }
+
+    @Test
+    public void failure_isSharedAndKeyIsForgotten() throws Exception {
+        List<Future<Integer>> results = callConcurrently("key", new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                awaitRelease();
+                mSupplierCalls.incrementAndGet();
+                throw new IllegalStateException("Remote unavailable");
+            }
+        });
+
+        for (Future<Integer> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the failure to be shared");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+        assertThat(mSupplierCalls.get(), is(1));
+
+        // The next call starts over.
+        assertThat(mSingleFlight.execute("key", new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                return 42;
+            }
+        }), is(42));
+    }
+
+    @Test
+    public void cancelledCall_waitingCallersStartOver() throws Exception {
+        List<Future<Integer>> results = callConcurrently("key", new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                if (mSupplierCalls.incrementAndGet() == 1) {
+                    awaitRelease();
+                    throw new CancellationException("Leader cancelled");
+                }
+                return 42;
+            }
+        });
+
+        int cancelled = 0;
+        for (Future<Integer> result : results) {
+            try {
+                assertThat(result.get(5, TimeUnit.SECONDS), is(42));
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(CancellationException.class));
+                cancelled++;
+            }
+        }
+        // Only the caller that was cancelled fails.
+        assertThat(cancelled, is(1));
+    }
+
+    @Test
+    public void differentKeys_runSeparately() {
+        for (String key : new String[]{"a", "b"}) {
+            mSingleFlight.execute(key, new Supplier<Integer>() {
+                @Override
+                public Integer get() {
+                    return mSupplierCalls.incrementAndGet();
+                }
+            });
+        }
+
+        assertThat(mSupplierCalls.get(), is(2));
+        assertThat(mSingleFlight.getDeduplicatedCount(), is(0L));
+    }
+
+    /**
+     * Starts {@link #CALLERS} calls for {@code key} and releases the supplier once all of them have
+     * joined the flight.
+     */
+    private List<Future<Integer>> callConcurrently(final String key,
+                                                   final Supplier<Integer> supplier)
+            throws InterruptedException {
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(mExecutor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return mSingleFlight.execute(key, supplier);
+                }
+            }));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mSingleFlight.getDeduplicatedCount() < CALLERS - 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        mRelease.countDown();
+        return results;
+    }
+
+    private void awaitRelease() {
+        try {
+            mRelease.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
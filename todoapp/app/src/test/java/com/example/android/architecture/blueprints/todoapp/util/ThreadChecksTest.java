@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit tests for {@link ThreadChecks}.
+ */
+public class ThreadChecksTest {
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setup() {
+        ThreadChecks.setEnabled(true);
+        // The test thread stands in for the UI thread.
+        ThreadChecks.setMainThread(Thread.currentThread());
+        mExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+        ThreadChecks.setEnabled(false);
+        ThreadChecks.setMainThread(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void checkNotOnMainThread_onMainThread_fails() {
+        ThreadChecks.checkNotOnMainThread("Work");
+    }
+
+    @Test
+    public void checkNotOnMainThread_onOtherThread_passes() throws Exception {
+        mExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                ThreadChecks.checkNotOnMainThread("Work");
+                return null;
+            }
+        }).get();
+    }
+
+    @Test
+    public void checkNotOnMainThread_withChecksOff_passes() {
+        ThreadChecks.setEnabled(false);
+
+        ThreadChecks.checkNotOnMainThread("Work");
+    }
+}